@@ -7,10 +7,27 @@ import com.nova.healersinc.world.map.Tile;
  * Buildings are placed on tiles and perform various functions
  */
 public abstract class Building {
+   /** Returned by {@link #update} to sleep until the building is woken */
+   public static final float PARK = -1f;
+
    protected final Tile tile ;
    protected final BuildingType type;
    protected boolean active;
 
+   // Scheduling state, kept by the BuildingManager: simulated time of the last update, the
+   // tick the building is due at next, or -1 while it is parked or not managed, what the last
+   // update returned, and where the building goes in the update order of a tick
+   double lastUpdateTime;
+   long wakeTick = -1;
+   float nextUpdateIn;
+   long updateOrder;
+   // Slot in the manager's BuildingStore, -1 while not managed
+   int storeSlot = -1;
+   // Position in the ProductionEngine list the building waits in, -1 for none
+   int listIndex = -1;
+   // Slot in its cell of the manager's BuildingIndex, -1 while not indexed
+   int cellSlot = -1;
+
    public Building(Tile tile, BuildingType type) {
        this.tile = tile;
        this.type = type;
@@ -18,10 +35,13 @@ public abstract class Building {
    }
 
     /**
-     * Updates the building logic.
-     * @param deltaTime Tile elapsed since the last update in seconds
+     * Updates the building logic. Buildings are only updated when they asked to be, so the
+     * building has to say when it has something to do next.
+     * @param deltaTime Time elapsed since the last update in seconds
+     * @return seconds until the next update, or {@link #PARK} to sleep until something wakes
+     * the building (see {@link BuildingManager#wake})
      */
-    public abstract void update(float deltaTime);
+    public abstract float update(float deltaTime);
 
     /**
      * Called when the building is placed.
@@ -30,6 +50,13 @@ public abstract class Building {
         // Override in subclasses if needed e.g., animation triggers
     }
 
+    /**
+     * Called when the building is restored from a save, once its chunk is loaded.
+     */
+    public void onLoaded() {
+        // Override in subclasses that cache anything about their surroundings
+    }
+
     /**
      * Called, when the building is removed.
      */
@@ -45,11 +72,22 @@ public abstract class Building {
         return type;
     }
 
+    /**
+     * Simulated time in seconds at which the building was last updated.
+     */
+    public double getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
     public boolean isActive() {
         return active;
     }
 
+    /**
+     * Inactive buildings park; wake them through the {@link BuildingManager} after activating.
+     */
     public void setActive(boolean active) {
         this.active = active;
+        tile.markDirty();
     }
 }
@@ -0,0 +1,358 @@
+package com.nova.healersinc.building;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.Arrays;
+
+/**
+ * Finds buildings by position: a grid of {@link #CELL_SIZE} tile square cells, each holding its
+ * buildings in one array per {@link BuildingType}, next to their tiles within the cell packed
+ * into a byte, so queries filter by position without touching the buildings themselves. Only
+ * cells with buildings exist, kept in a hash map by cell index, so the grid costs nothing for the
+ * empty parts of a streamed world.
+ * <p>
+ * A query only looks at the cells its area touches, or at every cell with buildings if there
+ * are fewer of those, so its cost follows the buildings near it rather than all buildings.
+ * Queries hand buildings to a {@link Visitor} or fill a caller's array and allocate nothing.
+ * Distances are Euclidean, between tile coordinates.
+ * <p>
+ * Not thread safe; the {@link BuildingManager} keeps it with the store and guards it with the
+ * map's monitor. Visitors must not place or remove buildings.
+ */
+public final class BuildingIndex {
+    /** Tiles per cell side */
+    public static final int CELL_SIZE = 16;
+    private static final int CELL_SHIFT = 4;
+    private static final BuildingType[] TYPES = BuildingType.values();
+
+    /**
+     * Receives the buildings a query finds.
+     */
+    public interface Visitor {
+        /**
+         * @return false to end the query early
+         */
+        boolean visit(Building building);
+    }
+
+    private static final class Cell {
+        final int cellX;
+        final int cellY;
+        final Building[][] buildings = new Building[TYPES.length][];
+        // localY << CELL_SHIFT | localX of the building in the same slot
+        final byte[][] tiles = new byte[TYPES.length][];
+        final int[] sizes = new int[TYPES.length];
+        int size;
+        // Position in liveCells
+        int slot;
+
+        Cell(int cellX, int cellY) {
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+    }
+
+    private final int cellsX;
+    private final int cellsY;
+    private final IntMap<Cell> cells = new IntMap<>();
+    // The same cells, packed for queries that are better off looking at all of them
+    private final Array<Cell> liveCells = new Array<>(false, 64);
+    private final int[] typeSizes = new int[TYPES.length];
+
+    // Squared distances of the buildings found so far by findNearest, alongside the caller's
+    // array, and the array for finding just one
+    private long[] nearestDistances = new long[8];
+    private final Building[] nearestOne = new Building[1];
+
+    BuildingIndex(int width, int height) {
+        this.cellsX = (width + CELL_SIZE - 1) >> CELL_SHIFT;
+        this.cellsY = (height + CELL_SIZE - 1) >> CELL_SHIFT;
+    }
+
+    void add(Building building) {
+        int cellX = building.getTile().x >> CELL_SHIFT;
+        int cellY = building.getTile().y >> CELL_SHIFT;
+        int key = cellY * cellsX + cellX;
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(cellX, cellY);
+            cell.slot = liveCells.size;
+            liveCells.add(cell);
+            cells.put(key, cell);
+        }
+
+        int t = building.getType().ordinal();
+        Building[] ofType = cell.buildings[t];
+        if (ofType == null) {
+            ofType = cell.buildings[t] = new Building[4];
+            cell.tiles[t] = new byte[4];
+        } else if (cell.sizes[t] == ofType.length) {
+            ofType = cell.buildings[t] = Arrays.copyOf(ofType, ofType.length * 2);
+            cell.tiles[t] = Arrays.copyOf(cell.tiles[t], ofType.length);
+        }
+        ofType[cell.sizes[t]] = building;
+        cell.tiles[t][cell.sizes[t]] = (byte) ((building.getTile().y & CELL_SIZE - 1) << CELL_SHIFT
+            | building.getTile().x & CELL_SIZE - 1);
+        building.cellSlot = cell.sizes[t];
+        cell.sizes[t]++;
+        cell.size++;
+        typeSizes[t]++;
+    }
+
+    void remove(Building building) {
+        int key = (building.getTile().y >> CELL_SHIFT) * cellsX + (building.getTile().x >> CELL_SHIFT);
+        Cell cell = cells.get(key);
+        int t = building.getType().ordinal();
+        int slot = building.cellSlot;
+        if (cell == null || slot < 0 || slot >= cell.sizes[t] || cell.buildings[t][slot] != building) {
+            throw new IllegalStateException("Building not indexed: " + building);
+        }
+
+        Building[] ofType = cell.buildings[t];
+        int last = --cell.sizes[t];
+        ofType[slot] = ofType[last];
+        ofType[slot].cellSlot = slot;
+        ofType[last] = null;
+        cell.tiles[t][slot] = cell.tiles[t][last];
+        building.cellSlot = -1;
+        typeSizes[t]--;
+
+        if (--cell.size == 0) {
+            cells.remove(key);
+            liveCells.removeIndex(cell.slot);
+            if (cell.slot < liveCells.size) {
+                liveCells.get(cell.slot).slot = cell.slot;
+            }
+        }
+    }
+
+    // === QUERIES ===
+
+    /**
+     * Visits the buildings of the type (all types if null) on tiles in the box, bounds included.
+     *
+     * @return false if the visitor ended the query early
+     */
+    public boolean forEachInBox(BuildingType type, int minX, int minY, int maxX, int maxY, Visitor visitor) {
+        return query(type, minX, minY, maxX, maxY, 0, 0, -1L, visitor);
+    }
+
+    /**
+     * Visits the buildings of the type (all types if null) at most the radius away from the tile.
+     *
+     * @return false if the visitor ended the query early
+     */
+    public boolean forEachWithin(BuildingType type, int x, int y, int radius, Visitor visitor) {
+        if (radius < 0) {
+            return true;
+        }
+        // A radius beyond the map would overflow the box, so it is clamped to the int range
+        return query(type, clamp((long) x - radius), clamp((long) y - radius), clamp((long) x + radius),
+            clamp((long) y + radius), x, y, (long) radius * radius, visitor);
+    }
+
+    private static int clamp(long coordinate) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, coordinate));
+    }
+
+    /**
+     * The nearest building of the type (any type if null) at most maxDistance away from the
+     * tile, or null if there is none.
+     */
+    public Building findNearest(BuildingType type, int x, int y, int maxDistance) {
+        Building found = findNearest(type, x, y, maxDistance, nearestOne) > 0 ? nearestOne[0] : null;
+        nearestOne[0] = null;
+        return found;
+    }
+
+    /**
+     * Fills the array with the buildings of the type (any type if null) nearest to the tile, at
+     * most maxDistance away, nearest first; as many as fit.
+     *
+     * @return how many were found
+     */
+    public int findNearest(BuildingType type, int x, int y, int maxDistance, Building[] nearest) {
+        int k = nearest.length;
+        if (k == 0 || maxDistance < 0) {
+            return 0;
+        }
+        if (nearestDistances.length < k) {
+            nearestDistances = new long[Math.max(k, nearestDistances.length * 2)];
+        }
+
+        long maxDistance2 = (long) maxDistance * maxDistance;
+        int centerCellX = x >> CELL_SHIFT;
+        int centerCellY = y >> CELL_SHIFT;
+        int maxRing = (int) Math.min(Math.max(cellsX, cellsY), ((long) maxDistance + CELL_SIZE - 1) >> CELL_SHIFT);
+        long searchedCells = (long) (Math.min(cellsX - 1, centerCellX + maxRing) - Math.max(0, centerCellX - maxRing) + 1)
+            * (Math.min(cellsY - 1, centerCellY + maxRing) - Math.max(0, centerCellY - maxRing) + 1);
+        int available = type == null ? totalSize() : typeSizes[type.ordinal()];
+
+        int found = 0;
+        if (searchedCells > liveCells.size) {
+            // Fewer cells hold buildings than the search would look at
+            for (int i = 0; i < liveCells.size; i++) {
+                found = collectNearest(liveCells.get(i), type, x, y, maxDistance2, nearest, found);
+            }
+            return found;
+        }
+
+        int seen = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int cellY = centerCellY - ring; cellY <= centerCellY + ring; cellY++) {
+                // Only the ring's edge: the whole row at its top and bottom, both ends in between
+                int step = cellY == centerCellY - ring || cellY == centerCellY + ring ? 1 : Math.max(1, 2 * ring);
+                for (int cellX = centerCellX - ring; cellX <= centerCellX + ring; cellX += step) {
+                    if (cellX < 0 || cellY < 0 || cellX >= cellsX || cellY >= cellsY) continue;
+                    Cell cell = cells.get(cellY * cellsX + cellX);
+                    if (cell == null) continue;
+
+                    seen += type == null ? cell.size : cell.sizes[type.ordinal()];
+                    found = collectNearest(cell, type, x, y, maxDistance2, nearest, found);
+                }
+            }
+
+            // Anything not looked at yet is at least as far as the edge of the rings so far
+            long edge = Math.min(
+                Math.min(x - ((centerCellX - ring) << CELL_SHIFT) + 1, ((centerCellX + ring + 1) << CELL_SHIFT) - x),
+                Math.min(y - ((centerCellY - ring) << CELL_SHIFT) + 1, ((centerCellY + ring + 1) << CELL_SHIFT) - y));
+            if (seen == available || edge * edge > maxDistance2
+                || found == k && nearestDistances[k - 1] <= edge * edge) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Inserts the cell's buildings that are closer than the farthest one found so far.
+     */
+    private int collectNearest(Cell cell, BuildingType type, int x, int y, long maxDistance2,
+                               Building[] nearest, int found) {
+        int k = nearest.length;
+        long limit = found == k ? nearestDistances[k - 1] - 1 : maxDistance2;
+        if (distance2ToCell(cell, x, y) > limit) {
+            return found;
+        }
+        int fromX = cell.cellX << CELL_SHIFT;
+        int fromY = cell.cellY << CELL_SHIFT;
+
+        for (int t = firstType(type); t < endType(type); t++) {
+            byte[] tiles = cell.tiles[t];
+            for (int b = 0; b < cell.sizes[t]; b++) {
+                long dx = fromX + (tiles[b] & CELL_SIZE - 1) - x;
+                long dy = fromY + ((tiles[b] & 0xff) >> CELL_SHIFT) - y;
+                long distance2 = dx * dx + dy * dy;
+                if (distance2 > limit) continue;
+
+                // Insertion sort into the k nearest, dropping the farthest once full
+                int i = found < k ? found++ : k - 1;
+                while (i > 0 && nearestDistances[i - 1] > distance2) {
+                    nearest[i] = nearest[i - 1];
+                    nearestDistances[i] = nearestDistances[i - 1];
+                    i--;
+                }
+                nearest[i] = cell.buildings[t][b];
+                nearestDistances[i] = distance2;
+                if (found == k) {
+                    limit = nearestDistances[k - 1] - 1;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Visits the matching buildings in the box, and within the distance of (x, y) unless
+     * maxDistance2 is negative.
+     */
+    private boolean query(BuildingType type, int minX, int minY, int maxX, int maxY,
+                          int x, int y, long maxDistance2, Visitor visitor) {
+        int fromCellX = Math.max(0, minX >> CELL_SHIFT);
+        int fromCellY = Math.max(0, minY >> CELL_SHIFT);
+        int toCellX = Math.min(cellsX - 1, maxX >> CELL_SHIFT);
+        int toCellY = Math.min(cellsY - 1, maxY >> CELL_SHIFT);
+        if (fromCellX > toCellX || fromCellY > toCellY) {
+            return true;
+        }
+
+        int width = toCellX - fromCellX + 1;
+        long boxCells = (long) width * (toCellY - fromCellY + 1);
+        if (boxCells > liveCells.size) {
+            // Fewer cells hold buildings than the box covers
+            for (int i = 0; i < liveCells.size; i++) {
+                Cell cell = liveCells.get(i);
+                if (cell.cellX >= fromCellX && cell.cellX <= toCellX && cell.cellY >= fromCellY && cell.cellY <= toCellY
+                    && !visitCell(cell, type, minX, minY, maxX, maxY, x, y, maxDistance2, visitor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        for (int cellY = fromCellY; cellY <= toCellY; cellY++) {
+            for (int cellX = fromCellX; cellX <= toCellX; cellX++) {
+                Cell cell = cells.get(cellY * cellsX + cellX);
+                if (cell != null && !visitCell(cell, type, minX, minY, maxX, maxY, x, y, maxDistance2, visitor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean visitCell(Cell cell, BuildingType type, int minX, int minY, int maxX, int maxY,
+                              int x, int y, long maxDistance2, Visitor visitor) {
+        if (maxDistance2 >= 0 && distance2ToCell(cell, x, y) > maxDistance2) {
+            return true;
+        }
+        int fromX = cell.cellX << CELL_SHIFT;
+        int fromY = cell.cellY << CELL_SHIFT;
+
+        for (int t = firstType(type); t < endType(type); t++) {
+            byte[] tiles = cell.tiles[t];
+            for (int b = 0; b < cell.sizes[t]; b++) {
+                int bx = fromX + (tiles[b] & CELL_SIZE - 1);
+                int by = fromY + ((tiles[b] & 0xff) >> CELL_SHIFT);
+                if (bx < minX || bx > maxX || by < minY || by > maxY) continue;
+                if (maxDistance2 >= 0) {
+                    long dx = bx - x;
+                    long dy = by - y;
+                    if (dx * dx + dy * dy > maxDistance2) continue;
+                }
+                if (!visitor.visit(cell.buildings[t][b])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Squared distance from the tile to the nearest tile of the cell.
+     */
+    private static long distance2ToCell(Cell cell, int x, int y) {
+        int fromX = cell.cellX << CELL_SHIFT;
+        int fromY = cell.cellY << CELL_SHIFT;
+        long dx = x < fromX ? fromX - x : Math.max(0, x - (fromX + CELL_SIZE - 1));
+        long dy = y < fromY ? fromY - y : Math.max(0, y - (fromY + CELL_SIZE - 1));
+        return dx * dx + dy * dy;
+    }
+
+    private static int firstType(BuildingType type) {
+        return type == null ? 0 : type.ordinal();
+    }
+
+    private static int endType(BuildingType type) {
+        return type == null ? TYPES.length : type.ordinal() + 1;
+    }
+
+    private int totalSize() {
+        int size = 0;
+        for (int t = 0; t < TYPES.length; t++) {
+            size += typeSizes[t];
+        }
+        return size;
+    }
+}
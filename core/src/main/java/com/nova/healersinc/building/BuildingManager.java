@@ -1,27 +1,113 @@
 package com.nova.healersinc.building;
 
 
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.util.TimerWheel;
 import com.nova.healersinc.world.map.Tile;
 import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
+import com.nova.healersinc.world.resource.ResourceNode;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Manages all buildings in the game world.
  * Handles building placement, removal, and updates
+ * <p>
+ * Buildings are only updated when they are due: each update returns when the building wants
+ * the next one, and the building is filed under that tick in a timing wheel. Buildings with
+ * nothing to do at all park until {@link #wake woken}, e.g. harvesters without herb nodes in
+ * range until a chunk next to them loads. A tick therefore costs as much as the buildings due in it.
+ * <p>
+ * The buildings due in a tick are updated by region of {@link #REGION_SIZE} tiles, regions
+ * colored like a 2x2 checkerboard, all regions of one color before the next. Regions of one
+ * color are further apart than any building reaches, so they never touch the same herb node,
+ * and with a pool set ({@link #setPool}) they are updated in parallel. The order of the colors,
+ * and of the buildings within each region, is shuffled every tick, seeded by the tick number:
+ * which of two harvesters gets the last unit of a shared node is up to chance, also across
+ * region borders, so neither starves the other. Everything still comes out bit for bit the same
+ * with or without a pool.
+ * <p>
+ * Updates run on the simulation thread while it holds the map's monitor; placement, removal
+ * and loading take the same monitor, so they can be called from the render thread at any time.
  */
 public class BuildingManager {
+    /** 12.8 seconds at 20 ticks per second, a few harvest intervals */
+    private static final int WHEEL_SLOTS = 256;
+    /** Edge length in tiles of the regions updated in parallel; more than twice the farthest
+     * reach of any building (harvesters: 1 tile) */
+    private static final int REGION_SIZE = 64;
+    /** Due buildings below which a tick is not worth splitting */
+    private static final int PARALLEL_THRESHOLD = 256;
+    /** Regions are colored like a 2x2 checkerboard */
+    private static final int COLORS = 4;
+
+    private static final Comparator<Building> UPDATE_ORDER = new Comparator<Building>() {
+        @Override
+        public int compare(Building a, Building b) {
+            return Long.compare(a.updateOrder, b.updateOrder);
+        }
+    };
+
     private final WorldMap worldMap;
-    private final List<Building> buildings;
-    private final Map<Tile, Building> buildingsByTile;
+    private final RegrowthScheduler regrowthScheduler;
+    private final HarvestEvents harvestEvents;
+    private final ProductionEngine production;
+    private final BuildingStore buildings;
+    private final BuildingIndex index;
+    // Buildings picked for removal by removeBuildings, and the visitor that picks them
+    private final Array<Building> selection = new Array<>(false, 64);
+    private final BuildingIndex.Visitor selector = new BuildingIndex.Visitor() {
+        @Override
+        public boolean visit(Building building) {
+            selection.add(building);
+            return true;
+        }
+    };
+
+    private final TimerWheel<Building> wakeWheel = new TimerWheel<>(WHEEL_SLOTS);
+    private final TimerWheel.Handler<Building> dueHandler = new TimerWheel.Handler<Building>() {
+        @Override
+        public void expired(Building building, long tick) {
+            // Removed, or woken for an earlier tick after this entry was filed
+            if (building.wakeTick == tick) {
+                due.add(building);
+            }
+        }
+    };
+    // The buildings due in the current tick, grouped by region, where each region's run of them
+    // starts, and where the regions of each color start
+    private final Array<Building> due = new Array<>(false, 64);
+    private final IntArray regionStarts = new IntArray();
+    private final int[] colorStarts = new int[COLORS + 1];
+    // The colors in the order they are updated in the current tick
+    private final int[] colorOrder = new int[COLORS];
+
+    // Null to update on the calling thread
+    private ForkJoinPool pool;
 
-    public BuildingManager(WorldMap worldMap) {
+    // Simulated time of the current tick, and the length of a tick
+    private double time;
+    private float tickSeconds;
+
+    /**
+     * @param harvestEvents where harvesters report what they harvest
+     * @param production    runs production buildings and storages
+     */
+    public BuildingManager(WorldMap worldMap, RegrowthScheduler regrowthScheduler, HarvestEvents harvestEvents,
+                           ProductionEngine production) {
         this.worldMap = worldMap;
-        this.buildings = new ArrayList<>();
-        this.buildingsByTile = new HashMap<>();
+        this.regrowthScheduler = regrowthScheduler;
+        this.harvestEvents = harvestEvents;
+        this.production = production;
+        this.buildings = new BuildingStore();
+        this.index = new BuildingIndex(worldMap.getWidth(), worldMap.getHeight());
     }
 
     /**
@@ -29,38 +115,134 @@ public class BuildingManager {
      * @return true if the placement was successful, false otherwise
      */
     public boolean placeBuilding(Tile tile, BuildingType type) {
-        if (!canPlaceBuilding(tile)) {
-            return false;
-        }
+        synchronized (worldMap) {
+            if (!canPlaceBuilding(tile)) {
+                return false;
+            }
 
-        Building building = createBuilding(tile, type);
-        if (building == null) {
-            return false;
-        }
+            Building building = createBuilding(tile, type);
+            if (building == null) {
+                return false;
+            }
 
-        buildings.add(building);
-        buildingsByTile.put(tile, building);
-        tile.setBuilding(building);
-        building.onPlaced();
+            adopt(building);
+            tile.setBuilding(building);
+            building.onPlaced();
 
-        return true;
+            return true;
+        }
     }
 
     /**
      * Removes a building from the specified tile
      */
     public boolean removeBuilding(Tile tile) {
-        Building building = buildingsByTile.get(tile);
-        if (building == null) {
-            return false;
+        synchronized (worldMap) {
+            Building building = tile.getBuilding();
+            if (building == null || !buildings.contains(building)) {
+                return false;
+            }
+
+            building.onRemoved();
+            buildings.remove(building);
+            index.remove(building);
+            production.remove(building);
+            // Its entry in the wheel is skipped once it comes up
+            building.wakeTick = -1;
+            tile.setBuilding(null);
+
+            return true;
         }
+    }
 
-        building.onRemoved();
-        buildings.remove(building);
-        buildingsByTile.remove(tile);
-        tile.setBuilding(null);
+    /**
+     * Removes the buildings of the type (all types if null) on tiles in the box, bounds
+     * included, e.g. a box selected for demolition.
+     * @return how many were removed
+     */
+    public int removeBuildings(BuildingType type, int minX, int minY, int maxX, int maxY) {
+        synchronized (worldMap) {
+            index.forEachInBox(type, minX, minY, maxX, maxY, selector);
+            int removed = 0;
+            for (int i = 0; i < selection.size; i++) {
+                if (removeBuilding(selection.get(i).getTile())) {
+                    removed++;
+                }
+            }
+            selection.clear();
+            return removed;
+        }
+    }
 
-        return true;
+    /**
+     * Picks up the buildings of a chunk that was just loaded, e.g. restored from a save, and
+     * lets harvesters right next to it see its herb nodes. Herb nodes that were saved while
+     * depleted start growing back.
+     */
+    public void onChunkLoaded(int chunkX, int chunkY) {
+        synchronized (worldMap) {
+            int fromX = chunkX * WorldMap.CHUNK_SIZE;
+            int fromY = chunkY * WorldMap.CHUNK_SIZE;
+            int toX = Math.min(worldMap.getWidth(), fromX + WorldMap.CHUNK_SIZE);
+            int toY = Math.min(worldMap.getHeight(), fromY + WorldMap.CHUNK_SIZE);
+
+            for (int y = Math.max(0, fromY - 1); y < Math.min(worldMap.getHeight(), toY + 1); y++) {
+                for (int x = Math.max(0, fromX - 1); x < Math.min(worldMap.getWidth(), toX + 1); x++) {
+                    boolean inChunk = x >= fromX && x < toX && y >= fromY && y < toY;
+                    if (inChunk && worldMap.getResourceNode(x, y) != null) {
+                        ResourceNode<?> node = worldMap.getTile(x, y).getResourceNode();
+                        if (node.getCurrentYield() < node.getMaxYield()) {
+                            regrowthScheduler.schedule(node);
+                        }
+                    }
+
+                    Building building = worldMap.getBuilding(x, y);
+                    if (building == null) continue;
+
+                    if (inChunk && !buildings.contains(building)) {
+                        adopt(building);
+                        building.onLoaded();
+                    } else if (!inChunk && building instanceof Harvester) {
+                        ((Harvester) building).rescan();
+                        wake(building);
+                    }
+                }
+            }
+        }
+    }
+
+    private void adopt(Building building) {
+        if (building instanceof Harvester) {
+            ((Harvester) building).setRegrowthScheduler(regrowthScheduler);
+            ((Harvester) building).setHarvestEvents(harvestEvents);
+        }
+        buildings.add(building);
+        index.add(building);
+        production.add(building);
+
+        int regionX = building.getTile().x / REGION_SIZE;
+        int regionY = building.getTile().y / REGION_SIZE;
+        int color = (regionX & 1) | (regionY & 1) << 1;
+        building.updateOrder = (long) color << 60 | (long) regionY << 30 | regionX;
+        building.lastUpdateTime = time;
+        schedule(building, wakeWheel.getTick() + 1);
+    }
+
+    /**
+     * Updates a parked building on the next tick, e.g. after it was activated again. Buildings
+     * that are already due at some tick keep it.
+     */
+    public void wake(Building building) {
+        synchronized (worldMap) {
+            if (building.wakeTick < 0 && buildings.contains(building)) {
+                schedule(building, wakeWheel.getTick() + 1);
+            }
+        }
+    }
+
+    private void schedule(Building building, long tick) {
+        building.wakeTick = tick;
+        wakeWheel.schedule(building, tick);
     }
 
     /**
@@ -71,6 +253,11 @@ public class BuildingManager {
             return false;
         }
 
+        // Can't build on chunks that are not generated yet
+        if (!worldMap.isTileLoaded(tile.x, tile.y)) {
+            return false;
+        }
+
         //Can't be placed on tiles that already have buildings
         if (tile.hasBuilding()) {
             return false;
@@ -91,38 +278,194 @@ public class BuildingManager {
         switch (type) {
             case HARVESTER:
                 return new Harvester(tile, worldMap);
+            case DRYING_RACK:
+                return new DryingRack(tile);
+            case STORAGE:
+                return new Storage(tile);
             default:
                 return null;
         }
     }
 
     /**
-     * Updates all buildings.
+     * Updates buildings on the given pool from now on, or on the calling thread if null. Makes
+     * no difference to the outcome, only to how fast a busy tick runs.
      */
-    public void update(float deltaTime) {
-        for (Building building : buildings) {
-            building.update(deltaTime);
+    public void setPool(ForkJoinPool pool) {
+        synchronized (worldMap) {
+            this.pool = pool;
         }
     }
 
     /**
-     * Gets all buildings of a specific type.
+     * Advances one tick and updates the buildings due at it. Called by the simulation with the
+     * map's monitor held.
+     *
+     * @param deltaTime length of a tick in seconds, the same every time
      */
-    public List<Building> getBuildings(BuildingType type) {
-        List<Building> result = new ArrayList<>();
-        for (Building building : buildings) {
-            if (building.getType() == type) {
-                result.add(building);
+    public void update(float deltaTime) {
+        tickSeconds = deltaTime;
+        time = (wakeWheel.getTick() + 1) * (double) deltaTime;
+        wakeWheel.advance(dueHandler);
+        if (due.size == 0) return;
+
+        // Mostly sorted already, as buildings are filed in region order
+        due.sort(UPDATE_ORDER);
+        regionStarts.clear();
+        for (int i = 0; i < due.size; i++) {
+            if (i == 0 || due.get(i).updateOrder != due.get(i - 1).updateOrder) {
+                regionStarts.add(i);
+            }
+        }
+        regionStarts.add(due.size);
+
+        Arrays.fill(colorStarts, regionStarts.size - 1);
+        for (int region = regionStarts.size - 2; region >= 0; region--) {
+            colorStarts[colorOf(regionStarts.get(region))] = region;
+        }
+        for (int color = COLORS - 1; color > 0; color--) {
+            colorStarts[color - 1] = Math.min(colorStarts[color - 1], colorStarts[color]);
+        }
+
+        // Hashed rather than counted up, as buildings tend to come back at even tick intervals
+        int random = mix((int) wakeWheel.getTick());
+        for (int region = 0; region < regionStarts.size - 1; region++) {
+            shuffle(regionStarts.get(region), regionStarts.get(region + 1), random + region);
+        }
+        shuffleColors(random);
+
+        boolean parallel = pool != null && due.size >= PARALLEL_THRESHOLD;
+        for (int color : colorOrder) {
+            int from = colorStarts[color];
+            int to = colorStarts[color + 1];
+            if (from == to) continue;
+
+            // The regions of a color are independent
+            if (parallel) {
+                pool.invoke(new RegionTask(this, from, to));
+            } else {
+                updateRegions(from, to);
             }
         }
-        return result;
+
+        // Filed in the same order with or without a pool, so the next ticks come up the same either way
+        long tick = wakeWheel.getTick();
+        for (int i = 0; i < due.size; i++) {
+            Building building = due.get(i);
+            if (building.nextUpdateIn >= 0f) {
+                schedule(building, tick + Math.max(1, (long) Math.ceil(building.nextUpdateIn / tickSeconds)));
+            } else {
+                building.wakeTick = -1;
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * Scrambles the bits of h, so that close inputs give unrelated outputs (MurmurHash3's finalizer).
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ h >>> 16;
+    }
+
+    private int colorOf(int dueIndex) {
+        return (int) (due.get(dueIndex).updateOrder >>> 60);
+    }
+
+    /**
+     * Shuffles the due buildings in [from, to), seeded by the random bits given.
+     */
+    private void shuffle(int from, int to, int random) {
+        for (int i = to - 1; i > from; i--) {
+            due.swap(i, from + ((mix(random + i) >>> 1) % (i - from + 1)));
+        }
+    }
+
+    /**
+     * Puts the colors in one of their 24 orders, picked by the random bits given. A full shuffle
+     * rather than a rotation, so that every color goes before every other half of the time.
+     */
+    private void shuffleColors(int random) {
+        for (int color = 0; color < COLORS; color++) {
+            colorOrder[color] = color;
+        }
+        for (int i = COLORS - 1; i > 0; i--) {
+            int j = (random & 0xFF) % (i + 1);
+            random >>>= 8;
+            int swap = colorOrder[i];
+            colorOrder[i] = colorOrder[j];
+            colorOrder[j] = swap;
+        }
+    }
+
+    /**
+     * Updates the due buildings of regions [fromRegion, toRegion), one region after the other.
+     */
+    private void updateRegions(int fromRegion, int toRegion) {
+        for (int i = regionStarts.get(fromRegion); i < regionStarts.get(toRegion); i++) {
+            Building building = due.get(i);
+            float deltaTime = (float) (time - building.lastUpdateTime);
+            building.lastUpdateTime = time;
+            building.nextUpdateIn = building.update(deltaTime);
+        }
     }
 
+    /**
+     * Gets all buildings of a specific type, in no particular order. The list is a read-only
+     * view that follows later placements and removals, so use it on the render thread, where
+     * those happen, or with the map's monitor held.
+     */
+    public List<Building> getBuildings(BuildingType type) {
+        return buildings.view(type);
+    }
+
+    /**
+     * All buildings, as a read-only view like {@link #getBuildings}.
+     */
     public List<Building> getAllBuildings() {
-       return new ArrayList<>(buildings);
+        return buildings.all();
     }
 
     public int getBuildingCount() {
         return buildings.size();
     }
+
+    /**
+     * Finds buildings by position: in a box, within a radius, or nearest to a tile. Like the
+     * lists above it follows placements and removals, so query it on the render thread or with
+     * the map's monitor held; the simulation thread holds it for the whole tick.
+     */
+    public BuildingIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Splits a run of regions that may be updated at the same time.
+     */
+    private static final class RegionTask extends RecursiveAction {
+        private final BuildingManager manager;
+        private final int fromRegion;
+        private final int toRegion;
+
+        RegionTask(BuildingManager manager, int fromRegion, int toRegion) {
+            this.manager = manager;
+            this.fromRegion = fromRegion;
+            this.toRegion = toRegion;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRegion - fromRegion <= 1) {
+                manager.updateRegions(fromRegion, toRegion);
+                return;
+            }
+
+            int mid = (fromRegion + toRegion) >>> 1;
+            invokeAll(new RegionTask(manager, fromRegion, mid), new RegionTask(manager, mid, toRegion));
+        }
+    }
 }
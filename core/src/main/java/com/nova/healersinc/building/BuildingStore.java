@@ -0,0 +1,151 @@
+package com.nova.healersinc.building;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The buildings of a {@link BuildingManager}, packed into one array per {@link BuildingType}.
+ * Removal swaps the last building of the type into the freed slot, and every building remembers
+ * its slot, so adding, removing and looking a building up are O(1) whatever the count.
+ * <p>
+ * The lists handed out are read-only views onto the arrays, not copies, and follow later
+ * changes. Not thread safe; the manager guards it with the map's monitor.
+ */
+final class BuildingStore {
+    private static final BuildingType[] TYPES = BuildingType.values();
+
+    private final Building[][] buildings = new Building[TYPES.length][];
+    private final int[] sizes = new int[TYPES.length];
+    private int size;
+
+    private final TypeView[] typeViews = new TypeView[TYPES.length];
+    private final AllView allView = new AllView();
+
+    BuildingStore() {
+        for (int t = 0; t < TYPES.length; t++) {
+            buildings[t] = new Building[16];
+            typeViews[t] = new TypeView(t);
+        }
+    }
+
+    void add(Building building) {
+        if (contains(building)) {
+            throw new IllegalStateException("Building already stored: " + building);
+        }
+
+        int t = building.getType().ordinal();
+        if (sizes[t] == buildings[t].length) {
+            buildings[t] = Arrays.copyOf(buildings[t], sizes[t] + (sizes[t] >> 1));
+        }
+        buildings[t][sizes[t]] = building;
+        building.storeSlot = sizes[t];
+        sizes[t]++;
+        size++;
+        changed(t);
+    }
+
+    /**
+     * @return false if the building was not stored
+     */
+    boolean remove(Building building) {
+        if (!contains(building)) {
+            return false;
+        }
+
+        int t = building.getType().ordinal();
+        int slot = building.storeSlot;
+        int last = sizes[t] - 1;
+        if (slot != last) {
+            Building moved = buildings[t][last];
+            buildings[t][slot] = moved;
+            moved.storeSlot = slot;
+        }
+        buildings[t][last] = null;
+        building.storeSlot = -1;
+        sizes[t]--;
+        size--;
+        changed(t);
+        return true;
+    }
+
+    boolean contains(Building building) {
+        int t = building.getType().ordinal();
+        int slot = building.storeSlot;
+        return slot >= 0 && slot < sizes[t] && buildings[t][slot] == building;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The buildings of one type, in no particular order.
+     */
+    List<Building> view(BuildingType type) {
+        return typeViews[type.ordinal()];
+    }
+
+    /**
+     * All buildings, type by type.
+     */
+    List<Building> all() {
+        return allView;
+    }
+
+    // Lets iterators over the views fail fast on concurrent modification
+    private void changed(int t) {
+        typeViews[t].changed();
+        allView.changed();
+    }
+
+    private final class TypeView extends AbstractList<Building> {
+        private final int t;
+
+        TypeView(int t) {
+            this.t = t;
+        }
+
+        @Override
+        public Building get(int index) {
+            if (index < 0 || index >= sizes[t]) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + sizes[t]);
+            }
+            return buildings[t][index];
+        }
+
+        @Override
+        public int size() {
+            return sizes[t];
+        }
+
+        void changed() {
+            modCount++;
+        }
+    }
+
+    private final class AllView extends AbstractList<Building> {
+        @Override
+        public Building get(int index) {
+            if (index >= 0) {
+                int indexInType = index;
+                for (int t = 0; t < TYPES.length; t++) {
+                    if (indexInType < sizes[t]) {
+                        return buildings[t][indexInType];
+                    }
+                    indexInType -= sizes[t];
+                }
+            }
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void changed() {
+            modCount++;
+        }
+    }
+}
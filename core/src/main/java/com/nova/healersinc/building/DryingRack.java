@@ -0,0 +1,14 @@
+package com.nova.healersinc.building;
+
+import com.nova.healersinc.world.map.Tile;
+
+/**
+ * Dries fresh herbs from the colony's harvest, a batch of one herb at a time, and has the dried
+ * herbs carried to storage.
+ */
+public class DryingRack extends ProductionBuilding {
+
+    public DryingRack(Tile tile) {
+        super(tile, BuildingType.DRYING_RACK, Recipe.DRYING);
+    }
+}
@@ -1,9 +1,11 @@
 package com.nova.healersinc.building;
 
 
+import com.nova.healersinc.inventory.HarvestEvents;
 import com.nova.healersinc.world.herb.HerbNode;
 import com.nova.healersinc.world.map.Tile;
 import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
 import com.nova.healersinc.world.resource.ResourceNode;
 
 import java.util.ArrayList;
@@ -20,6 +22,9 @@ public class Harvester extends Building {
 
     private final WorldMap worldMap;
     private final List<HerbNode> nearbyHerbNodes;
+    // Set by the BuildingManager before the harvester is first updated
+    private RegrowthScheduler regrowthScheduler;
+    private HarvestEvents harvestEvents;
     private float harvestTimer;
     private int totalHarvested;
 
@@ -38,9 +43,15 @@ public class Harvester extends Building {
     }
 
     @Override
-    public void update(float deltaTime) {
+    public void onLoaded() {
+        super.onLoaded();
+        scanForHerbNodes();
+    }
+
+    @Override
+    public float update(float deltaTime) {
         if (!active || nearbyHerbNodes.isEmpty()) {
-            return;
+            return PARK;
         }
 
         harvestTimer += deltaTime;
@@ -48,7 +59,41 @@ public class Harvester extends Building {
         if (harvestTimer >= HARVEST_INTERVAL) {
             harvestTimer = 0f;
             performHarvest();
+            if (isWaitingForRegrowth()) {
+                // Nothing to take before the first node grows back
+                return getSecondsUntilRegrowth();
+            }
+        }
+        return HARVEST_INTERVAL - harvestTimer;
+    }
+
+    /**
+     * Seconds until the first node in range grows back, or {@link #PARK} if none regrows.
+     */
+    private float getSecondsUntilRegrowth() {
+        float soonest = PARK;
+        for (HerbNode herbNode : nearbyHerbNodes) {
+            float seconds = regrowthScheduler.getSecondsUntilRegrowth(herbNode);
+            if (seconds >= 0f && (soonest < 0f || seconds < soonest)) {
+                soonest = seconds;
+            }
         }
+        return soonest;
+    }
+
+    /**
+     * True if every node in range is used up, so there is nothing to do until one regrows.
+     */
+    public boolean isWaitingForRegrowth() {
+        if (nearbyHerbNodes.isEmpty()) {
+            return false;
+        }
+        for (HerbNode herbNode : nearbyHerbNodes) {
+            if (herbNode.getCurrentYield() > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -76,17 +121,18 @@ public class Harvester extends Building {
     }
 
     /**
-     * Performs the harvest operation on all nearby herb nodes
+     * Performs the harvest operation on all nearby herb nodes, sending what it got on towards
+     * the colony's inventory
      */
     private void performHarvest() {
         for (HerbNode herbNode : nearbyHerbNodes) {
-            if (herbNode.getCurrentYield() > 0) {
-                int amountToHarvest = Math.min(HARVEST_AMOUNT, herbNode.getCurrentYield());
-                herbNode.harvest(amountToHarvest);
+            // Other harvesters may share the node; only what was actually taken counts
+            int amountToHarvest = herbNode.tryTake(HARVEST_AMOUNT);
+            if (amountToHarvest > 0) {
+                regrowthScheduler.schedule(herbNode);
                 totalHarvested += amountToHarvest;
-
-                //TODO: Add harvested herbs to inventory/storage
-                System.out.println("Harvested " + amountToHarvest + " " + herbNode.getType().name() + "(Total: " + totalHarvested + ")");
+                tile.markDirty();
+                harvestEvents.publish(herbNode.getType(), amountToHarvest);
             }
         }
     }
@@ -98,6 +144,20 @@ public class Harvester extends Building {
         scanForHerbNodes();
     }
 
+    /**
+     * Where harvested nodes are handed to grow back.
+     */
+    public void setRegrowthScheduler(RegrowthScheduler regrowthScheduler) {
+        this.regrowthScheduler = regrowthScheduler;
+    }
+
+    /**
+     * Where harvests are reported, to end up in the inventory.
+     */
+    public void setHarvestEvents(HarvestEvents harvestEvents) {
+        this.harvestEvents = harvestEvents;
+    }
+
     public List<HerbNode> getNerbyHerbNodes() {
         return new ArrayList<>(nearbyHerbNodes);
     }
@@ -106,7 +166,35 @@ public class Harvester extends Building {
         return totalHarvested;
     }
 
+    /**
+     * Restores the total, e.g. when loading a saved game.
+     */
+    public void setTotalHarvested(int totalHarvested) {
+        this.totalHarvested = totalHarvested;
+    }
+
     public float getHarvestTimer() {
         return harvestTimer / HARVEST_INTERVAL;
     }
+
+    /**
+     * Progress towards the next harvest in [0, 1] at the given simulated time. The harvester
+     * only updates when a harvest is due, so this adds the time since then; it also lets drawing
+     * move smoothly between simulation ticks.
+     */
+    public float getHarvestProgress(double time) {
+        float timer = harvestTimer;
+        if (active && !nearbyHerbNodes.isEmpty() && !isWaitingForRegrowth()) {
+            timer += (float) Math.max(0.0, time - lastUpdateTime);
+        }
+        return Math.min(1f, timer / HARVEST_INTERVAL);
+    }
+
+    /**
+     * Restores the progress towards the next harvest, in the same [0, 1) range
+     * {@link #getHarvestTimer()} reports.
+     */
+    public void setHarvestTimer(float progress) {
+        this.harvestTimer = Math.max(0f, Math.min(1f, progress)) * HARVEST_INTERVAL;
+    }
 }
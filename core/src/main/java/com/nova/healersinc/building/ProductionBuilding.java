@@ -0,0 +1,98 @@
+package com.nova.healersinc.building;
+
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.Tile;
+
+/**
+ * A building that processes herbs by its {@link Recipe}, one batch at a time. It only holds its
+ * input and output as plain counts; it is not updated on its own but by the
+ * {@link ProductionEngine}, which starts, finishes and empties the jobs of all production
+ * buildings in batches, recipe by recipe.
+ */
+public abstract class ProductionBuilding extends Building {
+    private static final HerbType[] HERBS = HerbType.values();
+
+    private final Recipe recipe;
+
+    // Kept by the ProductionEngine: the herb (ordinal) of the current batch, -1 for none, units
+    // of it waiting or being processed, units done and waiting to be carried to storage, and
+    // the tick the job finishes at, -1 while none runs
+    int herb = -1;
+    int input;
+    int output;
+    long doneTick = -1;
+    // Seconds left of a job restored from a save, until the engine takes it up
+    float restoredSecondsLeft;
+    // Set once the engine has the building
+    ProductionEngine engine;
+
+    protected ProductionBuilding(Tile tile, BuildingType type, Recipe recipe) {
+        super(tile, type);
+        this.recipe = recipe;
+    }
+
+    @Override
+    public float update(float deltaTime) {
+        // Everything happens in the engine's batches
+        return PARK;
+    }
+
+    public Recipe getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * The herb being processed or waiting to be carried off, null while the building is empty.
+     */
+    public HerbType getHerb() {
+        return herb < 0 ? null : HERBS[herb];
+    }
+
+    /**
+     * Units in the current job.
+     */
+    public int getInput() {
+        return input;
+    }
+
+    /**
+     * Units done and waiting for room in a storage.
+     */
+    public int getOutput() {
+        return output;
+    }
+
+    /**
+     * Seconds until the current job is done, 0 if none runs.
+     */
+    public float getSecondsLeft() {
+        if (doneTick < 0 || engine == null) {
+            return restoredSecondsLeft;
+        }
+        return engine.secondsUntil(doneTick);
+    }
+
+    /**
+     * Progress of the current job in [0, 1] at the given simulated time, 0 if none runs. The
+     * time is the simulation's (see {@link Building#getLastUpdateTime()}), so drawing can move
+     * smoothly between ticks.
+     */
+    public float getProgress(double time) {
+        if (doneTick < 0 || engine == null) {
+            return 0f;
+        }
+        double left = engine.timeOf(doneTick) - time;
+        return (float) Math.max(0.0, Math.min(1.0, 1.0 - left / recipe.getSeconds()));
+    }
+
+    /**
+     * Restores buffers and job, e.g. when loading a saved game. A job with time left goes on
+     * once the building is managed again.
+     */
+    public void restore(HerbType herb, int input, int output, float secondsLeft) {
+        this.herb = herb == null ? -1 : herb.ordinal();
+        this.input = Math.max(0, input);
+        this.output = Math.max(0, output);
+        this.restoredSecondsLeft = Math.max(0f, secondsLeft);
+    }
+}
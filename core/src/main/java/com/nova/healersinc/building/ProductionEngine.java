@@ -0,0 +1,354 @@
+package com.nova.healersinc.building;
+
+import com.badlogic.gdx.utils.Array;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.util.TimerWheel;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.resource.ResourceRegistry;
+
+/**
+ * Runs the colony's herb chain once per tick, in batches. {@link ProductionBuilding}s and
+ * {@link Storage}s are not updated one by one like other buildings; the engine moves their
+ * contents in bulk instead:
+ * <ol>
+ * <li>Jobs finishing this tick come up from a timing wheel and are completed recipe by recipe.
+ * Their output waits on the building.</li>
+ * <li>Waiting output is carried to storages with room, as much per storage as fits.</li>
+ * <li>Idle buildings take a full batch of the herb the inventory holds most of and start.</li>
+ * </ol>
+ * Buildings and storages wait in lists by what they wait for, so a tick costs as much as the
+ * jobs that finish or start in it, however many buildings there are.
+ * <p>
+ * Runs on the simulation thread with the map's monitor held, like the {@link BuildingManager}
+ * that hands it its buildings.
+ */
+public class ProductionEngine {
+    /** 51.2 seconds at 20 ticks per second, longer than any recipe takes */
+    private static final int WHEEL_SLOTS = 1024;
+    private static final Recipe[] RECIPES = Recipe.values();
+    private static final HerbType[] HERBS = HerbType.values();
+
+    private final Inventory inventory;
+    private final float tickSeconds;
+
+    private final TimerWheel<ProductionBuilding> jobs = new TimerWheel<>(WHEEL_SLOTS);
+    private final TimerWheel.Handler<ProductionBuilding> finishHandler = new TimerWheel.Handler<ProductionBuilding>() {
+        @Override
+        public void expired(ProductionBuilding building, long tick) {
+            // Removed since
+            if (building.doneTick == tick) {
+                finished[building.getRecipe().ordinal()].add(building);
+            }
+        }
+    };
+    // Per recipe: the jobs finishing in the current tick, and the buildings waiting for input
+    private final Array<ProductionBuilding>[] finished;
+    private final Array<ProductionBuilding>[] idle;
+    // Buildings whose output waits for room in storage
+    private final Array<ProductionBuilding> waiting = new Array<>(false, 16);
+    // Storages with at least one free stack
+    private final Array<Storage> storagesWithRoom = new Array<>(false, 16);
+
+    // Per item: what the inventory holds while jobs start, and what was stored in this tick
+    private final long[] available = new long[HerbForm.ITEM_COUNT];
+    private final long[] stored = new long[HerbForm.ITEM_COUNT];
+    // Per item: what all storages hold together, the part of the inventory saved with them
+    private final long[] inStorages = new long[HerbForm.ITEM_COUNT];
+
+    // Units finished per recipe and units stored since the last report
+    private final long[] producedSinceReport = new long[RECIPES.length];
+    private long storedSinceReport;
+
+    /**
+     * @param inventory   where production takes its input from, and storage reports to
+     * @param tickSeconds simulated seconds per {@link #update()}
+     */
+    @SuppressWarnings("unchecked")
+    public ProductionEngine(Inventory inventory, float tickSeconds) {
+        this.inventory = inventory;
+        this.tickSeconds = tickSeconds;
+        this.finished = new Array[RECIPES.length];
+        this.idle = new Array[RECIPES.length];
+        for (int r = 0; r < RECIPES.length; r++) {
+            finished[r] = new Array<>(false, 16);
+            idle[r] = new Array<>(false, 16);
+        }
+    }
+
+    // === BUILDING MANAGER ===
+
+    /**
+     * Takes over a production building or storage that was placed or loaded. What a loaded
+     * storage holds counts towards the inventory from now on, and a loaded job goes on.
+     */
+    void add(Building building) {
+        if (building instanceof ProductionBuilding) {
+            ProductionBuilding production = (ProductionBuilding) building;
+            production.engine = this;
+            if (production.herb >= 0 && production.input > 0) {
+                startJob(production, (long) Math.ceil(production.restoredSecondsLeft / tickSeconds));
+            } else if (production.herb >= 0 && production.output > 0) {
+                listAdd(waiting, production);
+            } else {
+                production.herb = -1;
+                listAdd(idle[production.getRecipe().ordinal()], production);
+            }
+            production.restoredSecondsLeft = 0f;
+        } else if (building instanceof Storage) {
+            Storage storage = (Storage) building;
+            for (int item = 0; item < HerbForm.ITEM_COUNT; item++) {
+                if (storage.amounts[item] > 0) {
+                    inventory.add(HerbForm.formOf(item), HerbForm.herbOf(item), storage.amounts[item]);
+                    inStorages[item] += storage.amounts[item];
+                }
+            }
+            if (storage.usedStacks(ResourceRegistry.get()) < Storage.STACKS) {
+                listAdd(storagesWithRoom, storage);
+            }
+        }
+    }
+
+    /**
+     * Lets go of a demolished production building or storage. Herbs a production building had
+     * not processed yet go back to the inventory; finished herbs on it and everything in a
+     * storage are lost with it.
+     */
+    void remove(Building building) {
+        if (building instanceof ProductionBuilding) {
+            ProductionBuilding production = (ProductionBuilding) building;
+            Array<ProductionBuilding> idleOfRecipe = idle[production.getRecipe().ordinal()];
+            if (isListed(idleOfRecipe, production)) {
+                listRemove(idleOfRecipe, production);
+            } else if (isListed(waiting, production)) {
+                listRemove(waiting, production);
+            }
+            if (production.herb >= 0 && production.input > 0) {
+                inventory.add(production.getRecipe().getInput(), HERBS[production.herb], production.input);
+            }
+            // Its job in the wheel is skipped once it comes up
+            production.doneTick = -1;
+            production.engine = null;
+        } else if (building instanceof Storage) {
+            Storage storage = (Storage) building;
+            if (isListed(storagesWithRoom, storage)) {
+                listRemove(storagesWithRoom, storage);
+            }
+            for (int item = 0; item < HerbForm.ITEM_COUNT; item++) {
+                if (storage.amounts[item] > 0) {
+                    inventory.remove(HerbForm.formOf(item), HerbForm.herbOf(item), storage.amounts[item]);
+                    inStorages[item] -= storage.amounts[item];
+                }
+            }
+        }
+    }
+
+    // === SIMULATION ===
+
+    /**
+     * Advances one tick: finishes the jobs due, carries output to storage and starts new jobs.
+     */
+    public void update() {
+        jobs.advance(finishHandler);
+
+        for (int r = 0; r < RECIPES.length; r++) {
+            Array<ProductionBuilding> batch = finished[r];
+            for (int i = 0; i < batch.size; i++) {
+                ProductionBuilding building = batch.get(i);
+                building.output += building.input;
+                producedSinceReport[r] += building.input;
+                building.input = 0;
+                building.doneTick = -1;
+                listAdd(waiting, building);
+                building.getTile().markDirty();
+            }
+            batch.clear();
+        }
+
+        if (waiting.size > 0 && storagesWithRoom.size > 0) {
+            store(ResourceRegistry.get());
+        }
+
+        for (Recipe recipe : RECIPES) {
+            if (idle[recipe.ordinal()].size > 0) {
+                startJobs(recipe);
+            }
+        }
+    }
+
+    /**
+     * Carries waiting output into the storages with room, then adds it to the inventory in one go.
+     */
+    private void store(ResourceRegistry.Snapshot resources) {
+        for (int i = waiting.size - 1; i >= 0 && storagesWithRoom.size > 0; i--) {
+            ProductionBuilding building = waiting.get(i);
+            int item = building.getRecipe().getOutput().item(HERBS[building.herb]);
+
+            while (building.output > 0 && storagesWithRoom.size > 0) {
+                Storage storage = storagesWithRoom.peek();
+                int moved = Math.min(building.output, storage.room(item, resources));
+                storage.amounts[item] += moved;
+                building.output -= moved;
+                stored[item] += moved;
+                storage.getTile().markDirty();
+                // Full now, or its stacks grew when the stack sizes were reloaded
+                if (moved == 0 || storage.usedStacks(resources) >= Storage.STACKS) {
+                    listRemove(storagesWithRoom, storage);
+                }
+            }
+
+            building.getTile().markDirty();
+            if (building.output == 0) {
+                building.herb = -1;
+                listRemove(waiting, building);
+                listAdd(idle[building.getRecipe().ordinal()], building);
+            }
+        }
+
+        for (int item = 0; item < HerbForm.ITEM_COUNT; item++) {
+            if (stored[item] > 0) {
+                inventory.add(HerbForm.formOf(item), HerbForm.herbOf(item), stored[item]);
+                inStorages[item] += stored[item];
+                storedSinceReport += stored[item];
+                stored[item] = 0;
+            }
+        }
+    }
+
+    /**
+     * Gives idle buildings of the recipe a full batch each while the inventory has one, taking
+     * the batches out of it in one go.
+     */
+    private void startJobs(Recipe recipe) {
+        HerbForm form = recipe.getInput();
+        int batchSize = recipe.getBatchSize();
+        for (HerbType herb : HERBS) {
+            available[herb.ordinal()] = inventory.getAmount(form, herb);
+        }
+
+        Array<ProductionBuilding> waitingForInput = idle[recipe.ordinal()];
+        long ticks = Math.round(recipe.getSeconds() / tickSeconds);
+        for (int i = waitingForInput.size - 1; i >= 0; i--) {
+            ProductionBuilding building = waitingForInput.get(i);
+            if (!building.isActive()) continue;
+
+            int herb = mostAvailable();
+            if (available[herb] < batchSize) break;
+
+            available[herb] -= batchSize;
+            listRemove(waitingForInput, building);
+            building.herb = herb;
+            building.input = batchSize;
+            startJob(building, ticks);
+        }
+
+        for (HerbType herb : HERBS) {
+            long taken = inventory.getAmount(form, herb) - available[herb.ordinal()];
+            if (taken > 0) {
+                inventory.remove(form, herb, taken);
+            }
+        }
+    }
+
+    private int mostAvailable() {
+        int most = 0;
+        for (int herb = 1; herb < HERBS.length; herb++) {
+            if (available[herb] > available[most]) {
+                most = herb;
+            }
+        }
+        return most;
+    }
+
+    private void startJob(ProductionBuilding building, long ticks) {
+        building.doneTick = jobs.getTick() + Math.max(1, ticks);
+        jobs.schedule(building, building.doneTick);
+        building.getTile().markDirty();
+    }
+
+    // === SAVING ===
+
+    /**
+     * What the inventory holds outside storages, per {@link HerbForm#item}: the fresh harvest
+     * and anything else not stored. Storages are saved with their contents and count towards the
+     * inventory again once they are loaded, so this is the part a save has to keep itself.
+     */
+    public void getLooseStock(long[] amounts) {
+        for (int item = 0; item < HerbForm.ITEM_COUNT; item++) {
+            long amount = inventory.getAmount(HerbForm.formOf(item), HerbForm.herbOf(item));
+            amounts[item] = Math.max(0, amount - inStorages[item]);
+        }
+    }
+
+    /**
+     * Puts saved {@linkplain #getLooseStock loose stock} back into the inventory, alongside
+     * whatever the loaded storages hold.
+     */
+    public void restoreLooseStock(long[] amounts) {
+        for (int item = 0; item < Math.min(amounts.length, HerbForm.ITEM_COUNT); item++) {
+            if (amounts[item] > 0) {
+                inventory.add(HerbForm.formOf(item), HerbForm.herbOf(item), amounts[item]);
+            }
+        }
+    }
+
+    /**
+     * Simulated seconds from the last {@link #update()} to the given tick.
+     */
+    float secondsUntil(long tick) {
+        return (tick - jobs.getTick()) * tickSeconds;
+    }
+
+    /**
+     * Simulated time in seconds at which the given tick is reached.
+     */
+    double timeOf(long tick) {
+        return tick * (double) tickSeconds;
+    }
+
+    /**
+     * Sums up what was produced and stored since the last report, e.g. "DRYING 400, stored 380,
+     * 12 waiting for storage", and starts over. Null if nothing happened since.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < RECIPES.length; r++) {
+            if (producedSinceReport[r] > 0) {
+                sb.append(RECIPES[r].name()).append(' ').append(producedSinceReport[r]).append(", ");
+                producedSinceReport[r] = 0;
+            }
+        }
+        if (sb.length() == 0 && storedSinceReport == 0) {
+            return null;
+        }
+
+        sb.append("stored ").append(storedSinceReport);
+        if (waiting.size > 0) {
+            sb.append(", ").append(waiting.size).append(" waiting for storage");
+        }
+        storedSinceReport = 0;
+        return sb.toString();
+    }
+
+    private static <T extends Building> boolean isListed(Array<T> list, T building) {
+        return building.listIndex >= 0 && building.listIndex < list.size && list.get(building.listIndex) == building;
+    }
+
+    private static <T extends Building> void listAdd(Array<T> list, T building) {
+        building.listIndex = list.size;
+        list.add(building);
+    }
+
+    /**
+     * Swaps the last building of the list into the freed position.
+     */
+    private static <T extends Building> void listRemove(Array<T> list, T building) {
+        int index = building.listIndex;
+        T last = list.pop();
+        if (last != building) {
+            list.set(index, last);
+            last.listIndex = index;
+        }
+        building.listIndex = -1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.nova.healersinc.building;
+
+import com.nova.healersinc.inventory.HerbForm;
+
+/**
+ * What a production building does with herbs: it takes a batch of one herb in the input form
+ * and, some time later, gives the same number of units back in the output form.
+ */
+public enum Recipe {
+    DRYING(HerbForm.FRESH, HerbForm.DRIED, 20, 30f);
+
+    private final HerbForm input;
+    private final HerbForm output;
+    private final int batchSize;
+    private final float seconds;
+
+    Recipe(HerbForm input, HerbForm output, int batchSize, float seconds) {
+        this.input = input;
+        this.output = output;
+        this.batchSize = batchSize;
+        this.seconds = seconds;
+    }
+
+    public HerbForm getInput() {
+        return input;
+    }
+
+    public HerbForm getOutput() {
+        return output;
+    }
+
+    /**
+     * Units processed at once; a job only starts once that many are available.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Seconds a batch takes.
+     */
+    public float getSeconds() {
+        return seconds;
+    }
+}
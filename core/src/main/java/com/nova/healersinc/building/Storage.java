@@ -0,0 +1,70 @@
+package com.nova.healersinc.building;
+
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.Tile;
+import com.nova.healersinc.world.resource.ResourceRegistry;
+
+/**
+ * Holds up to {@link #STACKS} stacks of any items. Filled by the {@link ProductionEngine} with
+ * what production buildings finish; not updated on its own.
+ */
+public class Storage extends Building {
+    /** Stacks one storage holds, each of the stack size of its item */
+    public static final int STACKS = 8;
+
+    // Units per item (see HerbForm#item), kept by the ProductionEngine
+    final int[] amounts = new int[HerbForm.ITEM_COUNT];
+
+    public Storage(Tile tile) {
+        super(tile, BuildingType.STORAGE);
+    }
+
+    @Override
+    public float update(float deltaTime) {
+        // Filled in the engine's batches
+        return PARK;
+    }
+
+    public int getAmount(HerbForm form, HerbType herb) {
+        return amounts[form.item(herb)];
+    }
+
+    /**
+     * Restores the amount, e.g. when loading a saved game. Only before the storage is managed.
+     */
+    public void setAmount(HerbForm form, HerbType herb, int amount) {
+        amounts[form.item(herb)] = Math.max(0, amount);
+    }
+
+    /**
+     * Stacks in use, at the current stack sizes.
+     */
+    public int getUsedStacks() {
+        return usedStacks(ResourceRegistry.get());
+    }
+
+    int usedStacks(ResourceRegistry.Snapshot resources) {
+        int stacks = 0;
+        for (int item = 0; item < amounts.length; item++) {
+            if (amounts[item] > 0) {
+                stacks += (int) Inventory.stacks(amounts[item], stackSize(item, resources));
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * Units of the item that still fit: its free stacks, plus what is left in its last stack.
+     */
+    int room(int item, ResourceRegistry.Snapshot resources) {
+        int stackSize = stackSize(item, resources);
+        int partial = amounts[item] % stackSize == 0 ? 0 : stackSize - amounts[item] % stackSize;
+        return Math.max(0, STACKS - usedStacks(resources)) * stackSize + partial;
+    }
+
+    private static int stackSize(int item, ResourceRegistry.Snapshot resources) {
+        return Math.max(1, resources.getDefinition(HerbForm.herbOf(item)).getProperties().getStackSize());
+    }
+}
@@ -2,20 +2,46 @@ package com.nova.healersinc.game;
 
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.nova.healersinc.building.BuildingManager;
+import com.nova.healersinc.building.ProductionEngine;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.inventory.Inventory;
 import com.nova.healersinc.camera.GameCamera;
 import com.nova.healersinc.interaction.TileInteractionHandler;
 import com.nova.healersinc.render.MapRenderer;
+import com.nova.healersinc.simulation.SimulationService;
 import com.nova.healersinc.ui.GameUI;
 import com.nova.healersinc.ui.LoadingScreen;
 import com.nova.healersinc.ui.TitleScreen;
+import com.nova.healersinc.util.ConfigWatcher;
 import com.nova.healersinc.world.biome.BiomeRegistry;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
 import com.nova.healersinc.world.resource.ResourceRegistry;
+import com.nova.healersinc.world.io.Autosave;
+import com.nova.healersinc.world.io.SaveGame;
+import com.nova.healersinc.world.io.WorldSnapshotCache;
+import com.nova.healersinc.world.map.ChunkedTileStorage;
+import com.nova.healersinc.world.map.DenseTileStorage;
+import com.nova.healersinc.world.map.GenerationProgress;
+import com.nova.healersinc.world.map.MappedTileStorage;
+import com.nova.healersinc.world.map.StreamingTileStorage;
+import com.nova.healersinc.world.map.TileStorage;
 import com.nova.healersinc.world.map.WorldGenerator;
 import com.nova.healersinc.world.map.WorldMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 public class HealersIncGame extends ApplicationAdapter {
 
     private enum GameState {
@@ -24,14 +50,48 @@ public class HealersIncGame extends ApplicationAdapter {
         PLAYING
     }
 
+    private static final long WORLD_SEED = 69161L;
+    private static final int WORLD_WIDTH = 500;
+    private static final int WORLD_HEIGHT = 500;
+    // Streamed worlds are only bounded by coordinates; past ~2^18 tiles float camera positions lose sub-pixel precision
+    private static final int STREAMING_WORLD_SIZE = 1 << 18;
+
+    /** How the tile grid is held in memory, picked once at world creation */
+    private enum WorldStorage {
+        DENSE,
+        CHUNKED,
+        MAPPED,
+        /** Generated chunk by chunk around the camera instead of up front */
+        STREAMING
+    }
+
+    private static final WorldStorage WORLD_STORAGE = WorldStorage.STREAMING;
+    private static final WorldGenerator.BiomeLayout BIOME_LAYOUT = WorldGenerator.BiomeLayout.CHUNKS;
+    /** Update busy simulation ticks on the common fork-join pool; the outcome is the same either way */
+    private static final boolean PARALLEL_BUILDINGS = true;
+    /** Harvests buffered per tick; beyond that they are only added up, which is just as exact */
+    private static final int HARVEST_EVENT_CAPACITY = 8192;
+    private static final String MAPPED_WORLD_PATH = "worlds/world.tiles";
+    private static final String WORLD_CACHE_DIR = "cache/worlds";
+    private static final String SAVE_PATH = "saves/colony.sav";
+    private static final String JOURNAL_PATH = "saves/colony.journal";
+
     private GameState gameState = GameState.TITLE;
 
     private WorldMap worldMap;
+    private StreamingTileStorage streamingStorage;
+    private Autosave autosave;
+    private ConfigWatcher configWatcher;
     private GameCamera gameCamera;
     private MapRenderer mapRenderer;
     private GameUI gameUI;
     private TileInteractionHandler tileInteractionHandler;
     private BuildingManager buildingManager;
+    private RegrowthScheduler regrowthScheduler;
+    private HarvestEvents harvestEvents;
+    private Inventory inventory;
+    private ProductionEngine production;
+    private SimulationService simulation;
 
     private TitleScreen titleScreen;
     private LoadingScreen loadingScreen;
@@ -41,22 +101,33 @@ public class HealersIncGame extends ApplicationAdapter {
     private boolean isLoadingStartet = false;
     private int loadingStep = 0;
     private static final int NUM_LOADING_STEPS = 5;
+    private WorldLoader worldLoader;
+    // Share of the loading bar taken by world generation, the GL steps fill the rest
+    private static final float WORLD_PROGRESS_SHARE = 0.8f;
 
     @Override
     public void create() {
 
         ResourceRegistry.init();
         BiomeRegistry.init();
+        configWatcher = createConfigWatcher();
 
         // Create the title screen first
         titleScreen = new TitleScreen(new TitleScreen.Listener() {
             @Override
             public void onStartGame() {
                 if (gameState == GameState.TITLE) {
-                    transitionToLoading();
+                    transitionToLoading(null);
                 }
             }
-        });
+
+            @Override
+            public void onContinueGame() {
+                if (gameState == GameState.TITLE) {
+                    transitionToLoading(getSaveFile());
+                }
+            }
+        }, getSaveFile().isFile());
 
         // IMPORTANT: assign to the field, not a new local variable
         inputMultiplexer = new InputMultiplexer();
@@ -68,18 +139,89 @@ public class HealersIncGame extends ApplicationAdapter {
         titleScreen.resize(w, h);
     }
 
-    private void transitionToLoading() {
+    /**
+     * Reloads the biome and resource configs whenever they are saved, if they live on disk
+     * (running from the assets folder during development). Packaged builds read them from the
+     * jar and get no watcher.
+     */
+    private ConfigWatcher createConfigWatcher() {
+        FileHandle biomes = Gdx.files.internal(BiomeRegistry.CONFIG_PATH);
+        FileHandle resources = Gdx.files.internal(ResourceRegistry.CONFIG_PATH);
+        if (biomes.file() == null || !biomes.file().isFile() || resources.file() == null || !resources.file().isFile()) {
+            return null;
+        }
+
+        try {
+            ConfigWatcher watcher = new ConfigWatcher();
+            watcher.watch(biomes, new ConfigWatcher.Reloader() {
+                @Override
+                public void reload(FileHandle file) {
+                    BiomeRegistry.reload(file);
+                }
+            });
+            watcher.watch(resources, new ConfigWatcher.Reloader() {
+                @Override
+                public void reload(FileHandle file) {
+                    ResourceRegistry.reload(file);
+                }
+            });
+            watcher.start();
+            return watcher;
+        } catch (IOException e) {
+            Gdx.app.error("CONFIG", "Config files will not be reloaded", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param saveFile saved game to continue, or null to start a new world
+     */
+    private void transitionToLoading(File saveFile) {
         gameState = GameState.LOADING;
-        loadingScreen = new LoadingScreen();
+        loadingScreen = new LoadingScreen(new LoadingScreen.Listener() {
+            @Override
+            public void onCancel() {
+                cancelLoading();
+            }
+        });
+
+        inputMultiplexer.clear();
+        inputMultiplexer.addProcessor(loadingScreen.getInputProcessor());
 
         int w = Gdx.graphics.getWidth();
         int h = Gdx.graphics.getHeight();
         loadingScreen.resize(w, h);
 
+        // The world is built on its own thread so the loading screen keeps rendering
+        worldLoader = new WorldLoader(saveFile);
+        Thread loaderThread = new Thread(worldLoader, "world-loader");
+        loaderThread.setDaemon(true);
+        loaderThread.start();
+
         isLoadingStartet = true;
         loadingStep = 0;
     }
 
+    /**
+     * Aborts world generation and returns to the title screen.
+     * Only possible while the world is generated; the remaining steps take a frame each.
+     */
+    private void cancelLoading() {
+        if (gameState != GameState.LOADING || loadingStep != 0) {
+            return;
+        }
+
+        worldLoader.cancel();
+        worldLoader = null;
+
+        gameState = GameState.TITLE;
+        loadingScreen.dispose();
+        loadingScreen = null;
+
+        inputMultiplexer.clear();
+        inputMultiplexer.addProcessor(titleScreen.getInputProcessor());
+    }
+
     private void updateLoading() {
         if (!isLoadingStartet) {
             isLoadingStartet = true;
@@ -89,31 +231,71 @@ public class HealersIncGame extends ApplicationAdapter {
         // Simulate loading steps
         switch (loadingStep) {
             case 0:
-                loadingScreen.setStatus("Generating world...");
-                loadingScreen.setProgress(0.2f);
-                WorldGenerator generator = new WorldGenerator(69161L);
-                worldMap = generator.generate(500, 500);
+                if (!worldLoader.isDone()) {
+                    GenerationProgress progress = worldLoader.progress;
+                    if (worldLoader.saveFile != null) {
+                        loadingScreen.setStatus("Loading saved colony...");
+                    } else {
+                        loadingScreen.setStatus(worldLoader.readingCache ? "Loading cached world..." : describeProgress(progress));
+                    }
+                    loadingScreen.setProgress(WORLD_PROGRESS_SHARE * progress.getProgress());
+                    break;
+                }
+
+                if (worldLoader.error != null) {
+                    throw new GdxRuntimeException("World generation failed", worldLoader.error);
+                }
+                worldMap = worldLoader.worldMap;
+                buildingManager = worldLoader.buildingManager;
+                regrowthScheduler = worldLoader.regrowthScheduler;
+                harvestEvents = worldLoader.harvestEvents;
+                inventory = worldLoader.inventory;
+                production = worldLoader.production;
+                // From here on every change to the map is recorded for the next autosave
+                if (worldLoader.save != null) {
+                    autosave = new Autosave(getSaveFile(), getJournalFile(), worldLoader.save, worldMap, production);
+                } else {
+                    autosave = new Autosave(getSaveFile(), getJournalFile(),
+                        new SaveGame.Header(worldLoader.seed, worldLoader.layout, worldMap.getWidth(), worldMap.getHeight()),
+                        worldMap, production);
+                }
+                if (worldMap.getStorage() instanceof StreamingTileStorage) {
+                    // Chunks are generated once the camera looks at them
+                    streamingStorage = (StreamingTileStorage) worldMap.getStorage();
+                    streamingStorage.setChunkListener(new StreamingTileStorage.ChunkListener() {
+                        @Override
+                        public void chunkLoaded(int chunkX, int chunkY) {
+                            buildingManager.onChunkLoaded(chunkX, chunkY);
+                        }
+                    });
+                }
                 loadingStep++;
                 break;
 
             case 1:
                 loadingScreen.setStatus("Initializing camera... ");
-                loadingScreen.setProgress(0.4f);
+                loadingScreen.setProgress(0.85f);
                 gameCamera = new GameCamera(640, 480, worldMap);
+                if (worldLoader.save != null) {
+                    OrthographicCamera camera = gameCamera.getCamera();
+                    camera.position.set(worldLoader.save.getCameraX(), worldLoader.save.getCameraY(), 0);
+                    camera.zoom = worldLoader.save.getCameraZoom();
+                    camera.update();
+                }
+                worldLoader = null;
                 loadingStep++;
                 break;
 
             case 2:
                 loadingScreen.setStatus("Loading renderer...");
-                loadingScreen.setProgress(0.6f);
+                loadingScreen.setProgress(0.9f);
                 mapRenderer = new MapRenderer();
-                buildingManager = new BuildingManager(worldMap);
                 loadingStep++;
                 break;
 
             case 3:
                 loadingScreen.setStatus("Setting up UI...");
-                loadingScreen.setProgress(0.8f);
+                loadingScreen.setProgress(0.95f);
                 gameUI = new GameUI();
                 tileInteractionHandler = new TileInteractionHandler(worldMap, gameCamera, gameUI, buildingManager);
                 loadingStep++;
@@ -125,6 +307,7 @@ public class HealersIncGame extends ApplicationAdapter {
 
                 // Rebuild input chain: Stage first, then tile interaction, then camera pan/zoom
                 inputMultiplexer.clear();
+                inputMultiplexer.addProcessor(createGameInput());
                 inputMultiplexer.addProcessor(gameUI.getStage());
                 inputMultiplexer.addProcessor(tileInteractionHandler);
                 inputMultiplexer.addProcessor(gameCamera.getInputProcessor());
@@ -139,6 +322,12 @@ public class HealersIncGame extends ApplicationAdapter {
 
             case 5:
                 gameState = GameState.PLAYING;
+                // Buildings are updated at a fixed rate from here on, whatever the frame rate
+                if (PARALLEL_BUILDINGS) {
+                    buildingManager.setPool(ForkJoinPool.commonPool());
+                }
+                simulation = new SimulationService(worldMap, buildingManager, regrowthScheduler, harvestEvents, inventory, production);
+                simulation.start();
                 if (loadingScreen != null) {
                     loadingScreen.dispose();
                     loadingScreen = null;
@@ -147,6 +336,207 @@ public class HealersIncGame extends ApplicationAdapter {
         }
     }
 
+    private static File getSaveFile() {
+        return Gdx.files.local(SAVE_PATH).file();
+    }
+
+    private static File getJournalFile() {
+        return Gdx.files.local(JOURNAL_PATH).file();
+    }
+
+    /**
+     * Game wide shortcuts: F5 saves the colony.
+     */
+    private InputAdapter createGameInput() {
+        return new InputAdapter() {
+            @Override
+            public boolean keyDown(int keycode) {
+                if (keycode == Input.Keys.F5) {
+                    saveGame();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private void saveGame() {
+        OrthographicCamera camera = gameCamera.getCamera();
+        autosave.saveNow(camera.position.x, camera.position.y, camera.zoom);
+        gameUI.setDebugStatusText("Colony saved");
+    }
+
+    private static String describeProgress(GenerationProgress progress) {
+        String phase;
+        switch (progress.getPhase()) {
+            case BIOMES:
+                phase = "Generating biomes";
+                break;
+            case HERB_CLUSTERS:
+                phase = "Growing herb clusters";
+                break;
+            default:
+                phase = "Storing tiles";
+                break;
+        }
+        return phase + "... (" + progress.getRegionsDone() + "/" + progress.getRegionCount() + " regions)";
+    }
+
+    /**
+     * Creates and generates the world, or restores a saved one, off the render thread.
+     * Nothing in here may touch GL.
+     */
+    private final class WorldLoader implements Runnable {
+        final GenerationProgress progress = new GenerationProgress();
+        final File saveFile;
+
+        // Written by the loader thread before done is set
+        private SaveGame save;
+        private long seed = WORLD_SEED;
+        private WorldGenerator.BiomeLayout layout = BIOME_LAYOUT;
+        private WorldMap worldMap;
+        private BuildingManager buildingManager;
+        private RegrowthScheduler regrowthScheduler;
+        private HarvestEvents harvestEvents;
+        private Inventory inventory;
+        private ProductionEngine production;
+        private Throwable error;
+        private volatile boolean done;
+        private volatile boolean readingCache;
+
+        WorldLoader(File saveFile) {
+            this.saveFile = saveFile;
+        }
+
+        @Override
+        public void run() {
+            WorldMap map = null;
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                if (saveFile != null) {
+                    map = loadSave();
+                } else {
+                    WorldGenerator generator = new WorldGenerator(seed, layout);
+                    map = new WorldMap(createWorldStorage(generator));
+                    if (!(map.getStorage() instanceof StreamingTileStorage)) {
+                        loadOrGenerate(generator, map, pool);
+                    }
+                }
+                RegrowthScheduler regrowth = new RegrowthScheduler(SimulationService.TICK_SECONDS);
+                HarvestEvents events = new HarvestEvents(HARVEST_EVENT_CAPACITY);
+                Inventory stock = new Inventory();
+                ProductionEngine engine = new ProductionEngine(stock, SimulationService.TICK_SECONDS);
+                BuildingManager manager = new BuildingManager(map, regrowth, events, engine);
+                if (save != null) {
+                    // Storages bring their own contents once their chunks are installed
+                    engine.restoreLooseStock(save.getStock());
+                }
+
+                synchronized (this) {
+                    if (!progress.isCancelled()) {
+                        worldMap = map;
+                        buildingManager = manager;
+                        regrowthScheduler = regrowth;
+                        harvestEvents = events;
+                        inventory = stock;
+                        production = engine;
+                        map = null;
+                    }
+                }
+            } catch (CancellationException e) {
+                // Nobody is waiting for this world anymore
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                pool.shutdown();
+                if (map != null) {
+                    // Let regions that were still running finish before releasing the storage
+                    try {
+                        pool.awaitTermination(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    map.dispose();
+                }
+                done = true;
+            }
+        }
+
+        /**
+         * Opens the save and restores the chunks around its camera position right away; the
+         * other saved chunks follow in the background. Saved worlds always stream their chunks,
+         * whatever storage they were created with.
+         */
+        private WorldMap loadSave() throws IOException {
+            save = SaveGame.open(saveFile, getJournalFile());
+            SaveGame.Header header = save.getHeader();
+            seed = header.getSeed();
+            layout = header.getLayout();
+            if (header.getGeneratorVersion() != WorldGenerator.VERSION) {
+                Gdx.app.log("SAVE", "Save was made with world generator version " + header.getGeneratorVersion()
+                    + ", unchanged chunks may look different now");
+            }
+
+            WorldGenerator generator = new WorldGenerator(seed, layout);
+            StreamingTileStorage storage = new StreamingTileStorage(header.getWidth(), header.getHeight(), generator);
+            WorldMap map = new WorldMap(storage);
+
+            // The camera does not exist yet; the window size in world units is a safe upper bound
+            float halfWidth = Gdx.graphics.getWidth() * save.getCameraZoom() * 0.5f;
+            float halfHeight = Gdx.graphics.getHeight() * save.getCameraZoom() * 0.5f;
+            storage.restore(save.savedChunks(map),
+                (int) ((save.getCameraX() - halfWidth) / WorldMap.TILE_SIZE),
+                (int) ((save.getCameraY() - halfHeight) / WorldMap.TILE_SIZE),
+                (int) ((save.getCameraX() + halfWidth) / WorldMap.TILE_SIZE) + 1,
+                (int) ((save.getCameraY() + halfHeight) / WorldMap.TILE_SIZE) + 1);
+            return map;
+        }
+
+        /**
+         * Reads the world from the snapshot cache if its inputs are unchanged, otherwise
+         * generates it and caches the result for the next start.
+         */
+        private void loadOrGenerate(WorldGenerator generator, WorldMap map, ForkJoinPool pool) {
+            long cacheKey = WorldSnapshotCache.key(seed, map.getWidth(), map.getHeight(), layout,
+                Gdx.files.internal(BiomeRegistry.CONFIG_PATH), Gdx.files.internal(ResourceRegistry.CONFIG_PATH));
+            WorldSnapshotCache cache = new WorldSnapshotCache(Gdx.files.local(WORLD_CACHE_DIR).file());
+
+            readingCache = true;
+            boolean cached = cache.load(cacheKey, map, pool);
+            readingCache = false;
+
+            if (!cached) {
+                generator.generateParallel(map, pool, progress);
+                cache.save(cacheKey, map, pool);
+            }
+        }
+
+        synchronized void cancel() {
+            progress.cancel();
+        }
+
+        boolean isDone() {
+            return done;
+        }
+    }
+
+    private TileStorage createWorldStorage(WorldGenerator generator) {
+        switch (WORLD_STORAGE) {
+            case DENSE:
+                return new DenseTileStorage(WORLD_WIDTH, WORLD_HEIGHT);
+            case MAPPED:
+                try {
+                    return MappedTileStorage.create(Gdx.files.local(MAPPED_WORLD_PATH).file(), WORLD_WIDTH, WORLD_HEIGHT);
+                } catch (IOException e) {
+                    throw new GdxRuntimeException("Could not create world file: " + MAPPED_WORLD_PATH, e);
+                }
+            case STREAMING:
+                return new StreamingTileStorage(STREAMING_WORLD_SIZE, STREAMING_WORLD_SIZE, generator);
+            default:
+                return new ChunkedTileStorage(WORLD_WIDTH, WORLD_HEIGHT);
+        }
+    }
+
     @Override
     public void render() {
         float delta = Gdx.graphics.getDeltaTime();
@@ -164,7 +554,14 @@ public class HealersIncGame extends ApplicationAdapter {
             return;
         }
 
+        if (simulation.getError() != null) {
+            throw new GdxRuntimeException("Simulation failed", simulation.getError());
+        }
+
         gameCamera.update(delta);
+        if (streamingStorage != null) {
+            updateStreaming();
+        }
         tileInteractionHandler.updateHover();
 
         Gdx.gl.glClearColor(0, 0, 0, 1);
@@ -172,11 +569,28 @@ public class HealersIncGame extends ApplicationAdapter {
 
         gameCamera.getViewport().apply();
 
-        buildingManager.update(delta);
-        mapRenderer.render(worldMap, gameCamera.getCamera());
+        OrthographicCamera camera = gameCamera.getCamera();
+        autosave.update(delta, camera.position.x, camera.position.y, camera.zoom);
+        mapRenderer.render(worldMap, camera, simulation.getTime());
         gameUI.render();
     }
 
+    /**
+     * Tells the streaming storage which tiles the camera currently sees.
+     */
+    private void updateStreaming() {
+        OrthographicCamera camera = gameCamera.getCamera();
+        float halfWidth = camera.viewportWidth * camera.zoom * 0.5f;
+        float halfHeight = camera.viewportHeight * camera.zoom * 0.5f;
+
+        streamingStorage.update(
+            (int) ((camera.position.x - halfWidth) / WorldMap.TILE_SIZE),
+            (int) ((camera.position.y - halfHeight) / WorldMap.TILE_SIZE),
+            (int) ((camera.position.x + halfWidth) / WorldMap.TILE_SIZE) + 1,
+            (int) ((camera.position.y + halfHeight) / WorldMap.TILE_SIZE) + 1
+        );
+    }
+
     @Override
     public void resize(int width, int height) {
         if (titleScreen != null) {
@@ -199,5 +613,16 @@ public class HealersIncGame extends ApplicationAdapter {
         if (gameUI != null) gameUI.dispose();
         if (titleScreen != null) titleScreen.dispose();
         if (loadingScreen != null) loadingScreen.dispose();
+        // Stop ticking before the final save
+        if (simulation != null) simulation.dispose();
+        if (autosave != null) {
+            if (gameCamera != null) {
+                OrthographicCamera camera = gameCamera.getCamera();
+                autosave.saveNow(camera.position.x, camera.position.y, camera.zoom);
+            }
+            autosave.dispose();
+        }
+        if (worldMap != null) worldMap.dispose();
+        if (configWatcher != null) configWatcher.dispose();
     }
 }
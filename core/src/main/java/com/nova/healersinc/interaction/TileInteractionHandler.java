@@ -5,6 +5,8 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.building.BuildingIndex;
 import com.nova.healersinc.building.BuildingManager;
 import com.nova.healersinc.building.BuildingType;
 import com.nova.healersinc.camera.GameCamera;
@@ -17,7 +19,7 @@ import com.nova.healersinc.world.resource.ResourceNode;
 
 /**
  * Handles tile hover detection for displaying tile information tooltips
- * and simple debug building placement.
+ * and simple debug building placement and demolition.
  * Converts screen coordinates to tile coordinates.
  */
 public class TileInteractionHandler extends InputAdapter {
@@ -31,6 +33,19 @@ public class TileInteractionHandler extends InputAdapter {
     // Debug building placement: current building type to place (null = none)
     private BuildingType selectedBuildingType = null;
 
+    // Debug demolition: whether a drag selects a box to demolish, and the tile it started on
+    // while one is being dragged
+    private boolean demolishMode = false;
+    private Tile boxStart = null;
+    private int boxedBuildings;
+    private final BuildingIndex.Visitor boxCounter = new BuildingIndex.Visitor() {
+        @Override
+        public boolean visit(Building building) {
+            boxedBuildings++;
+            return true;
+        }
+    };
+
     public TileInteractionHandler(WorldMap worldMap,
                                   GameCamera gameCamera,
                                   GameUI gameUI,
@@ -84,12 +99,8 @@ public class TileInteractionHandler extends InputAdapter {
         int tileX = (int) Math.floor(unprojected.x / WorldMap.TILE_SIZE);
         int tileY = (int) Math.floor(unprojected.y / WorldMap.TILE_SIZE);
 
-        if (tileX >= 0 && tileX < worldMap.getWidth()
-            && tileY >= 0 && tileY < worldMap.getHeight()) {
-            return worldMap.getTile(tileX, tileY);
-        }
-
-        return null;
+        // Tiles are views, so this never forces a chunk to be allocated
+        return worldMap.getTile(tileX, tileY);
     }
 
     private String buildTooltipText(Tile tile) {
@@ -113,6 +124,10 @@ public class TileInteractionHandler extends InputAdapter {
     }
 
     private String formatBiomeName(BiomeType biome) {
+        if (biome == null) {
+            return "Generating...";
+        }
+
         String name = biome.name().replace('_', ' ');
         StringBuilder result = new StringBuilder();
         boolean capitalizeNext = true;
@@ -138,21 +153,42 @@ public class TileInteractionHandler extends InputAdapter {
     }
 
     /**
-     * Debug control: toggle Harvester placement mode with the H key.
+     * Debug control: toggle placement mode for Harvesters with the H key, Drying Racks with R
+     * and Storages with T, and demolition mode with X.
      */
     @Override
     public boolean keyDown(int keycode) {
-        if (keycode == Input.Keys.H) {
-            if (selectedBuildingType == BuildingType.HARVESTER) {
+        switch (keycode) {
+            case Input.Keys.H:
+                togglePlacement(BuildingType.HARVESTER);
+                return true;
+            case Input.Keys.R:
+                togglePlacement(BuildingType.DRYING_RACK);
+                return true;
+            case Input.Keys.T:
+                togglePlacement(BuildingType.STORAGE);
+                return true;
+            case Input.Keys.X:
                 selectedBuildingType = null;
-                gameUI.setDebugStatusText("Harvester placement: OFF");
-            } else {
-                selectedBuildingType = BuildingType.HARVESTER;
-                gameUI.setDebugStatusText("Harvester placement: ON (click on a tile)");
-            }
-            return true;
+                demolishMode = !demolishMode;
+                boxStart = null;
+                gameUI.setDebugStatusText(demolishMode ? "Demolition: ON (drag a box)" : "Demolition: OFF");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void togglePlacement(BuildingType type) {
+        demolishMode = false;
+        boxStart = null;
+        if (selectedBuildingType == type) {
+            selectedBuildingType = null;
+            gameUI.setDebugStatusText(type.getDisplayName() + " placement: OFF");
+        } else {
+            selectedBuildingType = type;
+            gameUI.setDebugStatusText(type.getDisplayName() + " placement: ON (click on a tile)");
         }
-        return false;
     }
 
     /**
@@ -176,6 +212,12 @@ public class TileInteractionHandler extends InputAdapter {
             return false;
         }
 
+        if (demolishMode) {
+            boxStart = tile;
+            updateBox(tile);
+            return true;
+        }
+
         // If we are in building placement mode, try to place a building
         if (selectedBuildingType != null) {
             boolean placed = buildingManager.placeBuilding(tile, selectedBuildingType);
@@ -192,4 +234,52 @@ public class TileInteractionHandler extends InputAdapter {
         // No building selected: no click action for now
         return false;
     }
+
+    /**
+     * Grows the demolition box while it is dragged, showing how many buildings it holds.
+     */
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        if (boxStart == null) {
+            return false;
+        }
+
+        Tile tile = getTileAtScreen(screenX, screenY);
+        if (tile != null) {
+            updateBox(tile);
+        }
+        return true;
+    }
+
+    /**
+     * Demolishes every building in the box when the drag ends.
+     */
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        if (boxStart == null || button != Input.Buttons.LEFT) {
+            return false;
+        }
+
+        Tile tile = getTileAtScreen(screenX, screenY);
+        Tile end = tile != null ? tile : boxStart;
+        int removed = buildingManager.removeBuildings(null,
+            Math.min(boxStart.x, end.x), Math.min(boxStart.y, end.y),
+            Math.max(boxStart.x, end.x), Math.max(boxStart.y, end.y));
+        Gdx.app.log("BUILDING", "Demolished " + removed + " buildings from (" + boxStart.x + ", " + boxStart.y
+            + ") to (" + end.x + ", " + end.y + ")");
+        gameUI.setDebugStatusText("Demolition: ON, demolished " + removed + " buildings");
+        boxStart = null;
+        return true;
+    }
+
+    private void updateBox(Tile end) {
+        int width = Math.abs(end.x - boxStart.x) + 1;
+        int height = Math.abs(end.y - boxStart.y) + 1;
+        boxedBuildings = 0;
+        // Placement and removal happen on this thread, so the index holds still while it is read
+        buildingManager.getIndex().forEachInBox(null,
+            Math.min(boxStart.x, end.x), Math.min(boxStart.y, end.y),
+            Math.max(boxStart.x, end.x), Math.max(boxStart.y, end.y), boxCounter);
+        gameUI.setDebugStatusText("Demolition: " + width + "x" + height + " tiles, " + boxedBuildings + " buildings");
+    }
 }
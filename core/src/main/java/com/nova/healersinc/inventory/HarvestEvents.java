@@ -0,0 +1,103 @@
+package com.nova.healersinc.inventory;
+
+import com.nova.healersinc.world.herb.HerbType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * What the buildings harvested during a tick, on its way into the {@link Inventory}. Harvesters
+ * {@link #publish} into a buffer allocated once up front, from any number of threads at once:
+ * each event claims its slot with one atomic increment, nothing is allocated and nothing
+ * locks. Should a tick harvest more than the buffer holds, the rest is only added up per herb,
+ * so no unit is ever lost.
+ * <p>
+ * The simulation {@link #drainTo drains} it at the end of every tick, once all building updates
+ * are finished, and adds the sums to the inventory in one batch.
+ */
+public class HarvestEvents {
+
+    private static final HerbType[] HERBS = HerbType.values();
+
+    // Each event is herb ordinal << 32 | amount
+    private final long[] events;
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicLongArray overflow = new AtomicLongArray(HERBS.length);
+
+    // Sums of the last drain, and of all drains since the last report
+    private final long[] drained = new long[HERBS.length];
+    private final long[] sinceReport = new long[HERBS.length];
+    private long eventsSinceReport;
+    private long overflowSinceReport;
+
+    /**
+     * @param capacity events buffered per tick before they are only added up
+     */
+    public HarvestEvents(int capacity) {
+        this.events = new long[capacity];
+    }
+
+    /**
+     * Records a harvest. Safe to call from buildings updated in parallel.
+     */
+    public void publish(HerbType herb, int amount) {
+        int slot = claimed.getAndIncrement();
+        if (slot < events.length) {
+            events[slot] = (long) herb.ordinal() << 32 | amount;
+        } else {
+            overflow.addAndGet(herb.ordinal(), amount);
+        }
+    }
+
+    /**
+     * Adds everything published since the last drain to the inventory as fresh herbs, one call
+     * per herb. Must not run while anything publishes.
+     */
+    public void drainTo(Inventory inventory) {
+        int count = claimed.getAndSet(0);
+        int buffered = Math.min(count, events.length);
+        for (int i = 0; i < buffered; i++) {
+            long event = events[i];
+            drained[(int) (event >>> 32)] += (int) event;
+        }
+        for (int ordinal = 0; ordinal < HERBS.length; ordinal++) {
+            drained[ordinal] += overflow.getAndSet(ordinal, 0);
+        }
+
+        for (int ordinal = 0; ordinal < HERBS.length; ordinal++) {
+            if (drained[ordinal] != 0) {
+                inventory.add(HerbForm.FRESH, HERBS[ordinal], drained[ordinal]);
+                sinceReport[ordinal] += drained[ordinal];
+                drained[ordinal] = 0;
+            }
+        }
+        eventsSinceReport += count;
+        overflowSinceReport += count - buffered;
+    }
+
+    /**
+     * Sums up what was drained since the last report, e.g. "412 harvests: CHAMOMILE 160, MINT
+     * 120, ECHINACEA 132", and starts over. Null if nothing was harvested since.
+     */
+    public String report() {
+        if (eventsSinceReport == 0) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(eventsSinceReport).append(" harvests:");
+        for (int ordinal = 0; ordinal < HERBS.length; ordinal++) {
+            if (sinceReport[ordinal] != 0) {
+                sb.append(' ').append(HERBS[ordinal].name()).append(' ').append(sinceReport[ordinal]).append(',');
+                sinceReport[ordinal] = 0;
+            }
+        }
+        sb.setLength(sb.length() - 1);
+        if (overflowSinceReport > 0) {
+            sb.append(" (").append(overflowSinceReport).append(" past the buffer)");
+        }
+        eventsSinceReport = 0;
+        overflowSinceReport = 0;
+        return sb.toString();
+    }
+}
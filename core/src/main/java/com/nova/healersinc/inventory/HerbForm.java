@@ -0,0 +1,35 @@
+package com.nova.healersinc.inventory;
+
+import com.nova.healersinc.world.herb.HerbType;
+
+/**
+ * The states a herb goes through on its way through the colony. A herb in one form is one item;
+ * items are numbered densely ({@link #item}) so per-item counts fit flat primitive arrays.
+ */
+public enum HerbForm {
+    /** As it comes off the harvester */
+    FRESH,
+    /** Off the drying rack */
+    DRIED;
+
+    private static final HerbType[] HERBS = HerbType.values();
+    private static final HerbForm[] FORMS = values();
+
+    /** Number of items, herbs times forms */
+    public static final int ITEM_COUNT = FORMS.length * HERBS.length;
+
+    /**
+     * Index of the herb in this form among all items, in [0, {@link #ITEM_COUNT}).
+     */
+    public int item(HerbType herb) {
+        return ordinal() * HERBS.length + herb.ordinal();
+    }
+
+    public static HerbForm formOf(int item) {
+        return FORMS[item / HERBS.length];
+    }
+
+    public static HerbType herbOf(int item) {
+        return HERBS[item % HERBS.length];
+    }
+}
@@ -0,0 +1,71 @@
+package com.nova.healersinc.inventory;
+
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.resource.ResourceRegistry;
+
+/**
+ * The colony's stock of resources: a unit count per item, that is per {@link HerbType} in each
+ * {@link HerbForm} (herbs are the only resources so far). Fresh herbs are the harvest waiting for
+ * a drying rack, dried herbs the ones carried into storage. Units are stored in stacks of the
+ * resource's configured stack size, so a partly filled stack still takes up a whole one.
+ * <p>
+ * The simulation changes it in batches once per tick: harvests drained from
+ * {@link HarvestEvents}, then whatever the production buildings took and stored. The render
+ * thread may read it at any time.
+ */
+public class Inventory {
+
+    private final long[] amounts = new long[HerbForm.ITEM_COUNT];
+
+    public synchronized void add(HerbForm form, HerbType herb, long amount) {
+        amounts[form.item(herb)] += amount;
+    }
+
+    /**
+     * Takes up to the given amount and returns how much was there to take.
+     */
+    public synchronized long remove(HerbForm form, HerbType herb, long amount) {
+        int item = form.item(herb);
+        long removed = Math.min(amount, amounts[item]);
+        amounts[item] -= removed;
+        return removed;
+    }
+
+    public synchronized long getAmount(HerbForm form, HerbType herb) {
+        return amounts[form.item(herb)];
+    }
+
+    /**
+     * Restores the amount, e.g. when loading a saved game.
+     */
+    public synchronized void setAmount(HerbForm form, HerbType herb, long amount) {
+        amounts[form.item(herb)] = Math.max(0, amount);
+    }
+
+    /**
+     * Stacks the herb in that form takes up, at its current stack size.
+     */
+    public long getStacks(HerbForm form, HerbType herb) {
+        return stacks(getAmount(form, herb), ResourceRegistry.getDefinition(herb).getProperties().getStackSize());
+    }
+
+    /**
+     * Stacks all items take up together.
+     */
+    public synchronized long getTotalStacks() {
+        ResourceRegistry.Snapshot resources = ResourceRegistry.get();
+        long stacks = 0;
+        for (int item = 0; item < amounts.length; item++) {
+            stacks += stacks(amounts[item], resources.getDefinition(HerbForm.herbOf(item)).getProperties().getStackSize());
+        }
+        return stacks;
+    }
+
+    /**
+     * Stacks the given number of units take up, a partly filled one counting as whole.
+     */
+    public static long stacks(long amount, int stackSize) {
+        int size = Math.max(1, stackSize);
+        return (amount + size - 1) / size;
+    }
+}
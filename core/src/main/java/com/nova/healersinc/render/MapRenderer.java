@@ -6,13 +6,15 @@ import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Rectangle;
 import com.nova.healersinc.building.Building;
 import com.nova.healersinc.building.BuildingType;
-import com.nova.healersinc.world.biome.BiomeDefinition;
+import com.nova.healersinc.building.Harvester;
+import com.nova.healersinc.building.ProductionBuilding;
+import com.nova.healersinc.building.Storage;
 import com.nova.healersinc.world.biome.BiomeRegistry;
 import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.herb.HerbNode;
 import com.nova.healersinc.world.herb.HerbType;
-import com.nova.healersinc.world.map.Tile;
 import com.nova.healersinc.world.map.WorldMap;
-import com.nova.healersinc.world.resource.ResourceDefinition;
+import com.nova.healersinc.world.resource.ResourceNode;
 import com.nova.healersinc.world.resource.ResourceRegistry;
 
 public class MapRenderer {
@@ -23,6 +25,13 @@ public class MapRenderer {
     private final Rectangle visibleArea;
     private final Color tempColor;
 
+    // Taken once per frame, so per-tile lookups are array reads and a config reload never
+    // lands in the middle of a frame
+    private BiomeRegistry.Snapshot biomes;
+    private ResourceRegistry.Snapshot resources;
+    // Simulated time of the frame, for drawing time based state in between simulation ticks
+    private double simulationTime;
+
     public MapRenderer() {
         this.shapeRenderer = new ShapeRenderer();
         this.visibleArea = new Rectangle();
@@ -31,8 +40,15 @@ public class MapRenderer {
 
     /**
      * Main render method - orchestrates the rendering pipeline
+     *
+     * @param simulationTime simulated seconds, including the part of a tick that passed since the
+     *                       last one, so time based state moves smoothly although the simulation
+     *                       runs at a lower rate
      */
-    public void render(WorldMap worldMap, OrthographicCamera camera) {
+    public void render(WorldMap worldMap, OrthographicCamera camera, double simulationTime) {
+        biomes = BiomeRegistry.get();
+        resources = ResourceRegistry.get();
+        this.simulationTime = simulationTime;
         shapeRenderer.setProjectionMatrix(camera.combined);
 
         // Calculate visible tile bounds for culling
@@ -44,38 +60,77 @@ public class MapRenderer {
 
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
-        // Render only visible tiles
-        for (int x = startX; x < endX; x++) {
-            for (int y = startY; y < endY; y++) {
-                Tile tile = worldMap.getTile(x, y);
-                renderTile(tile, x, y);
+        // Cull per chunk: uniform chunks are drawn as one rect, the rest tile by tile
+        int startChunkX = startX / WorldMap.CHUNK_SIZE;
+        int startChunkY = startY / WorldMap.CHUNK_SIZE;
+        int endChunkX = (endX + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE;
+        int endChunkY = (endY + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE;
+
+        for (int cy = startChunkY; cy < endChunkY; cy++) {
+            int fromY = Math.max(startY, cy * WorldMap.CHUNK_SIZE);
+            int toY = Math.min(endY, (cy + 1) * WorldMap.CHUNK_SIZE);
+
+            for (int cx = startChunkX; cx < endChunkX; cx++) {
+                int fromX = Math.max(startX, cx * WorldMap.CHUNK_SIZE);
+                int toX = Math.min(endX, (cx + 1) * WorldMap.CHUNK_SIZE);
+
+                // Chunks that are still being generated are drawn in the placeholder color
+                if (!worldMap.isChunkLoaded(cx, cy)) {
+                    renderUniformArea(null, fromX, fromY, toX, toY);
+                    continue;
+                }
+
+                if (worldMap.isUniformChunk(cx, cy)) {
+                    renderUniformArea(worldMap.getBiome(fromX, fromY), fromX, fromY, toX, toY);
+                    continue;
+                }
+
+                // Row by row to match the storage layout
+                for (int y = fromY; y < toY; y++) {
+                    for (int x = fromX; x < toX; x++) {
+                        renderTile(worldMap, x, y);
+                    }
+                }
             }
         }
 
         shapeRenderer.end();
     }
 
+    /**
+     * Renders a block of tiles that share one biome and have no overlays
+     */
+    private void renderUniformArea(BiomeType biome, int fromX, int fromY, int toX, int toY) {
+        shapeRenderer.setColor(getBiomeColor(biome));
+        shapeRenderer.rect(
+            fromX * WorldMap.TILE_SIZE,
+            fromY * WorldMap.TILE_SIZE,
+            (toX - fromX) * WorldMap.TILE_SIZE,
+            (toY - fromY) * WorldMap.TILE_SIZE
+        );
+    }
+
     /**
      * Renders a single tile (biome base + resource overlay + building overlay)
      */
-    private void renderTile(Tile tile, int x, int y) {
+    private void renderTile(WorldMap worldMap, int x, int y) {
         float drawX = x * WorldMap.TILE_SIZE;
         float drawY = y * WorldMap.TILE_SIZE;
 
         // Render base biome
-        renderBiomeBase(tile.getBiome(), drawX, drawY);
+        renderBiomeBase(worldMap.getBiome(x, y), drawX, drawY);
 
         // Render resource overlay if present
-        if (tile.hasResourceNode()) {
-            if (tile.isHerbNode()) {
-                renderHerbOverlay(tile.getHerbNode().getType(), drawX, drawY);
-            }
-            // Future: add other resource types here (minerals, water, etc.)
+        ResourceNode<?> resourceNode = worldMap.getResourceNode(x, y);
+        if (resourceNode instanceof HerbNode) {
+            renderHerbOverlay(((HerbNode) resourceNode).getType(), drawX, drawY);
         }
+        // Future: add other resource types here (minerals, water, etc.)
 
         // Render building overlay if present (on top of everything)
-        if (tile.hasBuilding()) {
-            renderBuildingOverlay(tile.getBuilding(), drawX, drawY);
+        Building building = worldMap.getBuilding(x, y);
+        if (building != null) {
+            renderBuildingOverlay(building, drawX, drawY);
         }
     }
 
@@ -83,8 +138,7 @@ public class MapRenderer {
      * Renders the base biome color for a tile
      */
     private void renderBiomeBase(BiomeType biome, float x, float y) {
-        getBiomeColor(biome, tempColor);
-        shapeRenderer.setColor(tempColor);
+        shapeRenderer.setColor(getBiomeColor(biome));
         shapeRenderer.rect(x, y, WorldMap.TILE_SIZE, WorldMap.TILE_SIZE);
     }
 
@@ -92,9 +146,7 @@ public class MapRenderer {
      * Renders herb overlay on a tile
      */
     private void renderHerbOverlay(HerbType herbType, float x, float y) {
-        ResourceDefinition def = ResourceRegistry.getDefinition(herbType);
-        tempColor.set(def.getVisual().getColor());
-        shapeRenderer.setColor(tempColor);
+        shapeRenderer.setColor(resources.getColor(herbType));
 
         float herbSize = WorldMap.TILE_SIZE / 2f;
         float offsetX = x + WorldMap.TILE_SIZE / 4f;
@@ -121,18 +173,32 @@ public class MapRenderer {
             size,
             size
         );
+
+        if (building instanceof Harvester) {
+            renderProgressBar(((Harvester) building).getHarvestProgress(simulationTime), x + padding, y + padding, size);
+        } else if (building instanceof ProductionBuilding) {
+            renderProgressBar(((ProductionBuilding) building).getProgress(simulationTime), x + padding, y + padding, size);
+        } else if (building instanceof Storage) {
+            // How full it is
+            renderProgressBar(((Storage) building).getUsedStacks() / (float) Storage.STACKS, x + padding, y + padding, size);
+        }
     }
 
     /**
-     * Gets the color for a specific biome type
+     * Renders a thin bar along the bottom edge of a building
      */
-    private void getBiomeColor(BiomeType biome, Color outColor) {
-        if (biome != null) {
-            BiomeDefinition def = BiomeRegistry.getDefinition(biome);
-            outColor.set(def.getVisual().getColor());
-        } else {
-            outColor.set(Color.GRAY);
-        }
+    private void renderProgressBar(float progress, float x, float y, float width) {
+        if (progress <= 0f) return;
+
+        shapeRenderer.setColor(tempColor.set(0.3f, 0.85f, 0.3f, 1f)); // green
+        shapeRenderer.rect(x, y, width * progress, WorldMap.TILE_SIZE * 0.1f);
+    }
+
+    /**
+     * Gets the color for a specific biome type, gray for tiles without one
+     */
+    private Color getBiomeColor(BiomeType biome) {
+        return biome != null ? biomes.getColor(biome) : Color.GRAY;
     }
 
     /**
@@ -0,0 +1,185 @@
+package com.nova.healersinc.simulation;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.building.BuildingManager;
+import com.nova.healersinc.building.ProductionEngine;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the colony simulation at a fixed {@link #TICKS_PER_SECOND} on its own thread, independent
+ * of the frame rate, so a slow tick shows up as a late tick rather than a dropped frame.
+ * <p>
+ * A tick holds the map's monitor while it grows depleted resource nodes back, updates the
+ * buildings, moves what they harvested into the inventory and runs production on it. Map reads
+ * on the render thread need no lock: the simulation only changes yields and building state in
+ * place, while the tile storage itself is only ever changed on the render thread. Render thread
+ * code that changes the set of buildings, or needs them consistent across tiles (a save),
+ * synchronizes on the map as well.
+ * <p>
+ * After every tick its number and the time it finished are published together; the render
+ * thread reads them through {@link #getTime()} to draw in between ticks, which also makes
+ * everything the tick wrote visible to it.
+ */
+public class SimulationService implements Disposable {
+
+    private static final String TAG = "Simulation";
+
+    public static final int TICKS_PER_SECOND = 20;
+    public static final float TICK_SECONDS = 1f / TICKS_PER_SECOND;
+    private static final long TICK_NANOS = 1_000_000_000L / TICKS_PER_SECOND;
+    /** Ticks run back to back to catch up after a stall; time lost beyond that is skipped */
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    /** How often what was harvested and produced is summed up in the log, 30 seconds */
+    private static final int REPORT_TICKS = 30 * TICKS_PER_SECOND;
+
+    private final WorldMap worldMap;
+    private final BuildingManager buildingManager;
+    private final RegrowthScheduler regrowthScheduler;
+    private final HarvestEvents harvestEvents;
+    private final Inventory inventory;
+    private final ProductionEngine production;
+    private final Thread thread;
+
+    private volatile boolean running;
+    private volatile Published published = new Published(0, System.nanoTime());
+    private volatile Throwable error;
+
+    /**
+     * The last finished tick, replaced as a whole so readers see number and time of one tick.
+     */
+    private static final class Published {
+        final long tickCount;
+        final long nanoTime;
+
+        Published(long tickCount, long nanoTime) {
+            this.tickCount = tickCount;
+            this.nanoTime = nanoTime;
+        }
+    }
+
+    /**
+     * @param regrowthScheduler has to tick every {@link #TICK_SECONDS}, like the one the
+     *                          building manager hands harvested nodes to
+     * @param harvestEvents     the building manager's, drained into the inventory every tick
+     * @param production        the building manager's, working on that inventory and ticking
+     *                          every {@link #TICK_SECONDS}
+     */
+    public SimulationService(WorldMap worldMap, BuildingManager buildingManager, RegrowthScheduler regrowthScheduler,
+                             HarvestEvents harvestEvents, Inventory inventory, ProductionEngine production) {
+        this.worldMap = worldMap;
+        this.buildingManager = buildingManager;
+        this.regrowthScheduler = regrowthScheduler;
+        this.harvestEvents = harvestEvents;
+        this.inventory = inventory;
+        this.production = production;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, "simulation");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        published = new Published(0, System.nanoTime());
+        running = true;
+        thread.start();
+    }
+
+    // === SIMULATION THREAD ===
+
+    private void runLoop() {
+        long nextTick = System.nanoTime() + TICK_NANOS;
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (now < nextTick) {
+                    LockSupport.parkNanos(nextTick - now);
+                    continue;
+                }
+
+                long behind = (now - nextTick) / TICK_NANOS;
+                if (behind > MAX_CATCH_UP_TICKS) {
+                    Gdx.app.log(TAG, "Skipping " + (behind - MAX_CATCH_UP_TICKS) + " ticks after a stall");
+                    nextTick += (behind - MAX_CATCH_UP_TICKS) * TICK_NANOS;
+                }
+
+                tick();
+                nextTick += TICK_NANOS;
+            }
+        } catch (Throwable t) {
+            error = t;
+            running = false;
+        }
+    }
+
+    private void tick() {
+        synchronized (worldMap) {
+            regrowthScheduler.update();
+            buildingManager.update(TICK_SECONDS);
+            harvestEvents.drainTo(inventory);
+            production.update();
+        }
+
+        long tickCount = published.tickCount + 1;
+        if (tickCount % REPORT_TICKS == 0) {
+            String report = harvestEvents.report();
+            if (report != null) {
+                Gdx.app.log(TAG, "Last " + REPORT_TICKS / TICKS_PER_SECOND + " s: " + report);
+            }
+            String productionReport = production.report();
+            if (productionReport != null) {
+                Gdx.app.log(TAG, "Last " + REPORT_TICKS / TICKS_PER_SECOND + " s: " + productionReport);
+            }
+        }
+
+        // Written last: reading it makes the whole tick visible to the reader
+        published = new Published(tickCount, System.nanoTime());
+    }
+
+    // === RENDER THREAD ===
+
+    /**
+     * Simulated seconds since the start, on the clock {@link Building#getLastUpdateTime()}
+     * uses, advancing smoothly in between ticks: the time of the last tick plus the real time
+     * since, capped at one tick. Drawing code uses it for time based state (like harvest progress).
+     */
+    public double getTime() {
+        Published last = published;
+        float sinceTick = Math.max(0f, Math.min(TICK_SECONDS, (System.nanoTime() - last.nanoTime) / 1e9f));
+        return last.tickCount * (double) TICK_SECONDS + sinceTick;
+    }
+
+    public long getTickCount() {
+        return published.tickCount;
+    }
+
+    /**
+     * What stopped the simulation thread, or null while it runs fine.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Stops the simulation after the current tick and waits for it, so the world can be saved.
+     */
+    @Override
+    public void dispose() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
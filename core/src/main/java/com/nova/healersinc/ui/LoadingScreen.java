@@ -1,6 +1,8 @@
 package com.nova.healersinc.ui;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
@@ -11,10 +13,18 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 
 public class LoadingScreen {
 
+    public interface Listener {
+        void onCancel();
+    }
+
+    private final Listener listener;
+    private final InputAdapter inputAdapter;
+
     private Stage stage;
     private ShapeRenderer shapeRenderer;
     private Label loadingLabel;
     private Label statusLabel;
+    private Label cancelLabel;
 
     private float progress = 0f;
     private String currentTask = "Initializing...";
@@ -25,7 +35,9 @@ public class LoadingScreen {
     private static final float BAR_WIDTH = 400f;
     private static final float BAR_HEIGHT = 30f;
 
-    public LoadingScreen() {
+    public LoadingScreen(Listener listener) {
+        this.listener = listener;
+
         stage = new Stage();
         shapeRenderer = new ShapeRenderer();
 
@@ -47,8 +59,27 @@ public class LoadingScreen {
         statusLabel = new Label(currentTask, skin);
         statusLabel.setFontScale(1f);
 
+        cancelLabel = new Label("Press ESC to cancel", skin);
+        cancelLabel.setFontScale(0.7f);
+
         stage.addActor(loadingLabel);
         stage.addActor(statusLabel);
+        stage.addActor(cancelLabel);
+
+        inputAdapter = new InputAdapter() {
+            @Override
+            public boolean keyDown(int keycode) {
+                if (keycode == Input.Keys.ESCAPE && LoadingScreen.this.listener != null) {
+                    LoadingScreen.this.listener.onCancel();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public InputAdapter getInputProcessor() {
+        return inputAdapter;
     }
 
     public void setProgress(float progress) {
@@ -88,6 +119,11 @@ public class LoadingScreen {
             centerY - 80
         );
 
+        cancelLabel.setPosition(
+            centerX - cancelLabel.getWidth() / 2f,
+            centerY - 130
+        );
+
         // Draw progress bar
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
@@ -105,7 +141,7 @@ public class LoadingScreen {
         shapeRenderer.rect(
             centerX - BAR_WIDTH / 2f,
             centerY - BAR_HEIGHT / 2f,
-            BAR_WIDTH,
+            BAR_WIDTH * progress,
             BAR_HEIGHT
         );
 
@@ -1,6 +1,7 @@
 package com.nova.healersinc.ui;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
@@ -16,12 +17,17 @@ public class TitleScreen {
 
     public interface Listener {
         void onStartGame();
+
+        void onContinueGame();
     }
 
     private static final float VIRTUAL_WIDTH = 640f;
     private static final float VIRTUAL_HEIGHT = 480f;
 
     private final Listener listener;
+    private final boolean canContinue;
+    // A new game was asked for while a save exists and waits for N again
+    private boolean confirmingNewGame;
 
     private final OrthographicCamera camera;
     private final Viewport viewport;
@@ -31,8 +37,13 @@ public class TitleScreen {
 
     private final InputAdapter inputAdapter;
 
-    public TitleScreen(Listener listener) {
+    /**
+     * @param canContinue whether there is a saved game; C then continues it, and a new game
+     *                    replaces it only once N is pressed twice
+     */
+    public TitleScreen(Listener listener, boolean canContinue) {
         this.listener = listener;
+        this.canContinue = canContinue;
 
         camera = new OrthographicCamera();
         viewport = new FitViewport(VIRTUAL_WIDTH, VIRTUAL_HEIGHT, camera);
@@ -47,15 +58,29 @@ public class TitleScreen {
         inputAdapter = new InputAdapter() {
             @Override
             public boolean keyDown(int keycode) {
-                if (listener != null) {
+                if (listener == null) {
+                    return true;
+                }
+
+                if (!canContinue) {
                     listener.onStartGame();
+                } else if (confirmingNewGame) {
+                    confirmingNewGame = false;
+                    if (keycode == Input.Keys.N) {
+                        listener.onStartGame();
+                    }
+                } else if (keycode == Input.Keys.C) {
+                    listener.onContinueGame();
+                } else if (keycode == Input.Keys.N) {
+                    confirmingNewGame = true;
                 }
                 return true;
             }
 
             @Override
             public boolean touchDown(int screenX, int screenY, int pointer, int button) {
-                if (listener != null) {
+                // A stray click must not replace a saved colony
+                if (listener != null && !canContinue) {
                     listener.onStartGame();
                 }
                 return true;
@@ -128,7 +153,9 @@ public class TitleScreen {
         font.getData().setScale(0.9f);
         font.draw(
           batch,
-          "Press any key to continue...",
+          !canContinue ? "Press any key to continue..."
+              : confirmingNewGame ? "A new colony replaces your saved one. Press N again to confirm, any other key to go back"
+              : "Press C to continue your colony, N for a new one...",
           0,
           40f,
           VIRTUAL_WIDTH,
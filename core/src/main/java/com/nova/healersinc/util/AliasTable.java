@@ -0,0 +1,104 @@
+package com.nova.healersinc.util;
+
+/**
+ * Walker/Vose alias table for sampling an index by weight in constant time.
+ * Each column holds the probability of keeping its own index and the index to fall back to
+ * otherwise, so a sample is one column pick plus one biased coin - no scan, no boxing.
+ */
+public final class AliasTable {
+
+    private final float[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * @param weights Non-negative weight per index; at least one must be positive
+     */
+    public AliasTable(float[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Alias table needs at least one weight");
+        }
+
+        double total = 0;
+        for (float weight : weights) {
+            if (weight < 0f || Float.isNaN(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Alias table needs a positive total weight");
+        }
+
+        probabilities = new float[n];
+        aliases = new int[n];
+
+        // Scale so the average column is exactly 1, then pair under-full with over-full columns
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probabilities[less] = (float) scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left is full up to rounding error
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            probabilities[i] = 1f;
+            aliases[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            probabilities[i] = 1f;
+            aliases[i] = i;
+        }
+    }
+
+    /**
+     * Samples an index from a uniform roll in [0, 1).
+     * The integer part of roll * size picks the column, the fraction is the coin.
+     */
+    public int sample(float roll) {
+        int n = probabilities.length;
+        float scaled = roll * n;
+        int column = Math.min((int) scaled, n - 1);
+        return scaled - column < probabilities[column] ? column : aliases[column];
+    }
+
+    /**
+     * Samples an index from 64 uniformly random bits.
+     * The high 32 bits pick the column, the low 24 bits are the coin.
+     */
+    public int sample(long bits) {
+        int column = (int) (((bits >>> 32) * probabilities.length) >>> 32);
+        float coin = (bits & 0xFFFFFF) * 0x1.0p-24f;
+        return coin < probabilities[column] ? column : aliases[column];
+    }
+
+    public int size() {
+        return probabilities.length;
+    }
+}
@@ -0,0 +1,83 @@
+package com.nova.healersinc.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reads values from a registry config with the same rules the build applies in
+ * {@code :core:generateRegistries}, so a config reloaded at runtime cannot hold anything the
+ * build would have rejected. Every check throws an {@link IllegalArgumentException} naming the
+ * offending value.
+ */
+public final class ConfigChecks {
+
+    private static final Pattern ID = Pattern.compile("[a-z][a-z0-9_]*");
+    // Same rules as Color.valueOf: optional '#', RRGGBB or RRGGBBAA
+    private static final Pattern COLOR = Pattern.compile("#?([0-9a-fA-F]{6}|[0-9a-fA-F]{8})");
+
+    private ConfigChecks() {
+    }
+
+    /**
+     * The lower_snake_case id of the entry.
+     */
+    public static String id(String kind, JsonValue entry) {
+        JsonValue value = entry.get("id");
+        if (value == null || !value.isString() || !ID.matcher(value.asString()).matches()) {
+            throw new IllegalArgumentException(kind + " id must be lower_snake_case, got '" + describe(value) + "'");
+        }
+        return value.asString();
+    }
+
+    /**
+     * The string, or null if it is missing or null.
+     */
+    public static String string(String where, JsonValue parent, String name) {
+        JsonValue value = parent == null ? null : parent.get(name);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (!value.isString()) {
+            throw new IllegalArgumentException(where + " " + name + " must be a string or null, got '" + describe(value) + "'");
+        }
+        return value.asString();
+    }
+
+    public static float number(String where, JsonValue parent, String name, float min, float max) {
+        JsonValue value = parent == null ? null : parent.get(name);
+        // Compared as a double, so a value too large for a float is not read as infinity first
+        if (value == null || !value.isNumber() || !(value.asDouble() >= min && value.asDouble() <= max)) {
+            throw new IllegalArgumentException(where + " " + name + " must be a number in [" + min + ", " + max
+                + "], got '" + describe(value) + "'");
+        }
+        return value.asFloat();
+    }
+
+    public static int integer(String where, JsonValue parent, String name, int min) {
+        JsonValue value = parent == null ? null : parent.get(name);
+        if (value == null || !value.isLong() || value.asLong() < min || value.asLong() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(where + " " + name + " must be an integer >= " + min
+                + ", got '" + describe(value) + "'");
+        }
+        return value.asInt();
+    }
+
+    public static Color color(String where, JsonValue parent, String name) {
+        JsonValue value = parent == null ? null : parent.get(name);
+        if (value == null || !value.isString() || !COLOR.matcher(value.asString()).matches()) {
+            throw new IllegalArgumentException(where + " " + name + " must be a hex color (RRGGBB or RRGGBBAA), got '"
+                + describe(value) + "'");
+        }
+        return Color.valueOf(value.asString());
+    }
+
+    private static String describe(JsonValue value) {
+        if (value == null) {
+            return "null";
+        }
+        return value.isValue() ? String.valueOf(value.asString()) : value.toJson(JsonWriter.OutputType.minimal);
+    }
+}
@@ -0,0 +1,125 @@
+package com.nova.healersinc.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calls back when watched config files are saved, so configs can be tweaked while the game
+ * runs. Reloaders run on the watcher's own daemon thread; an exception from one is logged and
+ * the watcher carries on.
+ */
+public class ConfigWatcher implements Disposable {
+
+    private static final String TAG = "ConfigWatcher";
+
+    /** Editors often save in several writes or through a temp file; let them finish first */
+    private static final long SETTLE_MILLIS = 100;
+
+    public interface Reloader {
+        void reload(FileHandle file);
+    }
+
+    private static final class Watched {
+        final FileHandle file;
+        final Reloader reloader;
+
+        Watched(FileHandle file, Reloader reloader) {
+            this.file = file;
+            this.reloader = reloader;
+        }
+    }
+
+    private final WatchService watchService;
+    // Only written before start()
+    private final Map<Path, Watched> watched = new HashMap<>();
+    private final Thread thread;
+
+    public ConfigWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchLoop();
+            }
+        }, "config-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Registers a file on disk. Call before {@link #start()}.
+     */
+    public void watch(FileHandle file, Reloader reloader) throws IOException {
+        Path path = file.file().getAbsoluteFile().toPath();
+        // Creation covers editors that save by renaming a new file over the old one
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watched.put(path, new Watched(file, reloader));
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                Thread.sleep(SETTLE_MILLIS);
+                for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+                    collect(key, changed);
+                }
+
+                for (Path path : changed) {
+                    Watched entry = watched.get(path);
+                    if (entry == null) continue;
+
+                    try {
+                        entry.reloader.reload(entry.file);
+                    } catch (RuntimeException e) {
+                        Gdx.app.error(TAG, "Keeping the previous " + entry.file.name() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Disposed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, reload everything to be safe
+                changed.addAll(watched.keySet());
+                continue;
+            }
+            changed.add(directory.resolve((Path) event.context()));
+        }
+        key.reset();
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not close the watch service", e);
+        }
+        thread.interrupt();
+    }
+}
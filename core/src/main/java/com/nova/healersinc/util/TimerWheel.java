@@ -0,0 +1,96 @@
+package com.nova.healersinc.util;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * Hashed timing wheel: items are due at a whole tick and land in the slot of that tick modulo
+ * the wheel size. Advancing by one tick only looks at that one slot, so the cost per tick depends
+ * on how many items are scheduled around now, not on how many could ever be scheduled.
+ * Items due further out than one turn of the wheel wait in their slot for the later turns.
+ * <p>
+ * Not thread-safe. There is no cancelling; handlers check whether an item still needs its turn.
+ *
+ * @param <T> the scheduled items
+ */
+public class TimerWheel<T> {
+
+    public interface Handler<T> {
+        /**
+         * Called once the tick an item was scheduled for is reached. May schedule again.
+         */
+        void expired(T item, long tick);
+    }
+
+    private final Array<T>[] slotItems;
+    private final LongArray[] slotDeadlines;
+    private final int mask;
+
+    private long tick;
+    private int size;
+
+    /**
+     * @param slotCount number of slots, a power of two; ideally more than the ticks most items wait
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(int slotCount) {
+        if (slotCount <= 0 || (slotCount & (slotCount - 1)) != 0) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+        }
+        this.slotItems = new Array[slotCount];
+        this.slotDeadlines = new LongArray[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotItems[slot] = new Array<>(false, 4);
+            slotDeadlines[slot] = new LongArray(false, 4);
+        }
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * The last tick {@link #advance} reached, 0 before the first.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Schedules the item for the given tick; ticks that are already reached mean the next one.
+     */
+    public void schedule(T item, long deadline) {
+        if (deadline <= tick) {
+            deadline = tick + 1;
+        }
+        int slot = (int) (deadline & mask);
+        slotItems[slot].add(item);
+        slotDeadlines[slot].add(deadline);
+        size++;
+    }
+
+    /**
+     * Moves on by one tick and hands every item due at it to the handler.
+     */
+    public void advance(Handler<T> handler) {
+        tick++;
+        int slot = (int) (tick & mask);
+        Array<T> items = slotItems[slot];
+        LongArray deadlines = slotDeadlines[slot];
+
+        // Backwards, so removing by swapping in the last entry skips nothing, and whatever the
+        // handler schedules into this slot (a turn later at the earliest) is left for later
+        for (int i = items.size - 1; i >= 0; i--) {
+            if (deadlines.get(i) > tick) continue;
+
+            T item = items.removeIndex(i);
+            deadlines.removeIndex(i);
+            size--;
+            handler.expired(item, tick);
+        }
+    }
+
+    /**
+     * Number of scheduled items.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package com.nova.healersinc.world.biome;
 
 import com.badlogic.gdx.graphics.Color;
+import com.nova.healersinc.util.AliasTable;
 import com.nova.healersinc.world.herb.HerbType;
 
 import java.util.List;
@@ -9,7 +10,7 @@ import java.util.Random;
 public class BiomeDefinition {
     private final String id;
     private final String name;
-    private final Float worldGenWeight;
+    private final float worldGenWeight;
     private final Visual visual;
     private final SpawnRules spawnRules;
 
@@ -29,7 +30,7 @@ public class BiomeDefinition {
         return name;
     }
 
-    public Float getWorldGenWeight() {
+    public float getWorldGenWeight() {
         return worldGenWeight;
     }
 
@@ -62,18 +63,25 @@ public class BiomeDefinition {
     public static class SpawnRules {
         private final float clusterCenterChance;
         private final List<ResourceSpawn> resources;
-        private final float totalWeight;
+
+        // Pre-built for constant time random selection; null if there is nothing to pick
+        private final HerbType[] herbs;
+        private final AliasTable herbTable;
 
         public SpawnRules(float clusterCenterChance, List<ResourceSpawn> resources) {
             this.clusterCenterChance = clusterCenterChance;
             this.resources = resources;
 
-            // Pre-calculate total weight for efficient random selection
+            this.herbs = new HerbType[resources.size()];
+            float[] weights = new float[resources.size()];
             float sum = 0f;
-            for (ResourceSpawn spawn : resources) {
-                sum += spawn.getWeight();
+            for (int i = 0; i < herbs.length; i++) {
+                ResourceSpawn spawn = resources.get(i);
+                herbs[i] = spawn.getResource();
+                weights[i] = Math.max(0f, spawn.getWeight());
+                sum += weights[i];
             }
-            this.totalWeight = sum;
+            this.herbTable = sum > 0f ? new AliasTable(weights) : null;
         }
 
         public float getClusterCenterChance() {
@@ -88,22 +96,22 @@ public class BiomeDefinition {
          * Picks a random herb based on weighted probabilities
          */
         public HerbType pickRandomHerb(Random random) {
+            return pickHerb(random.nextFloat());
+        }
+
+        /**
+         * Picks a herb based on weighted probabilities from a uniform roll in [0, 1)
+         */
+        public HerbType pickHerb(float uniformRoll) {
             if (resources.isEmpty()) {
                 return HerbType.CHAMOMILE; // fallback
             }
-
-            float roll = random.nextFloat() * totalWeight;
-            float cumulative = 0f;
-
-            for (ResourceSpawn spawn : resources) {
-                cumulative += spawn.getWeight();
-                if (roll <= cumulative) {
-                    return spawn.getResource();
-                }
+            if (herbTable == null) {
+                // All weights are 0, keep the old behaviour of taking the first entry
+                return herbs[0];
             }
 
-            // Fallback (shouldn't happen)
-            return resources.get(0).getResource();
+            return herbs[herbTable.sample(uniformRoll)];
         }
     }
 
@@ -3,132 +3,217 @@ package com.nova.healersinc.world.biome;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.utils.Json;
-import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.nova.healersinc.util.AliasTable;
+import com.nova.healersinc.util.ConfigChecks;
 import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.resource.ResourceRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 
 public class BiomeRegistry {
 
-    private static final String CONFIG_PATH = "biomes.json";
-    private static float totalWorldGenWeight = 0f;
+    /** Config the definitions are compiled from at build time (see {@link BiomeTable}) */
+    public static final String CONFIG_PATH = "biomes.json";
 
-    private static final ObjectMap<BiomeType, BiomeDefinition> DEFINITIONS = new ObjectMap<>();
-    private static final ObjectMap<String, BiomeType> ID_TO_BIOME = new ObjectMap<>();
+    private static final BiomeType[] BIOMES = BiomeType.values();
 
-    private static boolean initialized = false;
+    // Replaced as a whole on reload, so readers never see half of an update
+    private static volatile Snapshot snapshot;
 
     /**
-     * Call this once during game startup to load all biomes
+     * Immutable set of biome definitions, flat arrays indexed by {@link BiomeType} ordinal.
+     * Code that looks up many biomes, like a frame of rendering or a generator, should take one
+     * snapshot up front and use it throughout: lookups are then plain array reads, and the
+     * whole pass sees one consistent config even if it is reloaded meanwhile.
      */
-    public static void init() {
-        if (initialized) return;
-
-        buildBiomeLookup();
-
-        FileHandle file = Gdx.files.internal(CONFIG_PATH);
-        if (!file.exists()) {
-            throw new RuntimeException("Biome config file not found: " + CONFIG_PATH);
+    public static final class Snapshot {
+        private final BiomeDefinition[] definitions;
+        private final Color[] colors;
+        private final float[] worldGenWeights;
+        // Biome selection by world gen weight, indexed by BiomeType ordinal; null if all weights are 0
+        private final AliasTable biomeTable;
+
+        private Snapshot(BiomeDefinition[] definitions) {
+            this.definitions = definitions;
+            this.colors = new Color[definitions.length];
+            this.worldGenWeights = new float[definitions.length];
+
+            float total = 0f;
+            for (int ordinal = 0; ordinal < definitions.length; ordinal++) {
+                if (definitions[ordinal] == null) continue;
+
+                colors[ordinal] = definitions[ordinal].getVisual().getColor();
+                worldGenWeights[ordinal] = definitions[ordinal].getWorldGenWeight();
+                total += worldGenWeights[ordinal];
+            }
+            this.biomeTable = total > 0f ? new AliasTable(worldGenWeights) : null;
         }
 
-        Json json = new Json();
-        BiomeConfig config = json.fromJson(BiomeConfig.class, file);
+        public BiomeDefinition getDefinition(BiomeType biome) {
+            BiomeDefinition def = definitions[biome.ordinal()];
+            if (def == null) {
+                throw new IllegalArgumentException("No biome definition found for: " + biome.name());
+            }
+            return def;
+        }
 
-        for (BiomeConfig.BiomeEntry entry : config.biomes) {
-            BiomeDefinition definition = toDefinition(entry);
-            BiomeType biomeKey = mapIdToBiome(entry.id);
-            DEFINITIONS.put(biomeKey, definition);
+        /**
+         * Display color of the biome; shared, do not modify.
+         */
+        public Color getColor(BiomeType biome) {
+            Color color = colors[biome.ordinal()];
+            if (color == null) {
+                throw new IllegalArgumentException("No biome definition found for: " + biome.name());
+            }
+            return color;
+        }
 
-            totalWorldGenWeight += definition.getWorldGenWeight();
+        /**
+         * World gen weight of every biome by ordinal; 0 for biomes without a definition.
+         */
+        public float[] getWorldGenWeights() {
+            return worldGenWeights.clone();
         }
 
-        initialized = true;
-        Gdx.app.log("BiomeRegistry", "Initialized with " + DEFINITIONS.size + " biomes.");
-    }
+        /**
+         * Picks a biome by world gen weight from a uniform roll in [0, 1).
+         */
+        public BiomeType pickBiome(float roll) {
+            if (biomeTable == null) {
+                // fallback
+                return BiomeType.MILD_MEADOW;
+            }
+            return BiomeType.byOrdinal(biomeTable.sample(roll));
+        }
 
-    private static void buildBiomeLookup() {
-        for (BiomeType biome : BiomeType.values()) {
-            ID_TO_BIOME.put(biome.name().toLowerCase(), biome);
+        public int size() {
+            int size = 0;
+            for (BiomeDefinition definition : definitions) {
+                if (definition != null) size++;
+            }
+            return size;
         }
     }
 
-    private static BiomeDefinition toDefinition(BiomeConfig.BiomeEntry e) {
-        Color color = Color.valueOf(e.visual.color);
-        BiomeDefinition.Visual visual = new BiomeDefinition.Visual(color, e.visual.texture);
+    /**
+     * Call this once during game startup to load all biomes. The definitions were validated
+     * and compiled from {@link #CONFIG_PATH} at build time, nothing is parsed here.
+     */
+    public static void init() {
+        if (snapshot != null) return;
+
+        snapshot = new Snapshot(BiomeTable.create());
+        Gdx.app.log("BiomeRegistry", "Initialized with " + snapshot.size() + " biomes.");
+    }
 
-        // Convert resource spawns
-        List<BiomeDefinition.ResourceSpawn> resourceSpawns = new ArrayList<>();
-        for (BiomeConfig.ResourceSpawn spawn : e.spawnRules.resources) {
-            HerbType herb = mapIdToHerb(spawn.resourceId);
-            resourceSpawns.add(new BiomeDefinition.ResourceSpawn(herb, spawn.weight));
+    /**
+     * Parses the edited config and swaps it in for all later lookups. The config is checked
+     * completely before anything is replaced, so a broken file leaves the current biomes in
+     * place.
+     *
+     * @throws IllegalArgumentException if the config is invalid
+     */
+    public static void reload(FileHandle file) {
+        Snapshot reloaded;
+        try {
+            reloaded = new Snapshot(parse(new JsonReader().parse(file)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid biome config " + file + ": " + e.getMessage(), e);
         }
 
-        BiomeDefinition.SpawnRules spawnRules = new BiomeDefinition.SpawnRules(
-            e.spawnRules.clusterCenterChance,
-            resourceSpawns
-        );
-
-        return new BiomeDefinition(e.id, e.name, e.worldGenWeight, visual, spawnRules);
+        snapshot = reloaded;
+        Gdx.app.log("BiomeRegistry", "Reloaded " + reloaded.size() + " biomes from " + file);
     }
 
-    private static BiomeType mapIdToBiome(String id) {
-        BiomeType biome = ID_TO_BIOME.get(id);
-        if (biome == null) {
-            throw new IllegalArgumentException("Unknown biome id in JSON: '" + id + "'. " +
-                "Make sure it matches an enum constant name (case-insensitive).");
+    /**
+     * Runtime counterpart of the build time conversion, for reloading an edited config. Applies
+     * the same checks, and spawns may only name resources the current resource config defines.
+     */
+    private static BiomeDefinition[] parse(JsonValue config) {
+        BiomeDefinition[] definitions = new BiomeDefinition[BIOMES.length];
+        ResourceRegistry.Snapshot resources = ResourceRegistry.get();
+        for (JsonValue entry : config.require("biomes")) {
+            String id = ConfigChecks.id("biome", entry);
+            BiomeType biome = mapIdToBiome(id);
+            if (definitions[biome.ordinal()] != null) {
+                throw new IllegalArgumentException("Duplicate biome id '" + id + "'");
+            }
+            String where = "biome '" + id + "'";
+
+            JsonValue visual = entry.get("visual");
+            JsonValue spawnRules = entry.get("spawnRules");
+            List<BiomeDefinition.ResourceSpawn> resourceSpawns = new ArrayList<>();
+            JsonValue spawns = spawnRules == null ? null : spawnRules.get("resources");
+            if (spawns != null) {
+                for (JsonValue spawn : spawns) {
+                    resourceSpawns.add(new BiomeDefinition.ResourceSpawn(mapIdToHerb(where, spawn.get("resourceId"), resources),
+                        ConfigChecks.number(where + " spawn", spawn, "weight", 0f, Float.MAX_VALUE)));
+                }
+            }
+
+            definitions[biome.ordinal()] = new BiomeDefinition(id, ConfigChecks.string(where, entry, "name"),
+                ConfigChecks.number(where, entry, "worldGenWeight", 0f, Float.MAX_VALUE),
+                new BiomeDefinition.Visual(ConfigChecks.color(where, visual, "color"), ConfigChecks.string(where, visual, "texture")),
+                new BiomeDefinition.SpawnRules(ConfigChecks.number(where, spawnRules, "clusterCenterChance", 0f, 1f), resourceSpawns));
         }
-        return biome;
+        return definitions;
     }
 
-    private static HerbType mapIdToHerb(String id) {
+    private static BiomeType mapIdToBiome(String id) {
         try {
-            return HerbType.valueOf(id.toUpperCase());
+            return BiomeType.valueOf(id.toUpperCase(Locale.ROOT));
         } catch (IllegalArgumentException ex) {
-            throw new IllegalArgumentException("Unknown herb id in biome config: '" + id + "'");
+            throw new IllegalArgumentException("Unknown biome id '" + id + "'");
         }
     }
 
-    public static BiomeDefinition getDefinition(BiomeType biome) {
-        if (!initialized) {
-            throw new IllegalStateException("BiomeRegistry not initialized! Call BiomeRegistry.init() during startup.");
-        }
-
-        BiomeDefinition def = DEFINITIONS.get(biome);
-        if (def == null) {
-            throw new IllegalArgumentException("No biome definition found for: " + biome.name());
+    private static HerbType mapIdToHerb(String where, JsonValue id, ResourceRegistry.Snapshot resources) {
+        String resourceId = id != null && id.isString() ? id.asString() : null;
+        if (resourceId != null) {
+            for (HerbType herb : HerbType.values()) {
+                if (resources.isDefined(herb) && resources.getDefinition(herb).getId().equals(resourceId)) {
+                    return herb;
+                }
+            }
         }
-
-        return def;
+        throw new IllegalArgumentException(where + " spawns unknown resource '" + resourceId + "'");
     }
 
-    public static BiomeType pickRandomBiome(Random random) {
-        if (!initialized) {
+    /**
+     * The current definitions. Take it once per pass rather than once per lookup.
+     */
+    public static Snapshot get() {
+        Snapshot current = snapshot;
+        if (current == null) {
             throw new IllegalStateException("BiomeRegistry not initialized! Call BiomeRegistry.init() during startup.");
         }
-        if (totalWorldGenWeight <= 0f) {
-            // fallback
-            return BiomeType.MILD_MEADOW;
-        }
+        return current;
+    }
 
-        float roll = random.nextFloat() * totalWorldGenWeight;
-        float cumualtive = 0f;
+    public static BiomeDefinition getDefinition(BiomeType biome) {
+        return get().getDefinition(biome);
+    }
 
-        for (ObjectMap.Entry<BiomeType, BiomeDefinition> entry : DEFINITIONS) {
-            float w = entry.value.getWorldGenWeight();
-            if (w <= 0f) {
-                continue;
-            }
+    /**
+     * World gen weight of every biome by ordinal; 0 for biomes without a definition.
+     */
+    public static float[] getWorldGenWeights() {
+        return get().getWorldGenWeights();
+    }
 
-            cumualtive += w;
-            if (roll <= cumualtive) {
-                return entry.key;
-            }
-        }
+    public static BiomeType pickRandomBiome(Random random) {
+        return pickBiome(random.nextFloat());
+    }
 
-        // in case of float rounding errors
-        return DEFINITIONS.keys().next();
+    /**
+     * Picks a biome by world gen weight from a uniform roll in [0, 1).
+     */
+    public static BiomeType pickBiome(float roll) {
+        return get().pickBiome(roll);
     }
 }
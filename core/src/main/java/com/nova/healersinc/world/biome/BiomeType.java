@@ -3,5 +3,14 @@ package com.nova.healersinc.world.biome;
 public enum BiomeType {
     MILD_MEADOW,
     GROOVY_GROVE,
-    SPOOKY_SWAMP
+    SPOOKY_SWAMP;
+
+    private static final BiomeType[] VALUES = values();
+
+    /**
+     * Looks up a biome by ordinal without the array copy of {@link #values()}.
+     */
+    public static BiomeType byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
 }
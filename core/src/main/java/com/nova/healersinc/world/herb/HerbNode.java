@@ -9,6 +9,13 @@ import com.nova.healersinc.world.resource.ResourceNode;
 public class HerbNode extends ResourceNode<HerbType> {
     private final float potency;
 
+    /**
+     * Creates a herb node with the default stats of its type.
+     */
+    public HerbNode(HerbType type) {
+        this(type, type.getMaxYield(), type.getPotency(), type.getRegrowthRate());
+    }
+
     /**
      * Creates a new herb node.
      *
@@ -2,8 +2,34 @@ package com.nova.healersinc.world.herb;
 
 import com.nova.healersinc.world.resource.Resource;
 
+/**
+ * Herb types together with the stats every generated node of that type starts with.
+ * The stats are shared by all nodes of a type, nodes only hold their own yield.
+ */
 public enum HerbType implements Resource {
-    CHAMOMILE,
-    MINT,
-    ECHINACEA
+    CHAMOMILE(10, 1.0f, 0.1f),
+    MINT(8, 1.1f, 0.12f),
+    ECHINACEA(12, 1.2f, 0.08f);
+
+    private final int maxYield;
+    private final float potency;
+    private final float regrowthRate;
+
+    HerbType(int maxYield, float potency, float regrowthRate) {
+        this.maxYield = maxYield;
+        this.potency = potency;
+        this.regrowthRate = regrowthRate;
+    }
+
+    public int getMaxYield() {
+        return maxYield;
+    }
+
+    public float getPotency() {
+        return potency;
+    }
+
+    public float getRegrowthRate() {
+        return regrowthRate;
+    }
 }
@@ -0,0 +1,241 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.nova.healersinc.building.ProductionEngine;
+import com.nova.healersinc.world.map.DirtyChunks;
+import com.nova.healersinc.world.map.WorldMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the colony incrementally. On the game thread a save only encodes the chunks marked in
+ * the map's {@link DirtyChunks} since the last save, plus the stock outside storages;
+ * compressing them (spread over the common fork-join pool), appending them to the journal,
+ * syncing and folding the journal back into the base file once it grows large happen on a
+ * writer thread.
+ * The map has to track changes ({@link WorldMap#trackChanges()}) from the moment the save starts.
+ */
+public class Autosave implements Disposable {
+
+    private static final String TAG = "Autosave";
+
+    /** Seconds between autosaves */
+    private static final float INTERVAL = 30f;
+    /** Journal size at which it is folded into the base file */
+    private static final long COMPACT_BYTES = 4L << 20;
+    /** Appended to the names of base and journal of the save a new game replaced */
+    public static final String BACKUP_SUFFIX = ".bak";
+
+    private final File saveFile;
+    private final File journalFile;
+    private final SaveGame.Header header;
+    private final WorldMap worldMap;
+    private final ProductionEngine production;
+    private final DirtyChunks dirtyChunks;
+    private final ExecutorService writer;
+
+    private float timeSinceSave;
+
+    /**
+     * Starts a new save for a freshly generated world. A previous save is kept next to it as a
+     * backup ({@link #BACKUP_SUFFIX}), replacing the backup before it.
+     *
+     * @param production asked for the colony's stock outside storages at every save
+     */
+    public Autosave(File saveFile, File journalFile, SaveGame.Header header, WorldMap worldMap,
+                    ProductionEngine production) {
+        this(saveFile, journalFile, header, worldMap, production, null);
+    }
+
+    /**
+     * Continues the save the world was loaded from.
+     */
+    public Autosave(File saveFile, File journalFile, SaveGame loadedFrom, WorldMap worldMap,
+                    ProductionEngine production) {
+        this(saveFile, journalFile, loadedFrom.getHeader(), worldMap, production, loadedFrom);
+    }
+
+    private Autosave(File saveFile, File journalFile, SaveGame.Header header, WorldMap worldMap,
+                     ProductionEngine production, final SaveGame loadedFrom) {
+        this.saveFile = saveFile;
+        this.journalFile = journalFile;
+        this.header = header;
+        this.worldMap = worldMap;
+        this.production = production;
+        this.dirtyChunks = worldMap.trackChanges();
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "autosave");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (loadedFrom == null) {
+                    ChunkSnapshot empty = new ChunkSnapshot(Autosave.this.worldMap.getChunksX());
+                    empty.cameraX = Autosave.this.header.getWidth() * WorldMap.TILE_SIZE * 0.5f;
+                    empty.cameraY = Autosave.this.header.getHeight() * WorldMap.TILE_SIZE * 0.5f;
+                    if (backUp(Autosave.this.saveFile) && backUp(Autosave.this.journalFile)) {
+                        rewrite(empty);
+                    }
+                } else if (!loadedFrom.isJournalClean()) {
+                    // Missing, foreign or damaged journal: start over from what was readable
+                    rewrite(loadedFrom.getChunks());
+                }
+            }
+        });
+    }
+
+    /**
+     * Call once per frame; saves every {@link #INTERVAL} seconds if anything changed.
+     */
+    public void update(float deltaTime, float cameraX, float cameraY, float cameraZoom) {
+        timeSinceSave += deltaTime;
+        if (timeSinceSave >= INTERVAL) {
+            timeSinceSave = 0f;
+            save(cameraX, cameraY, cameraZoom, false);
+        }
+    }
+
+    /**
+     * Saves the changes since the last save right away, e.g. on request or before quitting.
+     */
+    public void saveNow(float cameraX, float cameraY, float cameraZoom) {
+        timeSinceSave = 0f;
+        save(cameraX, cameraY, cameraZoom, true);
+    }
+
+    private void save(float cameraX, float cameraY, float cameraZoom, boolean evenIfUnchanged) {
+        long startTime = System.nanoTime();
+
+        IntArray dirty = dirtyChunks.drain();
+        if (dirty.size == 0 && !evenIfUnchanged) {
+            return;
+        }
+
+        final ChunkSnapshot snapshot = new ChunkSnapshot(worldMap.getChunksX());
+        snapshot.cameraX = cameraX;
+        snapshot.cameraY = cameraY;
+        snapshot.cameraZoom = cameraZoom;
+
+        int chunksX = worldMap.getChunksX();
+        // Between two simulation ticks, so herb yields, harvesters and stock are saved at the
+        // same point
+        synchronized (worldMap) {
+            production.getLooseStock(snapshot.stock);
+            for (int i = 0; i < dirty.size; i++) {
+                int chunkX = dirty.get(i) % chunksX;
+                int chunkY = dirty.get(i) / chunksX;
+                // Streamed chunks with unsaved changes are not evicted, so this only skips chunks
+                // marked through writes that never reached a loaded chunk
+                if (worldMap.isChunkLoaded(chunkX, chunkY)) {
+                    snapshot.encode(worldMap, chunkX, chunkY);
+                }
+            }
+        }
+
+        final double snapshotMillis = (System.nanoTime() - startTime) / 1e6;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(snapshot, snapshotMillis);
+            }
+        });
+    }
+
+    // === WRITER THREAD ===
+
+    private void append(ChunkSnapshot snapshot, double snapshotMillis) {
+        long startTime = System.nanoTime();
+        snapshot.compress(ForkJoinPool.commonPool());
+        double compressMillis = (System.nanoTime() - startTime) / 1e6;
+
+        long journalBytes;
+        try {
+            journalBytes = SaveGame.appendFrame(journalFile, snapshot);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not append to " + journalFile + ", retrying with the next save", e);
+            for (int entry = 0; entry < snapshot.size(); entry++) {
+                dirtyChunks.mark(snapshot.getChunkX(entry), snapshot.getChunkY(entry));
+            }
+            return;
+        }
+
+        Gdx.app.log(TAG, String.format("Saved %d chunks, %.2f ms on the game thread, %.2f ms compressing, journal at %d KB",
+            snapshot.size(), snapshotMillis, compressMillis, journalBytes / 1024));
+
+        if (journalBytes >= COMPACT_BYTES) {
+            try {
+                rewrite(SaveGame.open(saveFile, journalFile).getChunks());
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Could not read back " + saveFile + " for compaction", e);
+            }
+        }
+    }
+
+    /**
+     * Moves the file aside to its backup name, if it exists.
+     * @return false if it exists and could not be moved, so it must not be overwritten
+     */
+    private static boolean backUp(File file) {
+        if (!file.exists()) {
+            return true;
+        }
+        File backup = new File(file.getPath() + BACKUP_SUFFIX);
+        try {
+            Files.move(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Gdx.app.log(TAG, "Kept the previous " + file.getName() + " as " + backup.getName());
+            return true;
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not back up " + file + ", not starting a new save over it", e);
+            return false;
+        }
+    }
+
+    /**
+     * Replaces base and journal with a base holding the given blocks and an empty journal.
+     * The new base gets a new id first, so a crash in between leaves a journal that no longer
+     * matches and is ignored, instead of being applied twice.
+     */
+    private void rewrite(ChunkSnapshot chunks) {
+        long saveId = ThreadLocalRandom.current().nextLong();
+        try {
+            SaveGame.writeBase(saveFile, header, saveId, chunks);
+            SaveGame.createJournal(journalFile, saveId);
+            Gdx.app.log(TAG, "Compacted " + saveFile.getName() + " to " + chunks.size() + " chunks");
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not rewrite " + saveFile, e);
+        }
+    }
+
+    /**
+     * Waits for pending writes and stops the writer thread. Call {@link #saveNow} first to keep
+     * the latest changes.
+     */
+    @Override
+    public void dispose() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                Gdx.app.error(TAG, "Pending saves did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.nova.healersinc.world.map.TileStorage;
+import com.nova.healersinc.world.map.WorldMap;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Building blocks shared by the chunk based file formats: the biome section of a chunk block,
+ * compression of whole blocks, and running work over many chunks on a fork-join pool.
+ * <p>
+ * Biomes are delta encoded against the row above, so a row that repeats the one above it
+ * turns into a single run no matter how many biome borders it crosses, then run-length encoded:
+ * <pre>
+ * short runCount, runCount x (byte symbol, varint length)
+ * symbol: 0 = same biome as the tile above, otherwise biomeId + 1 (the first row has no tile above)
+ * </pre>
+ * Compressed blocks are {@code int rawLength} followed by the raw block, deflated without a
+ * zlib header. Every block is compressed on its own, so blocks can be written, read and
+ * decoded in any order and on any thread.
+ */
+final class ChunkCodec {
+
+    static final int TILES_PER_CHUNK = WorldMap.CHUNK_SIZE * WorldMap.CHUNK_SIZE;
+
+    /** Upper bound on the biome section of one chunk: every tile its own run */
+    static final int MAX_BIOME_BYTES = 2 + TILES_PER_CHUNK * 3;
+
+    /** Chunks handled directly by one fork-join task before it stops splitting */
+    private static final int CHUNKS_PER_TASK = 16;
+
+    // Biome data compresses about as well at the fastest level, at a fraction of the cost
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    /**
+     * Per-thread compressors and scratch arrays; each pool or streaming worker keeps its own.
+     */
+    private static final class Scratch {
+        final Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+        final Inflater inflater = new Inflater(true);
+        final byte[] biomeIds = new byte[TILES_PER_CHUNK];
+        final ByteBuffer raw = ByteBuffer.allocate(SaveGame.MAX_CHUNK_BYTES);
+        byte[] input = new byte[SaveGame.MAX_CHUNK_BYTES];
+        byte[] output = new byte[SaveGame.MAX_CHUNK_BYTES];
+    }
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private ChunkCodec() {
+    }
+
+    // === BIOMES ===
+
+    /**
+     * Appends the biome section for the tiles in [fromX, toX) x [fromY, toY).
+     */
+    static void encodeBiomes(ByteBuffer buffer, WorldMap worldMap, int fromX, int fromY, int toX, int toY) {
+        byte[] biomeIds = scratch.get().biomeIds;
+        int chunkWidth = toX - fromX;
+
+        int runCountPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int runCount = 0;
+        int runSymbol = -1;
+        int runLength = 0;
+        int tile = 0;
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++, tile++) {
+                byte biomeId = TileStorage.encodeBiome(worldMap.getBiome(x, y));
+                biomeIds[tile] = biomeId;
+                int symbol = tile >= chunkWidth && biomeIds[tile - chunkWidth] == biomeId ? 0 : (biomeId & 0xff) + 1;
+                if (symbol == runSymbol) {
+                    runLength++;
+                    continue;
+                }
+                if (runLength > 0) {
+                    putRun(buffer, runSymbol, runLength);
+                    runCount++;
+                }
+                runSymbol = symbol;
+                runLength = 1;
+            }
+        }
+        putRun(buffer, runSymbol, runLength);
+        buffer.putShort(runCountPosition, (short) (runCount + 1));
+    }
+
+    private static void putRun(ByteBuffer buffer, int symbol, int length) {
+        buffer.put((byte) symbol);
+        while (length >= 0x80) {
+            buffer.put((byte) (length | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+    }
+
+    /**
+     * Reads a biome section into the calling thread's scratch array, row by row with the given
+     * width. The array is only valid until the next call on the same thread.
+     *
+     * @throws GdxRuntimeException if the runs do not cover exactly tileCount tiles
+     */
+    static byte[] decodeBiomes(ByteBuffer block, int chunkWidth, int tileCount) {
+        byte[] biomeIds = scratch.get().biomeIds;
+
+        int runCount = block.getShort();
+        int tile = 0;
+        for (int run = 0; run < runCount; run++) {
+            int symbol = block.get() & 0xff;
+            int length = getVarint(block);
+            if (length <= 0 || tile + length > tileCount || (symbol == 0 && tile < chunkWidth)) {
+                throw new GdxRuntimeException("Corrupt biome run");
+            }
+
+            if (symbol == 0) {
+                for (int end = tile + length; tile < end; tile++) {
+                    biomeIds[tile] = biomeIds[tile - chunkWidth];
+                }
+            } else {
+                byte biomeId = (byte) (symbol - 1);
+                for (int end = tile + length; tile < end; tile++) {
+                    biomeIds[tile] = biomeId;
+                }
+            }
+        }
+        if (tile != tileCount) {
+            throw new GdxRuntimeException("Biome runs cover " + tile + " of " + tileCount + " tiles");
+        }
+        return biomeIds;
+    }
+
+    private static int getVarint(ByteBuffer block) {
+        int value = 0;
+        for (int shift = 0; shift < 21; shift += 7) {
+            int b = block.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new GdxRuntimeException("Corrupt run length");
+    }
+
+    // === COMPRESSION ===
+
+    /**
+     * Encodes the chunk (see {@link SaveGame#encodeChunk}) and compresses it.
+     */
+    static ByteBuffer encodeCompressed(WorldMap worldMap, int chunkX, int chunkY) {
+        ByteBuffer raw = scratch.get().raw;
+        raw.clear();
+        SaveGame.encodeChunk(raw, worldMap, chunkX, chunkY);
+        raw.flip();
+        return compress(raw);
+    }
+
+    /**
+     * Compresses the remaining bytes of a raw block into a new buffer, ready to be read.
+     */
+    static ByteBuffer compress(ByteBuffer raw) {
+        Scratch scratch = ChunkCodec.scratch.get();
+        int rawLength = raw.remaining();
+        byte[] input = scratch.input;
+        raw.duplicate().get(input, 0, rawLength);
+
+        Deflater deflater = scratch.deflater;
+        deflater.reset();
+        deflater.setInput(input, 0, rawLength);
+        deflater.finish();
+
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == scratch.output.length) {
+                byte[] output = new byte[scratch.output.length * 2];
+                System.arraycopy(scratch.output, 0, output, 0, length);
+                scratch.output = output;
+            }
+            length += deflater.deflate(scratch.output, length, scratch.output.length - length);
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(4 + length);
+        block.putInt(rawLength).put(scratch.output, 0, length).flip();
+        return block;
+    }
+
+    /**
+     * Inflates a compressed block into the calling thread's scratch buffer. The result is only
+     * valid until the next call on the same thread.
+     *
+     * @throws GdxRuntimeException if the block is damaged
+     */
+    static ByteBuffer decompress(ByteBuffer block) {
+        Scratch scratch = ChunkCodec.scratch.get();
+        int rawLength = block.getInt();
+        if (rawLength < 0 || rawLength > SaveGame.MAX_CHUNK_BYTES) {
+            throw new GdxRuntimeException("Corrupt block length " + rawLength);
+        }
+
+        int length = block.remaining();
+        if (length > scratch.input.length) {
+            scratch.input = new byte[length];
+        }
+        block.get(scratch.input, 0, length);
+
+        Inflater inflater = scratch.inflater;
+        inflater.reset();
+        inflater.setInput(scratch.input, 0, length);
+        ByteBuffer raw = scratch.raw;
+        try {
+            int inflated = inflater.inflate(raw.array(), 0, rawLength);
+            if (inflated != rawLength) {
+                throw new GdxRuntimeException("Block inflates to a different length than recorded");
+            }
+        } catch (DataFormatException e) {
+            throw new GdxRuntimeException("Corrupt compressed block", e);
+        }
+
+        raw.clear();
+        raw.limit(rawLength);
+        return raw;
+    }
+
+    // === PARALLEL WORK ===
+
+    /**
+     * Runs the body for every index in [0, count) on the pool and waits for all of them.
+     * Indices are processed in no particular order; the first exception thrown is rethrown.
+     */
+    static void forEach(ForkJoinPool pool, int count, IntConsumer body) {
+        if (count > 0) {
+            pool.invoke(new RangeTask(body, 0, count));
+        }
+    }
+
+    /**
+     * Splits a range of indices until it is small enough to process directly.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private final IntConsumer body;
+        private final int from;
+        private final int to;
+
+        RangeTask(IntConsumer body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNKS_PER_TASK) {
+                for (int index = from; index < to; index++) {
+                    body.accept(index);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid), new RangeTask(body, mid, to));
+        }
+    }
+}
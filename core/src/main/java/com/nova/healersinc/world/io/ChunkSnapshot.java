@@ -0,0 +1,151 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.world.map.WorldMap;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Encoded chunk blocks (see {@link SaveGame} for their layout) plus the camera and the colony's
+ * stock at the time they were taken: what one autosave appends to the journal and what a
+ * compacted save holds.
+ * Blocks either live in this snapshot's own buffer or point into a save file read into memory;
+ * a later block for the same chunk replaces the earlier one. Blocks from {@link #encode} start
+ * out uncompressed and have to be {@linkplain #compress compressed} before they are written.
+ */
+final class ChunkSnapshot {
+
+    float cameraX;
+    float cameraY;
+    float cameraZoom = 1f;
+    /** Inventory outside storages per {@link HerbForm#item}; storages save their own contents */
+    final long[] stock = new long[HerbForm.ITEM_COUNT];
+
+    private final int chunksX;
+    private final IntIntMap entryByChunk = new IntIntMap();
+    private final IntArray chunkX = new IntArray();
+    private final IntArray chunkY = new IntArray();
+    private final Array<ByteBuffer> sources = new Array<>();
+    private final IntArray offsets = new IntArray();
+    private final IntArray lengths = new IntArray();
+    private final BitSet uncompressed = new BitSet();
+
+    // Blocks encoded by this snapshot; replaced when full, earlier blocks keep the old buffer
+    private ByteBuffer encoded;
+
+    ChunkSnapshot(int chunksX) {
+        this.chunksX = chunksX;
+    }
+
+    /**
+     * Encodes the current state of the chunk. Cheap enough for the game thread: one pass over
+     * the chunk's tiles into a reused heap buffer; compression is left to {@link #compress}.
+     */
+    void encode(WorldMap worldMap, int chunkX, int chunkY) {
+        if (encoded == null || encoded.remaining() < SaveGame.MAX_CHUNK_BYTES) {
+            encoded = ByteBuffer.allocate(Math.max(SaveGame.MAX_CHUNK_BYTES, encoded == null ? 0 : encoded.capacity() * 2));
+        }
+
+        int offset = encoded.position();
+        SaveGame.encodeChunk(encoded, worldMap, chunkX, chunkY);
+        put(chunkX, chunkY, encoded, offset, encoded.position() - offset);
+        uncompressed.set(entryByChunk.get(chunkY * chunksX + chunkX, -1));
+    }
+
+    /**
+     * Compresses every block added by {@link #encode}, spread over the pool.
+     */
+    void compress(ForkJoinPool pool) {
+        final int[] entries = new int[uncompressed.cardinality()];
+        for (int entry = uncompressed.nextSetBit(0), i = 0; entry >= 0; entry = uncompressed.nextSetBit(entry + 1)) {
+            entries[i++] = entry;
+        }
+
+        final ByteBuffer[] compressed = new ByteBuffer[entries.length];
+        ChunkCodec.forEach(pool, entries.length, new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                compressed[i] = ChunkCodec.compress(block(entries[i]));
+            }
+        });
+
+        for (int i = 0; i < entries.length; i++) {
+            put(chunkX.get(entries[i]), chunkY.get(entries[i]), compressed[i], 0, compressed[i].limit());
+        }
+    }
+
+    void checkCompressed() {
+        if (!uncompressed.isEmpty()) {
+            throw new IllegalStateException(uncompressed.cardinality() + " blocks are not compressed yet");
+        }
+    }
+
+    /**
+     * Adds a block that lives in the given buffer, replacing any earlier block of that chunk.
+     */
+    void put(int chunkX, int chunkY, ByteBuffer source, int offset, int length) {
+        int chunkIndex = chunkY * chunksX + chunkX;
+        int entry = entryByChunk.get(chunkIndex, -1);
+        if (entry < 0) {
+            entryByChunk.put(chunkIndex, size());
+            this.chunkX.add(chunkX);
+            this.chunkY.add(chunkY);
+            sources.add(source);
+            offsets.add(offset);
+            lengths.add(length);
+            return;
+        }
+
+        uncompressed.clear(entry);
+        sources.set(entry, source);
+        offsets.set(entry, offset);
+        lengths.set(entry, length);
+    }
+
+    /**
+     * Copies the camera, the stock and every block of the other snapshot into this one.
+     */
+    void putAll(ChunkSnapshot other) {
+        other.checkCompressed();
+        cameraX = other.cameraX;
+        cameraY = other.cameraY;
+        cameraZoom = other.cameraZoom;
+        System.arraycopy(other.stock, 0, stock, 0, stock.length);
+        for (int entry = 0; entry < other.size(); entry++) {
+            put(other.getChunkX(entry), other.getChunkY(entry), other.sources.get(entry),
+                other.offsets.get(entry), other.lengths.get(entry));
+        }
+    }
+
+    int size() {
+        return chunkX.size;
+    }
+
+    int getChunkX(int entry) {
+        return chunkX.get(entry);
+    }
+
+    int getChunkY(int entry) {
+        return chunkY.get(entry);
+    }
+
+    int getLength(int entry) {
+        return lengths.get(entry);
+    }
+
+    /**
+     * A view of the entry's block with its own position and limit, safe to read from any thread.
+     */
+    ByteBuffer block(int entry) {
+        ByteBuffer block = sources.get(entry).duplicate();
+        block.limit(offsets.get(entry) + lengths.get(entry));
+        block.position(offsets.get(entry));
+        return block;
+    }
+}
@@ -0,0 +1,731 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.building.BuildingType;
+import com.nova.healersinc.building.DryingRack;
+import com.nova.healersinc.building.Harvester;
+import com.nova.healersinc.building.ProductionBuilding;
+import com.nova.healersinc.building.Storage;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.world.herb.HerbNode;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.StreamingTileStorage;
+import com.nova.healersinc.world.map.TileStorage;
+import com.nova.healersinc.world.map.WorldGenerator;
+import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saved game: the world seed, the colony's stock, and every chunk the player has changed, each
+ * stored as an independently addressable block. Chunks that are not saved are generated again
+ * from the seed.
+ * <p>
+ * A save is a base file with an index, and a journal of later changes appended by
+ * {@link Autosave}; loading replays the journal over the base. {@link #open(File, File)} reads
+ * both files into memory and only parses headers, index and frame headers. Chunks are decoded
+ * on demand through {@link #savedChunks(WorldMap)}, so loading costs what is on screen, not
+ * what is in the save. The files are read rather than mapped: a mapping is only released once
+ * it is garbage collected, and Windows refuses to replace a mapped file, which compaction does.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * base:    int magic, int version, int generatorVersion, long seed, int layout, int width, int height,
+ *          long saveId, float cameraX, float cameraY, float cameraZoom, stock, int chunkCount
+ *          chunkCount x (int chunkX, int chunkY, long offset, int length)
+ *          chunk blocks, at their offsets
+ * journal: int magic, int version, long saveId (of the base it extends)
+ *          frames of (int frameMagic, int length, payload, int crc32 of payload)
+ *          payload: float cameraX, float cameraY, float cameraZoom, stock, int chunkCount,
+ *                   chunkCount x (int chunkX, int chunkY, int length, chunk block)
+ * stock:   int itemCount, itemCount x long amount, by {@link HerbForm#item}; the inventory
+ *          outside storages, whose contents are saved with them
+ * chunk block, compressed on its own (see {@link ChunkCodec}):
+ *   biome runs,          see {@link ChunkCodec}
+ *   short herbCount,     herbCount     x (short cell, byte herbOrdinal, int maxYield, int currentYield,
+ *                                         float potency, float regrowthRate)
+ *   short buildingCount, buildingCount x (short cell, byte typeOrdinal, byte active, type state)
+ *   Harvester state:   float harvestTimer, int totalHarvested
+ *   Drying rack state: byte herbOrdinal (-1 for none), int input, int output, float secondsLeft
+ *   Storage state:     byte itemCount, itemCount x (byte item, int amount), see {@link HerbForm#item}
+ * </pre>
+ * Biome runs cover the chunk's tiles inside the world row by row; cells are
+ * localY * CHUNK_SIZE + localX. Compressing every block separately keeps them independently
+ * addressable, and lets autosaves compress and loads decode on as many threads as there are.
+ * A journal whose saveId does not match the base, and anything after the first incomplete or
+ * damaged frame, is ignored.
+ */
+public final class SaveGame {
+
+    private static final int MAGIC = 0x48495347; // "HISG"
+    private static final int VERSION = 4;
+    private static final int JOURNAL_MAGIC = 0x4849534a; // "HISJ"
+    private static final int JOURNAL_VERSION = 3;
+    private static final int FRAME_MAGIC = 0x46524d45; // "FRME"
+
+    private static final int HEADER_BYTES = 56;
+    private static final int INDEX_ENTRY_BYTES = 20;
+    private static final int JOURNAL_HEADER_BYTES = 16;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int FRAME_RECORD_BYTES = 12;
+    private static final int STOCK_BYTES = 4 + 8 * HerbForm.ITEM_COUNT;
+    // Camera, an empty stock and the chunk count
+    private static final int MIN_PAYLOAD_BYTES = 20;
+
+    private static final int HERB_BYTES = 19;
+    private static final int BUILDING_BYTES = 4;
+    private static final int HARVESTER_STATE_BYTES = 8;
+    private static final int PRODUCTION_STATE_BYTES = 13;
+    private static final int STORAGE_STATE_BYTES = 1 + 5 * HerbForm.ITEM_COUNT;
+    private static final int MAX_STATE_BYTES =
+        Math.max(HARVESTER_STATE_BYTES, Math.max(PRODUCTION_STATE_BYTES, STORAGE_STATE_BYTES));
+
+    /** Upper bound on the size of one chunk block before compression */
+    static final int MAX_CHUNK_BYTES = ChunkCodec.MAX_BIOME_BYTES + 4
+        + ChunkCodec.TILES_PER_CHUNK * (HERB_BYTES + BUILDING_BYTES + MAX_STATE_BYTES);
+
+    /**
+     * What the world of a save is generated from.
+     */
+    public static final class Header {
+        private final int generatorVersion;
+        private final long seed;
+        private final WorldGenerator.BiomeLayout layout;
+        private final int width;
+        private final int height;
+
+        public Header(long seed, WorldGenerator.BiomeLayout layout, int width, int height) {
+            this(WorldGenerator.VERSION, seed, layout, width, height);
+        }
+
+        private Header(int generatorVersion, long seed, WorldGenerator.BiomeLayout layout, int width, int height) {
+            this.generatorVersion = generatorVersion;
+            this.seed = seed;
+            this.layout = layout;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * World generator version the save was made with; chunks that are not saved are only
+         * generated exactly as the player saw them if it matches {@link WorldGenerator#VERSION}.
+         */
+        public int getGeneratorVersion() {
+            return generatorVersion;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public WorldGenerator.BiomeLayout getLayout() {
+            return layout;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    private final Header header;
+    private final long saveId;
+    private final ChunkSnapshot chunks;
+    private final int journalFrames;
+    private final boolean journalClean;
+
+    private SaveGame(Header header, long saveId, ChunkSnapshot chunks, int journalFrames, boolean journalClean) {
+        this.header = header;
+        this.saveId = saveId;
+        this.chunks = chunks;
+        this.journalFrames = journalFrames;
+        this.journalClean = journalClean;
+    }
+
+    /**
+     * Reads the save and its journal (which may be missing) and parses their headers and
+     * indices. Chunk data stays compressed until it is restored. No file stays open.
+     *
+     * @throws IOException if the base file cannot be read or is not a valid save
+     */
+    public static SaveGame open(File file, File journalFile) throws IOException {
+        ByteBuffer data = read(file);
+        try {
+            if (data.limit() < HEADER_BYTES || data.getInt() != MAGIC) {
+                throw new IOException("Not a saved game: " + file);
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save version " + version);
+            }
+
+            int generatorVersion = data.getInt();
+            long seed = data.getLong();
+            int layoutOrdinal = data.getInt();
+            int width = data.getInt();
+            int height = data.getInt();
+            long saveId = data.getLong();
+
+            WorldGenerator.BiomeLayout[] layouts = WorldGenerator.BiomeLayout.values();
+            if (layoutOrdinal < 0 || layoutOrdinal >= layouts.length || width <= 0 || height <= 0) {
+                throw new IOException("Corrupt save header");
+            }
+            Header header = new Header(generatorVersion, seed, layouts[layoutOrdinal], width, height);
+
+            ChunkSnapshot chunks = new ChunkSnapshot((width + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE);
+            chunks.cameraX = data.getFloat();
+            chunks.cameraY = data.getFloat();
+            chunks.cameraZoom = data.getFloat();
+            if (!readStock(data, chunks.stock)) {
+                throw new IOException("Corrupt save stock");
+            }
+            int chunkCount = data.getInt();
+            if (chunkCount < 0) {
+                throw new IOException("Corrupt save header");
+            }
+
+            for (int entry = 0; entry < chunkCount; entry++) {
+                int chunkX = data.getInt();
+                int chunkY = data.getInt();
+                long offset = data.getLong();
+                int length = data.getInt();
+                if (offset < HEADER_BYTES || length < 0 || offset + length > data.limit()) {
+                    throw new IOException("Corrupt save index entry " + entry);
+                }
+                chunks.put(chunkX, chunkY, data, (int) offset, length);
+            }
+
+            if (!journalFile.isFile()) {
+                return new SaveGame(header, saveId, chunks, 0, false);
+            }
+            return replayJournal(header, saveId, chunks, read(journalFile));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated save: " + file, e);
+        }
+    }
+
+    /**
+     * Applies the frames of the journal in order, stopping at the first one that is incomplete
+     * or damaged (e.g. the game was killed while appending it).
+     */
+    private static SaveGame replayJournal(Header header, long saveId, ChunkSnapshot chunks, ByteBuffer journal) {
+        if (journal.limit() < JOURNAL_HEADER_BYTES || journal.getInt() != JOURNAL_MAGIC
+            || journal.getInt() != JOURNAL_VERSION || journal.getLong() != saveId) {
+            return new SaveGame(header, saveId, chunks, 0, false);
+        }
+
+        CRC32 crc = new CRC32();
+        int frames = 0;
+        while (journal.remaining() >= FRAME_HEADER_BYTES) {
+            int frameStart = journal.position();
+            int length = journal.getInt(frameStart + 4);
+            if (journal.getInt(frameStart) != FRAME_MAGIC || length < MIN_PAYLOAD_BYTES
+                || journal.remaining() < FRAME_HEADER_BYTES + length + 4) {
+                break;
+            }
+
+            ByteBuffer payload = journal.duplicate();
+            payload.limit(frameStart + FRAME_HEADER_BYTES + length);
+            payload.position(frameStart + FRAME_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != journal.getInt(frameStart + FRAME_HEADER_BYTES + length)) {
+                break;
+            }
+
+            if (!applyFrame(payload, chunks)) {
+                break;
+            }
+            journal.position(frameStart + FRAME_HEADER_BYTES + length + 4);
+            frames++;
+        }
+
+        return new SaveGame(header, saveId, chunks, frames, !journal.hasRemaining());
+    }
+
+    private static boolean applyFrame(ByteBuffer payload, ChunkSnapshot chunks) {
+        // Validate the whole frame first, a damaged frame must not be applied halfway
+        ByteBuffer check = payload.duplicate();
+        check.position(check.position() + 12);
+        if (!readStock(check, new long[HerbForm.ITEM_COUNT]) || check.remaining() < 4) return false;
+        int chunkCount = check.getInt();
+        for (int i = 0; i < chunkCount; i++) {
+            if (check.remaining() < FRAME_RECORD_BYTES) return false;
+            check.position(check.position() + 8);
+            int length = check.getInt();
+            if (length < 0 || check.remaining() < length) return false;
+            check.position(check.position() + length);
+        }
+
+        chunks.cameraX = payload.getFloat();
+        chunks.cameraY = payload.getFloat();
+        chunks.cameraZoom = payload.getFloat();
+        readStock(payload, chunks.stock);
+        payload.getInt();
+        for (int i = 0; i < chunkCount; i++) {
+            int chunkX = payload.getInt();
+            int chunkY = payload.getInt();
+            int length = payload.getInt();
+            chunks.put(chunkX, chunkY, payload, payload.position(), length);
+            payload.position(payload.position() + length);
+        }
+        return true;
+    }
+
+    /**
+     * Reads a stock section into the array. Items the save has more of than the game knows are
+     * skipped, ones it has fewer of are left at 0.
+     *
+     * @return false if the section does not fit in the buffer
+     */
+    private static boolean readStock(ByteBuffer buffer, long[] stock) {
+        int itemCount = buffer.getInt();
+        if (itemCount < 0 || buffer.remaining() < itemCount * 8L) {
+            return false;
+        }
+        for (int item = 0; item < itemCount; item++) {
+            long amount = buffer.getLong();
+            if (item < stock.length) {
+                stock[item] = Math.max(0, amount);
+            }
+        }
+        return true;
+    }
+
+    private static void writeStock(ByteBuffer buffer, long[] stock) {
+        buffer.putInt(stock.length);
+        for (long amount : stock) {
+            buffer.putLong(amount);
+        }
+    }
+
+    /**
+     * Chunks of this save, restoring into the given map. Buildings are created on the
+     * restoring thread and become part of the map once their chunk is installed.
+     */
+    public StreamingTileStorage.SavedChunks savedChunks(final WorldMap worldMap) {
+        if (worldMap.getWidth() != header.width || worldMap.getHeight() != header.height) {
+            throw new IllegalArgumentException("Save is for a " + header.width + "x" + header.height + " world");
+        }
+
+        return new StreamingTileStorage.SavedChunks() {
+            @Override
+            public int size() {
+                return chunks.size();
+            }
+
+            @Override
+            public int getChunkX(int entry) {
+                return chunks.getChunkX(entry);
+            }
+
+            @Override
+            public int getChunkY(int entry) {
+                return chunks.getChunkY(entry);
+            }
+
+            @Override
+            public void restore(int entry, TileStorage target) {
+                try {
+                    decodeChunk(ChunkCodec.decompress(chunks.block(entry)),
+                        chunks.getChunkX(entry), chunks.getChunkY(entry), worldMap, target);
+                } catch (BufferUnderflowException e) {
+                    throw new GdxRuntimeException("Truncated chunk " + chunks.getChunkX(entry) + "," + chunks.getChunkY(entry), e);
+                }
+            }
+        };
+    }
+
+    // === WRITING ===
+
+    /**
+     * Writes a base file holding the snapshot's blocks, replacing the file atomically.
+     * The blocks must have been {@linkplain ChunkSnapshot#compress compressed}.
+     */
+    static void writeBase(File file, Header header, long saveId, ChunkSnapshot chunks) throws IOException {
+        chunks.checkCompressed();
+        int indexBytes = chunks.size() * INDEX_ENTRY_BYTES;
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + STOCK_BYTES + indexBytes);
+        head.putInt(MAGIC).putInt(VERSION).putInt(header.generatorVersion).putLong(header.seed)
+            .putInt(header.layout.ordinal()).putInt(header.width).putInt(header.height).putLong(saveId)
+            .putFloat(chunks.cameraX).putFloat(chunks.cameraY).putFloat(chunks.cameraZoom);
+        writeStock(head, chunks.stock);
+        head.putInt(chunks.size());
+
+        long offset = head.capacity();
+        for (int entry = 0; entry < chunks.size(); entry++) {
+            head.putInt(chunks.getChunkX(entry)).putInt(chunks.getChunkY(entry)).putLong(offset).putInt(chunks.getLength(entry));
+            offset += chunks.getLength(entry);
+        }
+        head.flip();
+
+        File tempFile = tempFileFor(file);
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, head);
+            for (int entry = 0; entry < chunks.size(); entry++) {
+                writeFully(channel, chunks.block(entry));
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+        replace(tempFile, file);
+    }
+
+    /**
+     * Starts an empty journal for the base with the given id, replacing the file atomically.
+     * Never truncated in place, so a crash leaves either the old journal or the new one.
+     */
+    static void createJournal(File file, long saveId) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+        head.putInt(JOURNAL_MAGIC).putInt(JOURNAL_VERSION).putLong(saveId).flip();
+
+        File tempFile = tempFileFor(file);
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, head);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+        replace(tempFile, file);
+    }
+
+    /**
+     * Appends the snapshot as one frame and waits until it is on disk.
+     *
+     * The blocks must have been {@linkplain ChunkSnapshot#compress compressed}.
+     *
+     * @return the journal size afterwards
+     */
+    static long appendFrame(File journalFile, ChunkSnapshot chunks) throws IOException {
+        chunks.checkCompressed();
+        int payloadBytes = 16 + STOCK_BYTES;
+        for (int entry = 0; entry < chunks.size(); entry++) {
+            payloadBytes += FRAME_RECORD_BYTES + chunks.getLength(entry);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payloadBytes + 4);
+        frame.putInt(FRAME_MAGIC).putInt(payloadBytes);
+        frame.putFloat(chunks.cameraX).putFloat(chunks.cameraY).putFloat(chunks.cameraZoom);
+        writeStock(frame, chunks.stock);
+        frame.putInt(chunks.size());
+        for (int entry = 0; entry < chunks.size(); entry++) {
+            frame.putInt(chunks.getChunkX(entry)).putInt(chunks.getChunkY(entry)).putInt(chunks.getLength(entry));
+            frame.put(chunks.block(entry));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, payloadBytes);
+        frame.putInt((int) crc.getValue());
+        frame.flip();
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, frame);
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    /**
+     * Reads the whole file into a heap buffer; saves hold compressed changed chunks only, a few
+     * megabytes at most between compactions.
+     */
+    private static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Save too large: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Until the end, in case the file shrinks meanwhile
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static File tempFileFor(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private static void replace(File tempFile, File file) throws IOException {
+        // A crash before this point leaves the previous file intact
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // === CHUNK BLOCKS ===
+
+    /**
+     * Appends the uncompressed block of the chunk to the buffer, which needs
+     * {@link #MAX_CHUNK_BYTES} room.
+     */
+    static void encodeChunk(ByteBuffer buffer, WorldMap worldMap, int chunkX, int chunkY) {
+        int fromX = chunkX * WorldMap.CHUNK_SIZE;
+        int fromY = chunkY * WorldMap.CHUNK_SIZE;
+        int toX = Math.min(worldMap.getWidth(), fromX + WorldMap.CHUNK_SIZE);
+        int toY = Math.min(worldMap.getHeight(), fromY + WorldMap.CHUNK_SIZE);
+
+        ChunkCodec.encodeBiomes(buffer, worldMap, fromX, fromY, toX, toY);
+
+        int herbCountPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int herbCount = 0;
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                ResourceNode<?> node = worldMap.getResourceNode(x, y);
+                if (!(node instanceof HerbNode)) continue;
+
+                HerbNode herb = (HerbNode) node;
+                buffer.putShort((short) cell(x - fromX, y - fromY))
+                    .put((byte) herb.getType().ordinal())
+                    .putInt(herb.getMaxYield())
+                    .putInt(herb.getCurrentYield())
+                    .putFloat(herb.getPotency())
+                    .putFloat(herb.getRegrowthRate());
+                herbCount++;
+            }
+        }
+        buffer.putShort(herbCountPosition, (short) herbCount);
+
+        int buildingCountPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int buildingCount = 0;
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                Building building = worldMap.getBuilding(x, y);
+                if (building == null) continue;
+
+                buffer.putShort((short) cell(x - fromX, y - fromY))
+                    .put((byte) building.getType().ordinal())
+                    .put((byte) (building.isActive() ? 1 : 0));
+                encodeBuildingState(buffer, building);
+                buildingCount++;
+            }
+        }
+        buffer.putShort(buildingCountPosition, (short) buildingCount);
+    }
+
+    private static void encodeBuildingState(ByteBuffer buffer, Building building) {
+        switch (building.getType()) {
+            case HARVESTER:
+                Harvester harvester = (Harvester) building;
+                buffer.putFloat(harvester.getHarvestTimer()).putInt(harvester.getTotalHarvested());
+                break;
+            case DRYING_RACK:
+                ProductionBuilding production = (ProductionBuilding) building;
+                buffer.put((byte) (production.getHerb() == null ? -1 : production.getHerb().ordinal()))
+                    .putInt(production.getInput())
+                    .putInt(production.getOutput())
+                    .putFloat(production.getSecondsLeft());
+                break;
+            case STORAGE:
+                Storage storage = (Storage) building;
+                int itemCountPosition = buffer.position();
+                buffer.put((byte) 0);
+                int itemCount = 0;
+                for (int item = 0; item < HerbForm.ITEM_COUNT; item++) {
+                    int amount = storage.getAmount(HerbForm.formOf(item), HerbForm.herbOf(item));
+                    if (amount > 0) {
+                        buffer.put((byte) item).putInt(amount);
+                        itemCount++;
+                    }
+                }
+                buffer.put(itemCountPosition, (byte) itemCount);
+                break;
+            default:
+                throw new GdxRuntimeException("Cannot save building type " + building.getType());
+        }
+    }
+
+    /**
+     * Decodes an uncompressed block into the target, which receives the chunk's tiles in world
+     * coordinates.
+     *
+     * @throws GdxRuntimeException if the block is corrupt
+     */
+    static void decodeChunk(ByteBuffer block, int chunkX, int chunkY, WorldMap worldMap, TileStorage target) {
+        int fromX = chunkX * WorldMap.CHUNK_SIZE;
+        int fromY = chunkY * WorldMap.CHUNK_SIZE;
+        int chunkWidth = Math.min(worldMap.getWidth(), fromX + WorldMap.CHUNK_SIZE) - fromX;
+        int tileCount = chunkWidth * (Math.min(worldMap.getHeight(), fromY + WorldMap.CHUNK_SIZE) - fromY);
+
+        byte[] biomeIds;
+        try {
+            biomeIds = ChunkCodec.decodeBiomes(block, chunkWidth, tileCount);
+        } catch (GdxRuntimeException e) {
+            throw new GdxRuntimeException("Corrupt biomes in chunk " + chunkX + "," + chunkY, e);
+        }
+        for (int tile = 0, y = fromY; tile < tileCount; y++) {
+            for (int x = fromX; x < fromX + chunkWidth; x++, tile++) {
+                target.setBiome(x, y, TileStorage.decodeBiome(biomeIds[tile]));
+            }
+        }
+
+        HerbType[] herbTypes = HerbType.values();
+        int herbCount = block.getShort();
+        for (int i = 0; i < herbCount; i++) {
+            int cell = block.getShort();
+            int ordinal = block.get();
+            int maxYield = block.getInt();
+            int currentYield = block.getInt();
+            float potency = block.getFloat();
+            float regrowthRate = block.getFloat();
+            if (ordinal < 0 || ordinal >= herbTypes.length) {
+                throw new GdxRuntimeException("Corrupt herb record in chunk " + chunkX + "," + chunkY);
+            }
+
+            HerbNode node = new HerbNode(herbTypes[ordinal], maxYield, potency, regrowthRate);
+            node.setCurrentYield(currentYield);
+            target.setResourceNode(fromX + cellX(cell), fromY + cellY(cell), node);
+        }
+
+        BuildingType[] buildingTypes = BuildingType.values();
+        int buildingCount = block.getShort();
+        for (int i = 0; i < buildingCount; i++) {
+            int cell = block.getShort();
+            int ordinal = block.get();
+            boolean active = block.get() != 0;
+            if (ordinal < 0 || ordinal >= buildingTypes.length) {
+                throw new GdxRuntimeException("Corrupt building record in chunk " + chunkX + "," + chunkY);
+            }
+
+            int x = fromX + cellX(cell);
+            int y = fromY + cellY(cell);
+            Building building = decodeBuilding(block, buildingTypes[ordinal], worldMap, x, y);
+            if (!active) {
+                building.setActive(false);
+            }
+            target.setBuilding(x, y, building);
+        }
+    }
+
+    private static Building decodeBuilding(ByteBuffer block, BuildingType type, WorldMap worldMap, int x, int y) {
+        switch (type) {
+            case HARVESTER:
+                Harvester harvester = new Harvester(worldMap.getTile(x, y), worldMap);
+                harvester.setHarvestTimer(block.getFloat());
+                harvester.setTotalHarvested(block.getInt());
+                return harvester;
+            case DRYING_RACK:
+                DryingRack rack = new DryingRack(worldMap.getTile(x, y));
+                int herb = block.get();
+                int input = block.getInt();
+                int output = block.getInt();
+                float secondsLeft = block.getFloat();
+                if (herb < -1 || herb >= HerbType.values().length) {
+                    throw new GdxRuntimeException("Corrupt drying rack at " + x + "," + y);
+                }
+                rack.restore(herb < 0 ? null : HerbType.values()[herb], input, output, secondsLeft);
+                return rack;
+            case STORAGE:
+                Storage storage = new Storage(worldMap.getTile(x, y));
+                int itemCount = block.get();
+                for (int i = 0; i < itemCount; i++) {
+                    int item = block.get();
+                    int amount = block.getInt();
+                    if (item < 0 || item >= HerbForm.ITEM_COUNT) {
+                        throw new GdxRuntimeException("Corrupt storage at " + x + "," + y);
+                    }
+                    storage.setAmount(HerbForm.formOf(item), HerbForm.herbOf(item), amount);
+                }
+                return storage;
+            default:
+                throw new GdxRuntimeException("Cannot restore building type " + type);
+        }
+    }
+
+    private static int cell(int localX, int localY) {
+        return localY * WorldMap.CHUNK_SIZE + localX;
+    }
+
+    private static int cellX(int cell) {
+        return cell % WorldMap.CHUNK_SIZE;
+    }
+
+    private static int cellY(int cell) {
+        return cell / WorldMap.CHUNK_SIZE;
+    }
+
+    // === ACCESSORS ===
+
+    public Header getHeader() {
+        return header;
+    }
+
+    long getSaveId() {
+        return saveId;
+    }
+
+    /**
+     * All saved blocks, the journal applied.
+     */
+    ChunkSnapshot getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Number of journal frames replayed over the base.
+     */
+    public int getJournalFrames() {
+        return journalFrames;
+    }
+
+    /**
+     * True if the journal belongs to the base and was read to its end, so new frames can be
+     * appended to it as is.
+     */
+    boolean isJournalClean() {
+        return journalClean;
+    }
+
+    public float getCameraX() {
+        return chunks.cameraX;
+    }
+
+    public float getCameraY() {
+        return chunks.cameraY;
+    }
+
+    public float getCameraZoom() {
+        return chunks.cameraZoom;
+    }
+
+    /**
+     * Saved inventory outside storages, per {@link HerbForm#item}.
+     */
+    public long[] getStock() {
+        return chunks.stock.clone();
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+}
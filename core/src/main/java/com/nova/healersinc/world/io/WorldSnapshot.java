@@ -0,0 +1,254 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.map.TileStorage;
+import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Compact binary image of a generated world: one compressed block per chunk, in the same
+ * format as the chunk blocks of a {@link SaveGame}, behind an index of all chunks. Buildings
+ * are not part of a snapshot.
+ * <p>
+ * Chunks are encoded and decoded independently, so both directions are spread over a fork-join
+ * pool, and any chunk can be read without touching the others.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * int magic, int version, long key, int width, int height, int chunkCount
+ * chunkCount x (long offset, int length), chunks in row-major order
+ * compressed chunk blocks, at their offsets
+ * </pre>
+ */
+public final class WorldSnapshot {
+
+    private static final int MAGIC = 0x48495753; // "HIWS"
+    private static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 28;
+    private static final int INDEX_ENTRY_BYTES = 12;
+
+    private static final ThreadLocal<ChunkBuffer> chunkBuffers = new ThreadLocal<ChunkBuffer>() {
+        @Override
+        protected ChunkBuffer initialValue() {
+            return new ChunkBuffer();
+        }
+    };
+
+    private WorldSnapshot() {
+    }
+
+    /**
+     * Writes the biomes and herb nodes of the map to the file, replacing it. Chunks are encoded
+     * and compressed on the pool, then written in order by the calling thread.
+     */
+    public static void write(final WorldMap worldMap, long key, File file, ForkJoinPool pool) throws IOException {
+        final int chunksX = worldMap.getChunksX();
+        int chunkCount = chunksX * worldMap.getChunksY();
+
+        final ByteBuffer[] blocks = new ByteBuffer[chunkCount];
+        ChunkCodec.forEach(pool, chunkCount, new IntConsumer() {
+            @Override
+            public void accept(int chunk) {
+                blocks[chunk] = ChunkCodec.encodeCompressed(worldMap, chunk % chunksX, chunk / chunksX);
+            }
+        });
+
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + chunkCount * INDEX_ENTRY_BYTES);
+        head.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(worldMap.getWidth()).putInt(worldMap.getHeight()).putInt(chunkCount);
+        long offset = head.capacity();
+        for (ByteBuffer block : blocks) {
+            head.putLong(offset).putInt(block.remaining());
+            offset += block.remaining();
+        }
+        head.flip();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, head);
+            for (ByteBuffer block : blocks) {
+                writeFully(channel, block);
+            }
+        }
+    }
+
+    public static void write(WorldMap worldMap, long key, File file) throws IOException {
+        write(worldMap, key, file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads a snapshot into the (empty) map. Chunks are decompressed and decoded on the pool;
+     * only copying the decoded tiles into the map is serialized.
+     *
+     * @return false if the file is not a snapshot for the given key and map size
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public static boolean read(File file, long key, final WorldMap worldMap, ForkJoinPool pool) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return false;
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != key) {
+                return false;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (width != worldMap.getWidth() || height != worldMap.getHeight()) {
+                return false;
+            }
+
+            final int chunksX = worldMap.getChunksX();
+            int chunkCount = buffer.getInt();
+            if (chunkCount != chunksX * worldMap.getChunksY()) {
+                throw new IOException("World snapshot holds " + chunkCount + " chunks");
+            }
+
+            final int[] offsets = new int[chunkCount];
+            final int[] lengths = new int[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                if (offset < HEADER_BYTES || length < 4 || offset + length > buffer.capacity()) {
+                    throw new IOException("Corrupt world snapshot index entry " + chunk);
+                }
+                offsets[chunk] = (int) offset;
+                lengths[chunk] = length;
+            }
+
+            ChunkCodec.forEach(pool, chunkCount, new IntConsumer() {
+                @Override
+                public void accept(int chunk) {
+                    ByteBuffer block = buffer.duplicate();
+                    block.limit(offsets[chunk] + lengths[chunk]);
+                    block.position(offsets[chunk]);
+                    readChunk(block, chunk % chunksX, chunk / chunksX, worldMap);
+                }
+            });
+
+            worldMap.compact();
+            return true;
+        } catch (BufferUnderflowException | GdxRuntimeException e) {
+            throw new IOException("Corrupt world snapshot: " + file, e);
+        }
+    }
+
+    public static boolean read(File file, long key, WorldMap worldMap) throws IOException {
+        return read(file, key, worldMap, ForkJoinPool.commonPool());
+    }
+
+    private static void readChunk(ByteBuffer block, int chunkX, int chunkY, WorldMap worldMap) {
+        ChunkBuffer chunk = chunkBuffers.get();
+        chunk.reset(worldMap, chunkX, chunkY);
+        SaveGame.decodeChunk(ChunkCodec.decompress(block), chunkX, chunkY, worldMap, chunk);
+
+        // Storage writes are not thread-safe
+        synchronized (worldMap) {
+            chunk.copyTo(worldMap);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * One chunk's biomes and resource nodes, in world coordinates, decoded off the map so
+     * decoding does not have to hold the map's lock.
+     */
+    private static final class ChunkBuffer implements TileStorage {
+        private final BiomeType[] biomes = new BiomeType[ChunkCodec.TILES_PER_CHUNK];
+        private final ResourceNode<?>[] resourceNodes = new ResourceNode<?>[ChunkCodec.TILES_PER_CHUNK];
+        private int width;
+        private int height;
+        private int originX;
+        private int originY;
+
+        void reset(WorldMap worldMap, int chunkX, int chunkY) {
+            width = worldMap.getWidth();
+            height = worldMap.getHeight();
+            originX = chunkX * WorldMap.CHUNK_SIZE;
+            originY = chunkY * WorldMap.CHUNK_SIZE;
+            // A chunk that failed to decode may have left nodes behind
+            Arrays.fill(resourceNodes, null);
+        }
+
+        void copyTo(WorldMap worldMap) {
+            int toX = Math.min(width, originX + WorldMap.CHUNK_SIZE);
+            int toY = Math.min(height, originY + WorldMap.CHUNK_SIZE);
+            for (int y = originY; y < toY; y++) {
+                for (int x = originX; x < toX; x++) {
+                    int cell = cellOf(x, y);
+                    worldMap.setBiome(x, y, biomes[cell]);
+                    if (resourceNodes[cell] != null) {
+                        worldMap.setResourceNode(x, y, resourceNodes[cell]);
+                    }
+                }
+            }
+        }
+
+        private int cellOf(int x, int y) {
+            return (y - originY) * WorldMap.CHUNK_SIZE + (x - originX);
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public BiomeType getBiome(int x, int y) {
+            return biomes[cellOf(x, y)];
+        }
+
+        @Override
+        public void setBiome(int x, int y, BiomeType biome) {
+            biomes[cellOf(x, y)] = biome;
+        }
+
+        @Override
+        public ResourceNode<?> getResourceNode(int x, int y) {
+            return resourceNodes[cellOf(x, y)];
+        }
+
+        @Override
+        public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+            resourceNodes[cellOf(x, y)] = resourceNode;
+        }
+
+        @Override
+        public Building getBuilding(int x, int y) {
+            return null;
+        }
+
+        @Override
+        public void setBuilding(int x, int y, Building building) {
+            throw new GdxRuntimeException("World snapshots hold no buildings");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.nova.healersinc.world.io;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.nova.healersinc.world.map.WorldGenerator;
+import com.nova.healersinc.world.map.WorldMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Directory of {@link WorldSnapshot}s for generated worlds, so a world whose inputs have not
+ * changed is read back instead of generated again. The key covers everything generation
+ * depends on: seed, size, biome layout, generator version and the config files.
+ * The cache is best effort: unreadable or stale files count as a miss.
+ */
+public class WorldSnapshotCache {
+
+    private static final String TAG = "WorldSnapshotCache";
+
+    private final File directory;
+
+    public WorldSnapshotCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Hashes the generation inputs into a cache key.
+     */
+    public static long key(long seed, int width, int height, WorldGenerator.BiomeLayout layout, FileHandle... configFiles) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GdxRuntimeException("SHA-256 not available", e);
+        }
+
+        ByteBuffer inputs = ByteBuffer.allocate(24);
+        inputs.putLong(seed).putInt(width).putInt(height).putInt(layout.ordinal()).putInt(WorldGenerator.VERSION);
+        digest.update(inputs.array());
+
+        for (FileHandle configFile : configFiles) {
+            digest.update(configFile.readBytes());
+        }
+
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    /**
+     * Fills the (empty) map from the snapshot stored under the key, decoding on the pool.
+     *
+     * @return false if there is no usable snapshot; the map may then hold partial data and
+     * has to be generated as usual
+     */
+    public boolean load(long key, WorldMap worldMap, ForkJoinPool pool) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            if (!WorldSnapshot.read(file, key, worldMap, pool)) {
+                Gdx.app.log(TAG, "Ignoring stale snapshot " + file.getName());
+                return false;
+            }
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not read snapshot " + file.getName() + ", discarding it", e);
+            file.delete();
+            return false;
+        }
+
+        Gdx.app.log(TAG, String.format("Loaded %s (%d KB) in %.0f ms on %d thread(s)",
+            file.getName(), file.length() / 1024, (System.nanoTime() - startTime) / 1e6, pool.getParallelism()));
+        return true;
+    }
+
+    /**
+     * Stores a snapshot of the map under the key, encoding on the pool. Failures are logged,
+     * not thrown.
+     */
+    public void save(long key, WorldMap worldMap, ForkJoinPool pool) {
+        File file = fileFor(key);
+        File tempFile = new File(directory, file.getName() + ".tmp");
+
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+
+            // Write next to the target and move it in place, so a crash never leaves half a snapshot
+            long startTime = System.nanoTime();
+            WorldSnapshot.write(worldMap, key, tempFile, pool);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Gdx.app.log(TAG, String.format("Saved %s (%d KB) in %.0f ms on %d thread(s)",
+                file.getName(), file.length() / 1024, (System.nanoTime() - startTime) / 1e6, pool.getParallelism()));
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "Could not save snapshot " + file.getName(), e);
+            tempFile.delete();
+        }
+    }
+
+    private File fileFor(long key) {
+        return new File(directory, String.format("%016x.world", key));
+    }
+}
@@ -0,0 +1,167 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.util.Arrays;
+
+/**
+ * Tile storage split into {@link WorldMap#CHUNK_SIZE}-sized square chunks.
+ * A chunk is only allocated when a tile in it first diverges from the chunk's fill biome.
+ * Until then (and again after {@link #compact}) it is represented by a single biome byte,
+ * so untouched or uniform areas cost one byte and one null reference per chunk.
+ */
+public class ChunkedTileStorage implements TileStorage {
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(WorldMap.CHUNK_SIZE);
+    private static final int CHUNK_MASK = WorldMap.CHUNK_SIZE - 1;
+
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private final int chunksY;
+
+    private final TileChunk[] chunks;
+    private final byte[] fillBiomeIds;
+
+    public ChunkedTileStorage(int width, int height) {
+        this(width, height, null);
+    }
+
+    /**
+     * @param fillBiome Biome every tile starts with, or null for "no biome"
+     */
+    public ChunkedTileStorage(int width, int height, BiomeType fillBiome) {
+        this.width = width;
+        this.height = height;
+        this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+
+        this.chunks = new TileChunk[chunksX * chunksY];
+        this.fillBiomeIds = new byte[chunksX * chunksY];
+
+        byte fillId = TileStorage.encodeBiome(fillBiome);
+        if (fillId != 0) {
+            Arrays.fill(fillBiomeIds, fillId);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+    }
+
+    private static int cell(int x, int y) {
+        return TileChunk.cell(x & CHUNK_MASK, y & CHUNK_MASK);
+    }
+
+    private TileChunk materialize(int chunkIndex) {
+        TileChunk chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new TileChunk(fillBiomeIds[chunkIndex]);
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public BiomeType getBiome(int x, int y) {
+        int chunkIndex = chunkIndex(x, y);
+        TileChunk chunk = chunks[chunkIndex];
+        int biomeId = chunk == null ? fillBiomeIds[chunkIndex] : chunk.biomeIds[cell(x, y)];
+        return TileStorage.decodeBiome(biomeId);
+    }
+
+    @Override
+    public void setBiome(int x, int y, BiomeType biome) {
+        int chunkIndex = chunkIndex(x, y);
+        byte biomeId = TileStorage.encodeBiome(biome);
+
+        if (chunks[chunkIndex] == null && fillBiomeIds[chunkIndex] == biomeId) {
+            return;
+        }
+        materialize(chunkIndex).biomeIds[cell(x, y)] = biomeId;
+    }
+
+    @Override
+    public ResourceNode<?> getResourceNode(int x, int y) {
+        TileChunk chunk = chunks[chunkIndex(x, y)];
+        return chunk == null ? null : chunk.getResourceNode(cell(x, y));
+    }
+
+    @Override
+    public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+        int chunkIndex = chunkIndex(x, y);
+        if (resourceNode == null && chunks[chunkIndex] == null) {
+            return;
+        }
+        materialize(chunkIndex).setResourceNode(cell(x, y), resourceNode);
+    }
+
+    @Override
+    public Building getBuilding(int x, int y) {
+        TileChunk chunk = chunks[chunkIndex(x, y)];
+        return chunk == null ? null : chunk.getBuilding(cell(x, y));
+    }
+
+    @Override
+    public void setBuilding(int x, int y, Building building) {
+        int chunkIndex = chunkIndex(x, y);
+        if (building == null && chunks[chunkIndex] == null) {
+            return;
+        }
+        materialize(chunkIndex).setBuilding(cell(x, y), building);
+    }
+
+    @Override
+    public boolean isUniformChunk(int chunkX, int chunkY) {
+        return chunks[chunkY * chunksX + chunkX] == null;
+    }
+
+    @Override
+    public void compact(int fromX, int fromY, int toX, int toY) {
+        int fromChunkX = Math.max(0, fromX >> CHUNK_SHIFT);
+        int fromChunkY = Math.max(0, fromY >> CHUNK_SHIFT);
+        int toChunkX = Math.min(chunksX, (toX + CHUNK_MASK) >> CHUNK_SHIFT);
+        int toChunkY = Math.min(chunksY, (toY + CHUNK_MASK) >> CHUNK_SHIFT);
+
+        for (int cy = fromChunkY; cy < toChunkY; cy++) {
+            for (int cx = fromChunkX; cx < toChunkX; cx++) {
+                int chunkIndex = cy * chunksX + cx;
+                TileChunk chunk = chunks[chunkIndex];
+                if (chunk == null) continue;
+
+                int uniformId = chunk.uniformBiomeId();
+                if (uniformId >= 0) {
+                    fillBiomeIds[chunkIndex] = (byte) uniformId;
+                    chunks[chunkIndex] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of chunks currently backed by a materialized {@link TileChunk}.
+     */
+    public int getMaterializedChunkCount() {
+        int count = 0;
+        for (TileChunk chunk : chunks) {
+            if (chunk != null) count++;
+        }
+        return count;
+    }
+
+    public int getChunkCount() {
+        return chunks.length;
+    }
+}
@@ -0,0 +1,112 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+/**
+ * Structure-of-arrays tile storage.
+ * Biomes live in a row-major byte column and resource nodes / buildings are int handles
+ * into dense pools, so a full map costs 9 bytes per tile instead of a heap object per tile
+ * and scans over a row are cache-linear.
+ */
+public class DenseTileStorage implements TileStorage {
+
+    private final int width;
+    private final int height;
+
+    private final byte[] biomeIds;
+    private final int[] resourceHandles;
+    private final int[] buildingHandles;
+
+    private final HandlePool<ResourceNode<?>> resourceNodes;
+    private final HandlePool<Building> buildings;
+
+    public DenseTileStorage(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        int tileCount = width * height;
+        this.biomeIds = new byte[tileCount];
+        this.resourceHandles = new int[tileCount];
+        this.buildingHandles = new int[tileCount];
+
+        // Roughly 1% of tiles carry a node on a generated map
+        this.resourceNodes = new HandlePool<>(tileCount / 64);
+        this.buildings = new HandlePool<>(16);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    private int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public BiomeType getBiome(int x, int y) {
+        return TileStorage.decodeBiome(biomeIds[index(x, y)]);
+    }
+
+    @Override
+    public void setBiome(int x, int y, BiomeType biome) {
+        biomeIds[index(x, y)] = TileStorage.encodeBiome(biome);
+    }
+
+    @Override
+    public ResourceNode<?> getResourceNode(int x, int y) {
+        int handle = resourceHandles[index(x, y)];
+        return handle == 0 ? null : resourceNodes.get(handle);
+    }
+
+    @Override
+    public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+        setHandle(resourceHandles, resourceNodes, index(x, y), resourceNode);
+    }
+
+    @Override
+    public Building getBuilding(int x, int y) {
+        int handle = buildingHandles[index(x, y)];
+        return handle == 0 ? null : buildings.get(handle);
+    }
+
+    @Override
+    public void setBuilding(int x, int y, Building building) {
+        setHandle(buildingHandles, buildings, index(x, y), building);
+    }
+
+    /**
+     * Number of resource nodes currently stored.
+     */
+    public int getResourceNodeCount() {
+        return resourceNodes.size();
+    }
+
+    private static <T> void setHandle(int[] handles, HandlePool<T> pool, int index, T value) {
+        int handle = handles[index];
+
+        if (value == null) {
+            if (handle != 0) {
+                int movedOwner = pool.remove(handle);
+                if (movedOwner >= 0) {
+                    handles[movedOwner] = handle;
+                }
+                handles[index] = 0;
+            }
+            return;
+        }
+
+        if (handle != 0) {
+            pool.set(handle, value);
+        } else {
+            handles[index] = pool.add(value, index);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.nova.healersinc.world.map;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One bit per chunk of a {@link WorldMap}, set when something in the chunk changes and cleared
+ * when the change is saved. The bits live in pages of {@link #PAGE_CHUNKS} chunks that are only
+ * allocated once one of their chunks is marked, so even streamed worlds with millions of chunks
+ * cost a few kilobytes. Marking and draining are lock free and may happen on any thread.
+ */
+public final class DirtyChunks {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_CHUNKS = 1 << PAGE_BITS;
+    private static final int PAGE_WORDS = PAGE_CHUNKS >>> 6;
+
+    private final int chunksX;
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    DirtyChunks(int chunksX, int chunksY) {
+        this.chunksX = chunksX;
+        long chunkCount = (long) chunksX * chunksY;
+        this.pages = new AtomicReferenceArray<>((int) ((chunkCount + PAGE_CHUNKS - 1) >>> PAGE_BITS));
+    }
+
+    public void mark(int chunkX, int chunkY) {
+        int index = chunkY * chunksX + chunkX;
+        AtomicLongArray page = pages.get(index >>> PAGE_BITS);
+        if (page == null) {
+            pages.compareAndSet(index >>> PAGE_BITS, null, new AtomicLongArray(PAGE_WORDS));
+            page = pages.get(index >>> PAGE_BITS);
+        }
+
+        int word = (index & (PAGE_CHUNKS - 1)) >>> 6;
+        long bit = 1L << index;
+        long current = page.get(word);
+        // Most marks hit chunks that are already dirty; skip the write then
+        while ((current & bit) == 0 && !page.compareAndSet(word, current, current | bit)) {
+            current = page.get(word);
+        }
+    }
+
+    public boolean isDirty(int chunkX, int chunkY) {
+        int index = chunkY * chunksX + chunkX;
+        AtomicLongArray page = pages.get(index >>> PAGE_BITS);
+        return page != null && (page.get((index & (PAGE_CHUNKS - 1)) >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Clears all marks and returns the chunks that were marked, as chunk indices
+     * (chunkY * chunksX + chunkX) in ascending order. Marks set concurrently end up either in
+     * the result or in the next drain, never in neither.
+     */
+    public IntArray drain() {
+        IntArray drained = new IntArray();
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicLongArray page = pages.get(p);
+            if (page == null) continue;
+
+            for (int word = 0; word < PAGE_WORDS; word++) {
+                if (page.get(word) == 0) continue;
+
+                long bits = page.getAndSet(word, 0);
+                int base = (p << PAGE_BITS) + (word << 6);
+                while (bits != 0) {
+                    drained.add(base + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return drained;
+    }
+}
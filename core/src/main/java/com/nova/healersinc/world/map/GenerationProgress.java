@@ -0,0 +1,100 @@
+package com.nova.healersinc.world.map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a running world generation, written by the generator threads and polled by
+ * the loading screen. Every region passes three phases (biomes, herb clusters, storing),
+ * each of which counts as one step. Also carries the cancel request back to the generator.
+ */
+public class GenerationProgress {
+
+    public enum Phase {
+        BIOMES,
+        HERB_CLUSTERS,
+        STORING,
+        DONE
+    }
+
+    private final AtomicInteger regionsStarted = new AtomicInteger();
+    private final AtomicInteger biomesDone = new AtomicInteger();
+    private final AtomicInteger clustersDone = new AtomicInteger();
+    private final AtomicInteger regionsDone = new AtomicInteger();
+
+    private volatile int regionCount;
+    private volatile boolean cancelled;
+
+    void start(int regionCount) {
+        this.regionCount = regionCount;
+    }
+
+    void regionStarted() {
+        regionsStarted.incrementAndGet();
+    }
+
+    void biomesRolled() {
+        biomesDone.incrementAndGet();
+    }
+
+    void clustersGrown() {
+        clustersDone.incrementAndGet();
+    }
+
+    void regionStored() {
+        regionsDone.incrementAndGet();
+    }
+
+    /**
+     * Fraction of all steps done, from 0 to 1.
+     */
+    public float getProgress() {
+        int total = regionCount;
+        if (total == 0) {
+            return 0f;
+        }
+        int steps = biomesDone.get() + clustersDone.get() + regionsDone.get();
+        return steps / (3f * total);
+    }
+
+    /**
+     * The phase most of the regions currently being worked on are in.
+     * Regions run through all phases on their own, so several phases are usually active at once.
+     */
+    public Phase getPhase() {
+        int stored = regionsDone.get();
+        int clusters = clustersDone.get();
+        int biomes = biomesDone.get();
+        int started = regionsStarted.get();
+
+        if (regionCount > 0 && stored >= regionCount) {
+            return Phase.DONE;
+        }
+
+        int rollingBiomes = started - biomes;
+        int growingClusters = biomes - clusters;
+        int storing = clusters - stored;
+
+        if (storing > rollingBiomes && storing > growingClusters) return Phase.STORING;
+        if (growingClusters > rollingBiomes) return Phase.HERB_CLUSTERS;
+        return Phase.BIOMES;
+    }
+
+    public int getRegionsDone() {
+        return regionsDone.get();
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Asks the generator to stop; it does so before starting the next region.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,80 @@
+package com.nova.healersinc.world.map;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of what world generation produced and allocated, summed over all threads.
+ * Allocated bytes come from the JVM's per-thread allocation counter and are only tracked
+ * where the JVM supports it (HotSpot does).
+ */
+public class GenerationStats {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final LongAdder tiles = new LongAdder();
+    private final LongAdder herbNodes = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isAllocationTracked() {
+        return THREADS != null;
+    }
+
+    /**
+     * Bytes allocated by the calling thread so far, or 0 if not tracked.
+     */
+    static long threadAllocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    void areaGenerated(int tileCount, int herbNodeCount, long bytes) {
+        tiles.add(tileCount);
+        herbNodes.add(herbNodeCount);
+        allocatedBytes.add(bytes);
+    }
+
+    public long getTiles() {
+        return tiles.sum();
+    }
+
+    public long getHerbNodes() {
+        return herbNodes.sum();
+    }
+
+    /**
+     * Total bytes allocated while generating, or -1 if the JVM does not track it.
+     */
+    public long getAllocatedBytes() {
+        return THREADS == null ? -1 : allocatedBytes.sum();
+    }
+
+    /**
+     * Herb node objects created per generated tile; the only per-tile allocations left.
+     */
+    public double getHerbNodesPerTile() {
+        long tileCount = tiles.sum();
+        return tileCount == 0 ? 0 : (double) herbNodes.sum() / tileCount;
+    }
+
+    /**
+     * Bytes allocated per generated tile, including storage the tiles were written to,
+     * or -1 if the JVM does not track it.
+     */
+    public double getAllocatedBytesPerTile() {
+        long tileCount = tiles.sum();
+        if (THREADS == null) return -1;
+        return tileCount == 0 ? 0 : (double) allocatedBytes.sum() / tileCount;
+    }
+}
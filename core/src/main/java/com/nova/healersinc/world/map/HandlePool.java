@@ -0,0 +1,71 @@
+package com.nova.healersinc.world.map;
+
+import java.util.Arrays;
+
+/**
+ * Dense pool of objects addressed by int handles.
+ * Handles are 1-based so that 0 can be used as "empty" in primitive tile columns.
+ * Removal swaps the last element into the freed slot, so every element remembers the
+ * tile index that owns it and the caller can patch that tile's handle.
+ */
+final class HandlePool<T> {
+    private Object[] items;
+    private int[] owners;
+    private int size;
+
+    HandlePool(int initialCapacity) {
+        int capacity = Math.max(4, initialCapacity);
+        this.items = new Object[capacity];
+        this.owners = new int[capacity];
+    }
+
+    /**
+     * Adds an item owned by the given tile index and returns its handle.
+     */
+    int add(T item, int owner) {
+        if (size == items.length) {
+            int capacity = size + (size >> 1);
+            items = Arrays.copyOf(items, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+        items[size] = item;
+        owners[size] = owner;
+        size++;
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int handle) {
+        return (T) items[handle - 1];
+    }
+
+    void set(int handle, T item) {
+        items[handle - 1] = item;
+    }
+
+    /**
+     * Removes the item behind the handle.
+     *
+     * @return the owner index of the element that was moved into the freed slot,
+     * or -1 if no element had to move
+     */
+    int remove(int handle) {
+        int slot = handle - 1;
+        int last = size - 1;
+        int movedOwner = -1;
+
+        if (slot != last) {
+            items[slot] = items[last];
+            owners[slot] = owners[last];
+            movedOwner = owners[slot];
+        }
+
+        items[last] = null;
+        size--;
+        return movedOwner;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,414 @@
+package com.nova.healersinc.world.map;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.herb.HerbNode;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Tile storage backed by a memory-mapped file of packed per-tile records.
+ * The file is the live data structure: the JVM heap only holds the resource node and building
+ * objects, the OS pages in whatever part of the grid is actually touched, and opening an
+ * existing world just maps it again.
+ *
+ * <p>Record layout (12 bytes): biome id, flags, herb type, herb yield, resource node index,
+ * building index. Indices are 1-based slots in in-process pools and mean nothing to the next
+ * session, so {@link #open(File)} goes over the records once: herb nodes with the stats of
+ * their type are created again from type and yield, everything else is cleared. Buildings
+ * come back from the save game instead.</p>
+ */
+public class MappedTileStorage implements TileStorage, Disposable {
+
+    private static final int MAGIC = 0x48494D57; // "HIMW"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int RECORD_SIZE = 12;
+    private static final int OFFSET_BIOME = 0;
+    private static final int OFFSET_FLAGS = 1;
+    private static final int OFFSET_HERB = 2;
+    private static final int OFFSET_YIELD = 3;
+    private static final int OFFSET_RESOURCE = 4;
+    private static final int OFFSET_BUILDING = 8;
+
+    public static final int FLAG_HAS_RESOURCE = 1;
+    public static final int FLAG_HAS_BUILDING = 1 << 1;
+
+    private static final HerbType[] HERB_TYPES = HerbType.values();
+    // Largest yield the yield byte holds
+    private static final int MAX_RECORD_YIELD = 0xFF;
+
+    // 64M records (768 MB) per mapping keeps every segment below the 2 GB buffer limit
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+
+    private final int width;
+    private final int height;
+
+    private final SlotPool<ResourceNode<?>> resourceNodes;
+    private final SlotPool<Building> buildings;
+
+    private MappedTileStorage(File file, RandomAccessFile raf, int width, int height) throws IOException {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.width = width;
+        this.height = height;
+
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        long tileCount = (long) width * height;
+        int segmentCount = (int) ((tileCount + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long firstRecord = (long) i << SEGMENT_SHIFT;
+            long records = Math.min(1L << SEGMENT_SHIFT, tileCount - firstRecord);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_SIZE + firstRecord * RECORD_SIZE, records * RECORD_SIZE);
+        }
+
+        this.resourceNodes = new SlotPool<>();
+        this.buildings = new SlotPool<>();
+    }
+
+    /**
+     * Creates (or truncates) a world file for the given size. New files are sparse on most
+     * file systems, so creation does not touch the disk for the whole grid.
+     */
+    public static MappedTileStorage create(File file, int width, int height) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + (long) width * height * RECORD_SIZE);
+
+            MappedTileStorage storage = new MappedTileStorage(file, raf, width, height);
+            storage.header.putInt(0, MAGIC);
+            storage.header.putInt(4, VERSION);
+            storage.header.putInt(8, width);
+            storage.header.putInt(12, height);
+            return storage;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing world file created by {@link #create(File, int, int)}. Reads every record
+     * once to bring back the herb nodes and to clear the handles of the previous session.
+     */
+    public static MappedTileStorage open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE) {
+                throw new IOException("Not a world file (too short): " + file);
+            }
+
+            int magic = raf.readInt();
+            int version = raf.readInt();
+            int width = raf.readInt();
+            int height = raf.readInt();
+
+            if (magic != MAGIC) {
+                throw new IOException("Not a world file (bad magic): " + file);
+            }
+            // Version 1 kept no herb stats, its nodes are cleared like foreign ones
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported world file version " + version + ": " + file);
+            }
+            if (raf.length() < HEADER_SIZE + (long) width * height * RECORD_SIZE) {
+                throw new IOException("World file is truncated: " + file);
+            }
+
+            MappedTileStorage storage = new MappedTileStorage(file, raf, width, height);
+            storage.header.putInt(4, VERSION);
+            storage.restoreRecords();
+            return storage;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    private long index(int x, int y) {
+        return (long) y * width + x;
+    }
+
+    @Override
+    public BiomeType getBiome(int x, int y) {
+        long index = index(x, y);
+        return TileStorage.decodeBiome(segment(index).get(offset(index) + OFFSET_BIOME));
+    }
+
+    @Override
+    public void setBiome(int x, int y, BiomeType biome) {
+        long index = index(x, y);
+        segment(index).put(offset(index) + OFFSET_BIOME, TileStorage.encodeBiome(biome));
+    }
+
+    /**
+     * Raw flag byte of a tile record.
+     */
+    public int getFlags(int x, int y) {
+        long index = index(x, y);
+        return segment(index).get(offset(index) + OFFSET_FLAGS);
+    }
+
+    @Override
+    public ResourceNode<?> getResourceNode(int x, int y) {
+        return get(x, y, FLAG_HAS_RESOURCE, OFFSET_RESOURCE, resourceNodes);
+    }
+
+    @Override
+    public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+        set(x, y, FLAG_HAS_RESOURCE, OFFSET_RESOURCE, resourceNodes, resourceNode);
+
+        long index = index(x, y);
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+        int herb = resourceNode != null ? herbOf(resourceNode) : 0;
+        segment.put(offset + OFFSET_HERB, (byte) herb);
+        segment.put(offset + OFFSET_YIELD, (byte) (herb != 0 ? resourceNode.getCurrentYield() : 0));
+    }
+
+    @Override
+    public Building getBuilding(int x, int y) {
+        return get(x, y, FLAG_HAS_BUILDING, OFFSET_BUILDING, buildings);
+    }
+
+    @Override
+    public void setBuilding(int x, int y, Building building) {
+        set(x, y, FLAG_HAS_BUILDING, OFFSET_BUILDING, buildings, building);
+    }
+
+    /**
+     * Recreates the herb nodes the records describe and drops all other handles, which pointed
+     * into the pools of the previous session.
+     */
+    private void restoreRecords() {
+        long tileCount = (long) width * height;
+        for (long index = 0; index < tileCount; index++) {
+            MappedByteBuffer segment = segment(index);
+            int offset = offset(index);
+
+            int flags = segment.get(offset + OFFSET_FLAGS);
+            if ((flags & (FLAG_HAS_RESOURCE | FLAG_HAS_BUILDING)) == 0) continue;
+
+            int herb = (segment.get(offset + OFFSET_HERB) & 0xFF) - 1;
+            if ((flags & FLAG_HAS_RESOURCE) != 0 && herb >= 0 && herb < HERB_TYPES.length) {
+                HerbNode node = new HerbNode(HERB_TYPES[herb]);
+                node.setCurrentYield(segment.get(offset + OFFSET_YIELD) & 0xFF);
+                segment.putInt(offset + OFFSET_RESOURCE, resourceNodes.add(node, index));
+                flags &= ~FLAG_HAS_BUILDING;
+            } else {
+                segment.put(offset + OFFSET_HERB, (byte) 0);
+                segment.putInt(offset + OFFSET_RESOURCE, 0);
+                flags &= ~(FLAG_HAS_RESOURCE | FLAG_HAS_BUILDING);
+            }
+            segment.putInt(offset + OFFSET_BUILDING, 0);
+            segment.put(offset + OFFSET_FLAGS, (byte) flags);
+        }
+    }
+
+    /**
+     * Herb type ordinal + 1 to keep in the record for the node, or 0 if it cannot be recreated
+     * from type and yield alone.
+     */
+    private static int herbOf(ResourceNode<?> node) {
+        if (!(node instanceof HerbNode)) {
+            return 0;
+        }
+        HerbNode herbNode = (HerbNode) node;
+        HerbType type = herbNode.getType();
+        boolean typeStats = herbNode.getMaxYield() == type.getMaxYield()
+            && herbNode.getPotency() == type.getPotency()
+            && herbNode.getRegrowthRate() == type.getRegrowthRate();
+        return typeStats && type.getMaxYield() <= MAX_RECORD_YIELD ? type.ordinal() + 1 : 0;
+    }
+
+    private <T> T get(int x, int y, int flag, int fieldOffset, SlotPool<T> pool) {
+        long index = index(x, y);
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+
+        if ((segment.get(offset + OFFSET_FLAGS) & flag) == 0) {
+            return null;
+        }
+        return pool.get(segment.getInt(offset + fieldOffset));
+    }
+
+    private <T> void set(int x, int y, int flag, int fieldOffset, SlotPool<T> pool, T value) {
+        long index = index(x, y);
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+
+        int flags = segment.get(offset + OFFSET_FLAGS);
+        int slot = (flags & flag) != 0 ? segment.getInt(offset + fieldOffset) : 0;
+
+        if (value == null) {
+            if (slot != 0) {
+                pool.release(slot);
+                segment.putInt(offset + fieldOffset, 0);
+                segment.put(offset + OFFSET_FLAGS, (byte) (flags & ~flag));
+            }
+            return;
+        }
+
+        if (slot != 0 && pool.owns(slot)) {
+            pool.set(slot, value);
+            return;
+        }
+
+        segment.putInt(offset + fieldOffset, pool.add(value, index));
+        segment.put(offset + OFFSET_FLAGS, (byte) (flags | flag));
+    }
+
+    /**
+     * Highest slot handed out this session by the node or building pool, picked by flag.
+     */
+    int getSlotCount(int flag) {
+        return flag == FLAG_HAS_RESOURCE ? resourceNodes.highWaterMark() : buildings.highWaterMark();
+    }
+
+    /**
+     * Copies the current yield of every herb node into its record, for the next {@link #open}.
+     * Yields change on the nodes themselves, the storage does not see them happen.
+     */
+    private void writeYields() {
+        for (int slot = 1; slot <= resourceNodes.highWaterMark(); slot++) {
+            ResourceNode<?> node = resourceNodes.get(slot);
+            if (node == null) continue;
+
+            long index = resourceNodes.ownerOf(slot);
+            MappedByteBuffer segment = segment(index);
+            int offset = offset(index);
+            if (segment.get(offset + OFFSET_HERB) != 0) {
+                segment.put(offset + OFFSET_YIELD, (byte) node.getCurrentYield());
+            }
+        }
+    }
+
+    /**
+     * Writes the herb yields into their records and all dirty pages back to the file.
+     */
+    public void flush() {
+        writeYields();
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            flush();
+            channel.close();
+            raf.close();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Could not close world file " + file, e);
+        }
+    }
+
+    /**
+     * Heap pool with stable 1-based slots, each remembering the record that points to it.
+     * Freed slots are recycled. Every session starts with an empty pool; {@link #open} clears or
+     * reassigns the slots the records held before.
+     */
+    private static final class SlotPool<T> {
+        private Object[] items = new Object[16];
+        private long[] owners = new long[16];
+        private int size;
+        private final IntArray freeSlots = new IntArray();
+
+        boolean owns(int slot) {
+            return slot >= 1 && slot <= size && items[slot - 1] != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int slot) {
+            return slot >= 1 && slot <= size ? (T) items[slot - 1] : null;
+        }
+
+        void set(int slot, T value) {
+            items[slot - 1] = value;
+        }
+
+        /**
+         * Record index of the tile the slot belongs to.
+         */
+        long ownerOf(int slot) {
+            return owners[slot - 1];
+        }
+
+        int add(T value, long owner) {
+            int slot;
+            if (freeSlots.size > 0) {
+                slot = freeSlots.pop();
+            } else {
+                if (size == items.length) {
+                    items = Arrays.copyOf(items, size + (size >> 1));
+                    owners = Arrays.copyOf(owners, items.length);
+                }
+                slot = ++size;
+            }
+            items[slot - 1] = value;
+            owners[slot - 1] = owner;
+            return slot;
+        }
+
+        void release(int slot) {
+            if (!owns(slot)) return;
+            items[slot - 1] = null;
+            freeSlots.add(slot);
+        }
+
+        int highWaterMark() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.world.biome.BiomeType;
+
+import java.util.Arrays;
+
+/**
+ * Biome layout from a few octaves of value noise, as an alternative to the chunk-and-bleed
+ * layout. Noise is evaluated a row at a time into float buffers: lattice values are gathered
+ * first, the interpolation then runs as plain array arithmetic the JIT can vectorize.
+ * The noise is cut into biomes at the quantiles matching the world gen weights, so every biome
+ * covers roughly its configured share of the map.
+ */
+final class NoiseBiomeField {
+
+    private static final int OCTAVES = 3;
+    /** Lattice spacing of the first octave in tiles; each further octave halves it */
+    private static final int BASE_CELL_SIZE = 24;
+    private static final float PERSISTENCE = 0.5f;
+
+    /** Points sampled to find the noise value distribution */
+    private static final int CALIBRATION_SAMPLES = 4096;
+    private static final int CALIBRATION_SPREAD = 1 << 16;
+
+    // Follow the roll purposes of WorldGenerator
+    private static final int ROLL_CALIBRATION = 11;
+    private static final int ROLL_OCTAVE = 12; // one purpose per octave from here
+
+    private final PositionalRandom random;
+
+    // Biomes with a positive weight, by ordinal, and the upper noise bound of each
+    private final BiomeType[] biomes;
+    private final float[] thresholds;
+
+    /**
+     * @param weights world gen weight of every biome by ordinal
+     */
+    NoiseBiomeField(PositionalRandom random, float[] weights) {
+        this.random = random;
+
+        int count = 0;
+        float total = 0f;
+        for (float weight : weights) {
+            if (weight > 0f) {
+                count++;
+                total += weight;
+            }
+        }
+
+        if (count == 0) {
+            // Same fallback as BiomeRegistry.pickBiome
+            biomes = new BiomeType[]{BiomeType.MILD_MEADOW};
+            thresholds = new float[]{Float.POSITIVE_INFINITY};
+            return;
+        }
+
+        float[] samples = calibrationSamples();
+        biomes = new BiomeType[count];
+        thresholds = new float[count];
+
+        int entry = 0;
+        float cumulative = 0f;
+        for (int ordinal = 0; ordinal < weights.length; ordinal++) {
+            if (weights[ordinal] <= 0f) continue;
+
+            cumulative += weights[ordinal];
+            biomes[entry] = BiomeType.byOrdinal(ordinal);
+            thresholds[entry] = entry == count - 1
+                ? Float.POSITIVE_INFINITY
+                : samples[Math.min(samples.length - 1, (int) (cumulative / total * samples.length))];
+            entry++;
+        }
+    }
+
+    /**
+     * Scratch buffers for one row; not shared between threads.
+     */
+    static final class Row {
+        final float[] noise;
+        final float[] left;
+        final float[] right;
+        final float[] weight;
+
+        Row(int capacity) {
+            noise = new float[capacity];
+            left = new float[capacity];
+            right = new float[capacity];
+            weight = new float[capacity];
+        }
+    }
+
+    /**
+     * Writes the biomes of row y, tiles [fromX, toX), to out[0 .. toX - fromX).
+     */
+    void pickRow(int y, int fromX, int toX, Row row, BiomeType[] out) {
+        sampleRow(y, fromX, toX, row);
+
+        int n = toX - fromX;
+        float[] noise = row.noise;
+        for (int i = 0; i < n; i++) {
+            int entry = 0;
+            while (noise[i] >= thresholds[entry]) {
+                entry++;
+            }
+            out[i] = biomes[entry];
+        }
+    }
+
+    /**
+     * Fills row.noise[0 .. toX - fromX) with noise in [0, 1) for row y.
+     */
+    private void sampleRow(int y, int fromX, int toX, Row row) {
+        int n = toX - fromX;
+        float[] noise = row.noise;
+        float[] left = row.left;
+        float[] right = row.right;
+        float[] weight = row.weight;
+
+        Arrays.fill(noise, 0, n, 0f);
+
+        float amplitude = 1f;
+        float totalAmplitude = 0f;
+        int cellSize = BASE_CELL_SIZE;
+
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            int purpose = ROLL_OCTAVE + octave;
+            int latticeY = y / cellSize;
+            float ty = fade((y - latticeY * cellSize) / (float) cellSize);
+            float invCellSize = 1f / cellSize;
+
+            // Gather: lattice columns around each tile, already interpolated along y
+            int latticeX = fromX / cellSize;
+            float previous = latticeColumn(latticeX, latticeY, ty, purpose);
+            float next = latticeColumn(latticeX + 1, latticeY, ty, purpose);
+
+            for (int i = 0; i < n; i++) {
+                int x = fromX + i;
+                if (x >= (latticeX + 1) * cellSize) {
+                    latticeX++;
+                    previous = next;
+                    next = latticeColumn(latticeX + 1, latticeY, ty, purpose);
+                }
+                left[i] = previous;
+                right[i] = next;
+                weight[i] = (x - latticeX * cellSize) * invCellSize;
+            }
+
+            // Interpolate along x, branch free over whole arrays
+            for (int i = 0; i < n; i++) {
+                float t = weight[i];
+                float faded = t * t * (3f - 2f * t);
+                noise[i] += amplitude * (left[i] + (right[i] - left[i]) * faded);
+            }
+
+            totalAmplitude += amplitude;
+            amplitude *= PERSISTENCE;
+            cellSize /= 2;
+        }
+
+        float scale = 1f / totalAmplitude;
+        for (int i = 0; i < n; i++) {
+            noise[i] *= scale;
+        }
+    }
+
+    private float latticeColumn(int latticeX, int latticeY, float ty, int purpose) {
+        float bottom = random.nextFloat(latticeX, latticeY, purpose);
+        float top = random.nextFloat(latticeX, latticeY + 1, purpose);
+        return bottom + (top - bottom) * ty;
+    }
+
+    private static float fade(float t) {
+        return t * t * (3f - 2f * t);
+    }
+
+    /**
+     * Noise values at fixed pseudo random points, sorted, to read quantiles from.
+     */
+    private float[] calibrationSamples() {
+        float[] samples = new float[CALIBRATION_SAMPLES];
+        Row row = new Row(1);
+
+        for (int i = 0; i < samples.length; i++) {
+            int x = random.nextInt(i, 0, ROLL_CALIBRATION, CALIBRATION_SPREAD);
+            int y = random.nextInt(i, 1, ROLL_CALIBRATION, CALIBRATION_SPREAD);
+            sampleRow(y, x, x + 1, row);
+            samples[i] = row.noise[0];
+        }
+
+        Arrays.sort(samples);
+        return samples;
+    }
+}
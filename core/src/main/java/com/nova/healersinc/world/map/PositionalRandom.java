@@ -0,0 +1,55 @@
+package com.nova.healersinc.world.map;
+
+/**
+ * Counter-based random source for world generation.
+ * Every value is a pure hash of (seed, x, y, purpose, counter), so any tile's rolls can be
+ * recomputed in isolation, in any order and from any thread, without shared state.
+ * The mixing function is the SplitMix64 finalizer.
+ */
+public final class PositionalRandom {
+
+    private final long seed;
+
+    public PositionalRandom(long seed) {
+        this.seed = mix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    public long nextLong(int x, int y, int purpose, int counter) {
+        long h = seed ^ (x * 0x9E3779B97F4A7C15L);
+        h = mix(h ^ (y * 0xC2B2AE3D27D4EB4FL));
+        h = mix(h ^ ((((long) purpose << 32) | (counter & 0xFFFFFFFFL)) * 0x165667B19E3779F9L));
+        return h;
+    }
+
+    public long nextLong(int x, int y, int purpose) {
+        return nextLong(x, y, purpose, 0);
+    }
+
+    /**
+     * Uniform float in [0, 1).
+     */
+    public float nextFloat(int x, int y, int purpose, int counter) {
+        return (nextLong(x, y, purpose, counter) >>> 40) * 0x1.0p-24f;
+    }
+
+    public float nextFloat(int x, int y, int purpose) {
+        return nextFloat(x, y, purpose, 0);
+    }
+
+    /**
+     * Uniform int in [0, bound).
+     */
+    public int nextInt(int x, int y, int purpose, int counter, int bound) {
+        return (int) (((nextLong(x, y, purpose, counter) >>> 32) * bound) >>> 32);
+    }
+
+    public int nextInt(int x, int y, int purpose, int bound) {
+        return nextInt(x, y, purpose, 0, bound);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
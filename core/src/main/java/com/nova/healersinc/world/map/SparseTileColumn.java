@@ -0,0 +1,79 @@
+package com.nova.healersinc.world.map;
+
+import java.util.Arrays;
+
+/**
+ * Sparse per-tile column for a fixed number of cells.
+ * An occupancy bitmap marks which cells hold a value and the values themselves are packed
+ * in cell order, so a cell's slot is the number of occupied cells before it (bitmap rank).
+ * Costs one bit per cell plus one reference per stored value.
+ */
+final class SparseTileColumn<T> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private final long[] occupied;
+    private Object[] values = EMPTY;
+    private int size;
+
+    SparseTileColumn(int cellCount) {
+        this.occupied = new long[(cellCount + 63) >>> 6];
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int cell) {
+        if ((occupied[cell >>> 6] & (1L << cell)) == 0) {
+            return null;
+        }
+        return (T) values[rank(cell)];
+    }
+
+    void set(int cell, T value) {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        boolean present = (occupied[word] & bit) != 0;
+        int slot = rank(cell);
+
+        if (value == null) {
+            if (present) {
+                System.arraycopy(values, slot + 1, values, slot, size - slot - 1);
+                values[--size] = null;
+                occupied[word] &= ~bit;
+            }
+            return;
+        }
+
+        if (present) {
+            values[slot] = value;
+            return;
+        }
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+        System.arraycopy(values, slot, values, slot + 1, size - slot);
+        values[slot] = value;
+        size++;
+        occupied[word] |= bit;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value in the given slot (0 until {@link #size()}), in cell order.
+     */
+    @SuppressWarnings("unchecked")
+    T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    private int rank(int cell) {
+        int word = cell >>> 6;
+        int rank = 0;
+        for (int i = 0; i < word; i++) {
+            rank += Long.bitCount(occupied[i]);
+        }
+        return rank + Long.bitCount(occupied[word] & ((1L << cell) - 1));
+    }
+}
@@ -0,0 +1,538 @@
+package com.nova.healersinc.world.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tile storage for worlds too large to generate up front.
+ * Chunks are generated on demand by a background executor around the area passed to
+ * {@link #update}, and chunks far from it are dropped again as long as nothing in them differs
+ * from what the seed produces, so they can be regenerated identically later.
+ * All reads and writes happen on the render thread; workers only build detached chunks.
+ * <p>
+ * A storage can also be seeded from {@link SavedChunks}: saved chunks take precedence over
+ * the generator until they have been restored once, after which they behave like any other chunk.
+ */
+public class StreamingTileStorage implements TileStorage, Disposable {
+
+    private static final String TAG = "StreamingTileStorage";
+
+    /**
+     * Chunks of a saved game, addressed by entry 0 until {@link #size()}.
+     */
+    public interface SavedChunks {
+        int size();
+
+        int getChunkX(int entry);
+
+        int getChunkY(int entry);
+
+        /**
+         * Writes the saved tiles of the entry into the target, using world coordinates.
+         * Called from worker threads; entries may be restored concurrently.
+         */
+        void restore(int entry, TileStorage target);
+    }
+
+    /**
+     * Notified on the render thread whenever a chunk becomes readable.
+     */
+    public interface ChunkListener {
+        void chunkLoaded(int chunkX, int chunkY);
+    }
+
+    /** Chunks around the visible area that are generated ahead of time */
+    private static final int PRELOAD_MARGIN = 2;
+    /** Chunks further than this from the visible area may be evicted */
+    private static final int EVICT_MARGIN = 6;
+    /** Upper bound on queued generation requests, so fast panning does not build a backlog */
+    private static final int MAX_PENDING = 32;
+
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private final int chunksY;
+
+    private final WorldGenerator generator;
+    private final ExecutorService executor;
+
+    // Render thread only
+    private final IntMap<TileChunk> loadedChunks = new IntMap<>();
+    private final IntSet pendingChunks = new IntSet();
+
+    private final ConcurrentLinkedQueue<GeneratedChunk> completedChunks = new ConcurrentLinkedQueue<>();
+
+    // Saved chunks that have not been restored yet, chunk index to entry; render thread only
+    private SavedChunks savedChunks;
+    private final IntIntMap unrestoredChunks = new IntIntMap();
+    private ChunkListener chunkListener;
+    // Changes not saved yet, null while the map does not track changes
+    private DirtyChunks dirtyChunks;
+
+    // Chunks outside this area are not worth generating anymore; only a hint for the workers
+    private volatile int keepFromChunkX;
+    private volatile int keepFromChunkY;
+    private volatile int keepToChunkX;
+    private volatile int keepToChunkY;
+
+    public StreamingTileStorage(int width, int height, WorldGenerator generator) {
+        this.width = width;
+        this.height = height;
+        this.chunksX = (width + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE;
+        this.chunksY = (height + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE;
+
+        if ((long) chunksX * chunksY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("World too large to stream: " + width + "x" + height);
+        }
+
+        this.generator = generator;
+        this.executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "chunk-generator-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        this.keepToChunkX = chunksX;
+        this.keepToChunkY = chunksY;
+    }
+
+    /**
+     * Called once per frame with the visible tile area [fromX, toX) x [fromY, toY).
+     * Installs finished chunks, requests missing ones nearest first and evicts far away ones.
+     */
+    public void update(int fromX, int fromY, int toX, int toY) {
+        drainCompletedChunks();
+
+        int visibleFromChunkX = Math.max(0, fromX / WorldMap.CHUNK_SIZE);
+        int visibleFromChunkY = Math.max(0, fromY / WorldMap.CHUNK_SIZE);
+        int visibleToChunkX = Math.min(chunksX, (toX + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE);
+        int visibleToChunkY = Math.min(chunksY, (toY + WorldMap.CHUNK_SIZE - 1) / WorldMap.CHUNK_SIZE);
+
+        keepFromChunkX = Math.max(0, visibleFromChunkX - EVICT_MARGIN);
+        keepFromChunkY = Math.max(0, visibleFromChunkY - EVICT_MARGIN);
+        keepToChunkX = Math.min(chunksX, visibleToChunkX + EVICT_MARGIN);
+        keepToChunkY = Math.min(chunksY, visibleToChunkY + EVICT_MARGIN);
+
+        requestChunks(
+            Math.max(0, visibleFromChunkX - PRELOAD_MARGIN),
+            Math.max(0, visibleFromChunkY - PRELOAD_MARGIN),
+            Math.min(chunksX, visibleToChunkX + PRELOAD_MARGIN),
+            Math.min(chunksY, visibleToChunkY + PRELOAD_MARGIN)
+        );
+
+        evictChunks();
+    }
+
+    private void drainCompletedChunks() {
+        GeneratedChunk generated;
+        while ((generated = completedChunks.poll()) != null) {
+            pendingChunks.remove(generated.index);
+            if (generated.chunk != null && !loadedChunks.containsKey(generated.index)) {
+                install(generated.index, generated.chunk);
+            }
+        }
+    }
+
+    private void install(int index, TileChunk chunk) {
+        loadedChunks.put(index, chunk);
+
+        if (unrestoredChunks.remove(index, -1) >= 0 && unrestoredChunks.size == 0) {
+            // Everything saved is in memory now, the save can be let go
+            savedChunks = null;
+        }
+        if (chunkListener != null) {
+            chunkListener.chunkLoaded(index % chunksX, index / chunksX);
+        }
+    }
+
+    /**
+     * Requests the chunks in the given area ring by ring outwards from its center.
+     */
+    private void requestChunks(int fromChunkX, int fromChunkY, int toChunkX, int toChunkY) {
+        int centerX = (fromChunkX + toChunkX) / 2;
+        int centerY = (fromChunkY + toChunkY) / 2;
+        int maxRing = Math.max(
+            Math.max(centerX - fromChunkX, toChunkX - 1 - centerX),
+            Math.max(centerY - fromChunkY, toChunkY - 1 - centerY)
+        );
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                // Inner rows of a ring only have their two edge cells
+                int step = (dy == -ring || dy == ring) ? 1 : 2 * ring;
+
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    int cx = centerX + dx;
+                    int cy = centerY + dy;
+                    if (cx < fromChunkX || cx >= toChunkX || cy < fromChunkY || cy >= toChunkY) continue;
+
+                    if (pendingChunks.size >= MAX_PENDING) return;
+                    requestChunk(cx, cy);
+                }
+            }
+        }
+    }
+
+    private void requestChunk(final int chunkX, final int chunkY) {
+        final int index = chunkY * chunksX + chunkX;
+        if (loadedChunks.containsKey(index) || pendingChunks.contains(index)) {
+            return;
+        }
+
+        pendingChunks.add(index);
+        final SavedChunks saved = savedChunks;
+        final int savedEntry = unrestoredChunks.get(index, -1);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                TileChunk chunk = null;
+                try {
+                    if (savedEntry >= 0) {
+                        chunk = restoreChunk(saved, savedEntry);
+                    } else if (chunkX >= keepFromChunkX && chunkX < keepToChunkX
+                        && chunkY >= keepFromChunkY && chunkY < keepToChunkY) {
+                        // The camera may have moved on since this was queued
+                        chunk = generator.generateChunk(width, height, chunkX, chunkY);
+                    }
+                } finally {
+                    completedChunks.add(new GeneratedChunk(index, chunk));
+                }
+            }
+        });
+    }
+
+    /**
+     * Restores the saved chunks, the ones overlapping the tile area [fromX, toX) x [fromY, toY)
+     * right away on the calling thread and the rest in the background, nearest first.
+     * Must be called before the storage is used; all chunks become readable with the
+     * next {@link #update}.
+     */
+    public void restore(final SavedChunks saved, int fromX, int fromY, int toX, int toY) {
+        if (savedChunks != null || loadedChunks.size > 0) {
+            throw new IllegalStateException("Storage already holds chunks");
+        }
+        if (saved.size() == 0) {
+            return;
+        }
+
+        savedChunks = saved;
+        final float centerX = (fromX + toX) * 0.5f / WorldMap.CHUNK_SIZE;
+        final float centerY = (fromY + toY) * 0.5f / WorldMap.CHUNK_SIZE;
+        IntArray backgroundEntries = new IntArray();
+
+        for (int entry = 0; entry < saved.size(); entry++) {
+            int cx = saved.getChunkX(entry);
+            int cy = saved.getChunkY(entry);
+            if (cx < 0 || cx >= chunksX || cy < 0 || cy >= chunksY) {
+                throw new IllegalArgumentException("Saved chunk " + cx + "," + cy + " outside of the world");
+            }
+            int index = cy * chunksX + cx;
+            unrestoredChunks.put(index, entry);
+
+            boolean visible = cx * WorldMap.CHUNK_SIZE < toX && (cx + 1) * WorldMap.CHUNK_SIZE > fromX
+                && cy * WorldMap.CHUNK_SIZE < toY && (cy + 1) * WorldMap.CHUNK_SIZE > fromY;
+            if (visible) {
+                completedChunks.add(new GeneratedChunk(index, restoreChunk(saved, entry)));
+            } else {
+                backgroundEntries.add(entry);
+            }
+        }
+
+        if (backgroundEntries.size == 0) {
+            return;
+        }
+
+        // Nearest to the view first, so panning around right after loading rarely waits
+        final int[] entries = backgroundEntries.toArray();
+        final float[] distances = new float[saved.size()];
+        for (int entry : entries) {
+            float dx = saved.getChunkX(entry) + 0.5f - centerX;
+            float dy = saved.getChunkY(entry) + 0.5f - centerY;
+            distances[entry] = dx * dx + dy * dy;
+        }
+        sortByDistance(entries, distances);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int entry : entries) {
+                    if (Thread.currentThread().isInterrupted()) return;
+
+                    int index = saved.getChunkY(entry) * chunksX + saved.getChunkX(entry);
+                    completedChunks.add(new GeneratedChunk(index, restoreChunk(saved, entry)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds a detached chunk from a save. A corrupt chunk is logged and generated instead,
+     * so one bad record does not take the rest of the world with it.
+     */
+    private TileChunk restoreChunk(SavedChunks saved, int entry) {
+        int chunkX = saved.getChunkX(entry);
+        int chunkY = saved.getChunkY(entry);
+
+        TileChunk chunk = new TileChunk((byte) 0);
+        try {
+            saved.restore(entry, new DetachedChunk(chunk, chunkX, chunkY));
+            return chunk;
+        } catch (RuntimeException e) {
+            Gdx.app.error(TAG, "Could not restore chunk " + chunkX + "," + chunkY + ", generating it instead", e);
+            return generator.generateChunk(width, height, chunkX, chunkY);
+        }
+    }
+
+    private static void sortByDistance(int[] entries, float[] distances) {
+        // Insertion sort; saves hold the few chunks the player changed, not the whole world
+        for (int i = 1; i < entries.length; i++) {
+            int entry = entries[i];
+            int j = i - 1;
+            while (j >= 0 && distances[entries[j]] > distances[entry]) {
+                entries[j + 1] = entries[j];
+                j--;
+            }
+            entries[j + 1] = entry;
+        }
+    }
+
+    private void evictChunks() {
+        IntMap.Keys keys = loadedChunks.keys();
+        while (keys.hasNext) {
+            int index = keys.next();
+            int cx = index % chunksX;
+            int cy = index / chunksX;
+
+            if (cx >= keepFromChunkX && cx < keepToChunkX && cy >= keepFromChunkY && cy < keepToChunkY) {
+                continue;
+            }
+            if (canEvict(cx, cy)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * A chunk can be regenerated from the seed if none of its nodes were harvested and no
+     * building sits in it or next to it (harvesters hold on to nodes in adjacent chunks).
+     * A chunk with unsaved changes stays until they are saved, even if it matches the seed
+     * again: the save may still hold an older block for it, e.g. with a building since
+     * demolished, which would otherwise come back on the next load.
+     */
+    private boolean canEvict(int chunkX, int chunkY) {
+        if (dirtyChunks != null && dirtyChunks.isDirty(chunkX, chunkY)) {
+            return false;
+        }
+        if (loadedChunks.get(chunkY * chunksX + chunkX).hasHarvestedNodes()) {
+            return false;
+        }
+
+        for (int cy = Math.max(0, chunkY - 1); cy <= Math.min(chunksY - 1, chunkY + 1); cy++) {
+            for (int cx = Math.max(0, chunkX - 1); cx <= Math.min(chunksX - 1, chunkX + 1); cx++) {
+                TileChunk neighbor = loadedChunks.get(cy * chunksX + cx);
+                if (neighbor != null && neighbor.hasBuildings()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private TileChunk getChunk(int x, int y) {
+        return loadedChunks.get((y / WorldMap.CHUNK_SIZE) * chunksX + x / WorldMap.CHUNK_SIZE);
+    }
+
+    private TileChunk requireChunk(int x, int y) {
+        TileChunk chunk = getChunk(x, y);
+        if (chunk == null) {
+            throw new IllegalStateException("Chunk of tile " + x + "," + y + " is not loaded");
+        }
+        return chunk;
+    }
+
+    private static int cell(int x, int y) {
+        return TileChunk.cell(x % WorldMap.CHUNK_SIZE, y % WorldMap.CHUNK_SIZE);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public BiomeType getBiome(int x, int y) {
+        TileChunk chunk = getChunk(x, y);
+        return chunk == null ? null : TileStorage.decodeBiome(chunk.biomeIds[cell(x, y)]);
+    }
+
+    @Override
+    public void setBiome(int x, int y, BiomeType biome) {
+        requireChunk(x, y).biomeIds[cell(x, y)] = TileStorage.encodeBiome(biome);
+    }
+
+    @Override
+    public ResourceNode<?> getResourceNode(int x, int y) {
+        TileChunk chunk = getChunk(x, y);
+        return chunk == null ? null : chunk.getResourceNode(cell(x, y));
+    }
+
+    @Override
+    public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+        if (resourceNode == null && getChunk(x, y) == null) {
+            return;
+        }
+        requireChunk(x, y).setResourceNode(cell(x, y), resourceNode);
+    }
+
+    @Override
+    public Building getBuilding(int x, int y) {
+        TileChunk chunk = getChunk(x, y);
+        return chunk == null ? null : chunk.getBuilding(cell(x, y));
+    }
+
+    @Override
+    public void setBuilding(int x, int y, Building building) {
+        if (building == null && getChunk(x, y) == null) {
+            return;
+        }
+        requireChunk(x, y).setBuilding(cell(x, y), building);
+    }
+
+    @Override
+    public boolean isChunkLoaded(int chunkX, int chunkY) {
+        return loadedChunks.containsKey(chunkY * chunksX + chunkX);
+    }
+
+    public void setChunkListener(ChunkListener chunkListener) {
+        this.chunkListener = chunkListener;
+    }
+
+    /**
+     * Set by {@link WorldMap#trackChanges()}; from then on chunks are only evicted once their
+     * changes are saved.
+     */
+    void setDirtyChunks(DirtyChunks dirtyChunks) {
+        this.dirtyChunks = dirtyChunks;
+    }
+
+    public int getLoadedChunkCount() {
+        return loadedChunks.size;
+    }
+
+    public int getPendingChunkCount() {
+        return pendingChunks.size;
+    }
+
+    /**
+     * Stops the generator threads. Chunks still in flight are discarded.
+     */
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        completedChunks.clear();
+        pendingChunks.clear();
+        unrestoredChunks.clear();
+        savedChunks = null;
+    }
+
+    /**
+     * World coordinate view of a detached chunk, so restored tiles can be written through the
+     * regular {@link TileStorage} interface before the chunk is installed.
+     */
+    private final class DetachedChunk implements TileStorage {
+        private final TileChunk chunk;
+        private final int originX;
+        private final int originY;
+
+        DetachedChunk(TileChunk chunk, int chunkX, int chunkY) {
+            this.chunk = chunk;
+            this.originX = chunkX * WorldMap.CHUNK_SIZE;
+            this.originY = chunkY * WorldMap.CHUNK_SIZE;
+        }
+
+        private int cellOf(int x, int y) {
+            int localX = x - originX;
+            int localY = y - originY;
+            if (localX < 0 || localX >= WorldMap.CHUNK_SIZE || localY < 0 || localY >= WorldMap.CHUNK_SIZE) {
+                throw new IndexOutOfBoundsException("Tile " + x + "," + y + " is not part of this chunk");
+            }
+            return TileChunk.cell(localX, localY);
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public BiomeType getBiome(int x, int y) {
+            return TileStorage.decodeBiome(chunk.biomeIds[cellOf(x, y)]);
+        }
+
+        @Override
+        public void setBiome(int x, int y, BiomeType biome) {
+            chunk.biomeIds[cellOf(x, y)] = TileStorage.encodeBiome(biome);
+        }
+
+        @Override
+        public ResourceNode<?> getResourceNode(int x, int y) {
+            return chunk.getResourceNode(cellOf(x, y));
+        }
+
+        @Override
+        public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+            chunk.setResourceNode(cellOf(x, y), resourceNode);
+        }
+
+        @Override
+        public Building getBuilding(int x, int y) {
+            return chunk.getBuilding(cellOf(x, y));
+        }
+
+        @Override
+        public void setBuilding(int x, int y, Building building) {
+            chunk.setBuilding(cellOf(x, y), building);
+        }
+    }
+
+    private static final class GeneratedChunk {
+        final int index;
+        final TileChunk chunk;
+
+        GeneratedChunk(int index, TileChunk chunk) {
+            this.index = index;
+            this.chunk = chunk;
+        }
+    }
+}
@@ -5,61 +5,86 @@ import com.nova.healersinc.world.biome.BiomeType;
 import com.nova.healersinc.world.herb.HerbNode;
 import com.nova.healersinc.world.resource.ResourceNode;
 
+/**
+ * Lightweight view of a single map cell.
+ * A Tile holds no state of its own: every getter and setter goes straight through to the
+ * {@link TileStorage} of its {@link WorldMap}, so views are cheap to create on demand and two
+ * views of the same position are equal.
+ */
 public class Tile {
     public final int x;
     public final int y;
 
-    public BiomeType biome;
-    private ResourceNode<?> resourceNode;
-    private Building building;
+    private final WorldMap worldMap;
 
-    public Tile(int x, int y, BiomeType biome) {
+    Tile(WorldMap worldMap, int x, int y) {
+        this.worldMap = worldMap;
         this.x = x;
         this.y = y;
-        this.biome = biome;
     }
 
     public BiomeType getBiome() {
-        return biome;
+        return worldMap.getBiome(x, y);
     }
 
     public void setBiome(BiomeType biome) {
-        this.biome = biome;
+        worldMap.setBiome(x, y, biome);
     }
 
     /**
      * Gets the resource node on this tile (generic).
+     * If the map tracks changes, the node reports its yield changes from now on.
      */
     public ResourceNode<?> getResourceNode() {
-        return resourceNode;
+        return worldMap.getTrackedResourceNode(x, y);
     }
 
     /**
      * Sets the resource node on this tile.
      */
     public void setResourceNode(ResourceNode<?> resourceNode) {
-        this.resourceNode = resourceNode;
+        worldMap.setResourceNode(x, y, resourceNode);
     }
 
     /**
      * Checks if this tile has any resource node.
      */
     public boolean hasResourceNode() {
-        return resourceNode != null;
+        return worldMap.getResourceNode(x, y) != null;
     }
 
     // === BUILDING METHODS ===
 
     public Building getBuilding() {
-        return building;
+        return worldMap.getBuilding(x, y);
     }
 
     public void setBuilding(Building building) {
-        this.building = building;
+        worldMap.setBuilding(x, y, building);
     }
 
     public boolean hasBuilding() {
-        return building != null;
+        return getBuilding() != null;
+    }
+
+    /**
+     * @see WorldMap#markDirty(int, int)
+     */
+    public void markDirty() {
+        worldMap.markDirty(x, y);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tile)) return false;
+        Tile other = (Tile) o;
+        return x == other.x && y == other.y && worldMap == other.worldMap;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
     }
 
 
@@ -73,6 +98,7 @@ public class Tile {
      */
     @Deprecated
     public HerbNode getHerbNode() {
+        ResourceNode<?> resourceNode = getResourceNode();
         return (resourceNode instanceof HerbNode) ? (HerbNode) resourceNode : null;
     }
 
@@ -83,7 +109,7 @@ public class Tile {
      */
     @Deprecated
     public void setHerbNode(HerbNode herbNode) {
-        this.resourceNode = herbNode;
+        setResourceNode(herbNode);
     }
 
     /**
@@ -93,6 +119,6 @@ public class Tile {
      */
     @Deprecated
     public boolean isHerbNode() {
-        return resourceNode instanceof HerbNode;
+        return worldMap.getResourceNode(x, y) instanceof HerbNode;
     }
 }
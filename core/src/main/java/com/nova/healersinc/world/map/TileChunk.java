@@ -0,0 +1,88 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+import java.util.Arrays;
+
+/**
+ * Materialized {@link WorldMap#CHUNK_SIZE} x {@link WorldMap#CHUNK_SIZE} block of tiles.
+ * Biomes are a row-major byte column; resource nodes and buildings are sparse columns
+ * that are only allocated once the chunk actually holds one.
+ */
+final class TileChunk {
+    static final int TILE_COUNT = WorldMap.CHUNK_SIZE * WorldMap.CHUNK_SIZE;
+
+    final byte[] biomeIds = new byte[TILE_COUNT];
+    private SparseTileColumn<ResourceNode<?>> resourceNodes;
+    private SparseTileColumn<Building> buildings;
+
+    TileChunk(byte fillBiomeId) {
+        Arrays.fill(biomeIds, fillBiomeId);
+    }
+
+    static int cell(int localX, int localY) {
+        return localY * WorldMap.CHUNK_SIZE + localX;
+    }
+
+    ResourceNode<?> getResourceNode(int cell) {
+        return resourceNodes == null ? null : resourceNodes.get(cell);
+    }
+
+    void setResourceNode(int cell, ResourceNode<?> resourceNode) {
+        if (resourceNodes == null) {
+            if (resourceNode == null) return;
+            resourceNodes = new SparseTileColumn<>(TILE_COUNT);
+        }
+        resourceNodes.set(cell, resourceNode);
+    }
+
+    Building getBuilding(int cell) {
+        return buildings == null ? null : buildings.get(cell);
+    }
+
+    void setBuilding(int cell, Building building) {
+        if (buildings == null) {
+            if (building == null) return;
+            buildings = new SparseTileColumn<>(TILE_COUNT);
+        }
+        buildings.set(cell, building);
+    }
+
+    boolean hasBuildings() {
+        return buildings != null && buildings.size() > 0;
+    }
+
+    /**
+     * Returns true if any resource node in the chunk is below its max yield, i.e. the chunk
+     * holds state that regenerating it from the seed would lose.
+     */
+    boolean hasHarvestedNodes() {
+        if (resourceNodes == null) return false;
+
+        for (int i = 0; i < resourceNodes.size(); i++) {
+            ResourceNode<?> node = resourceNodes.valueAt(i);
+            if (node.getCurrentYield() < node.getMaxYield()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the shared biome id if every tile has the same biome and the chunk holds no
+     * resource nodes or buildings, or -1 if the chunk cannot be collapsed.
+     */
+    int uniformBiomeId() {
+        if (resourceNodes != null && resourceNodes.size() > 0) return -1;
+        if (buildings != null && buildings.size() > 0) return -1;
+
+        byte first = biomeIds[0];
+        for (int i = 1; i < TILE_COUNT; i++) {
+            if (biomeIds[i] != first) {
+                return -1;
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,67 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+/**
+ * Backing store for the per-tile data of a {@link WorldMap}.
+ * Implementations decide how biomes, resource nodes and buildings are laid out in memory;
+ * {@link Tile} is only a lightweight view over whatever storage the map was created with.
+ */
+public interface TileStorage {
+
+    int getWidth();
+
+    int getHeight();
+
+    BiomeType getBiome(int x, int y);
+
+    void setBiome(int x, int y, BiomeType biome);
+
+    ResourceNode<?> getResourceNode(int x, int y);
+
+    void setResourceNode(int x, int y, ResourceNode<?> resourceNode);
+
+    Building getBuilding(int x, int y);
+
+    void setBuilding(int x, int y, Building building);
+
+    /**
+     * Returns true if the {@link WorldMap#CHUNK_SIZE} block at the given chunk coordinates is
+     * known to share one biome and hold no resource nodes or buildings, so it can be handled
+     * as a whole instead of tile by tile.
+     */
+    default boolean isUniformChunk(int chunkX, int chunkY) {
+        return false;
+    }
+
+    /**
+     * Returns false while the chunk at the given chunk coordinates has not been generated or
+     * loaded yet. Such tiles read as empty and must not be written to.
+     */
+    default boolean isChunkLoaded(int chunkX, int chunkY) {
+        return true;
+    }
+
+    /**
+     * Gives the storage a chance to release memory for the tiles in [fromX, toX) x [fromY, toY)
+     * once they are no longer expected to change, e.g. collapsing uniform chunks.
+     */
+    default void compact(int fromX, int fromY, int toX, int toY) {
+    }
+
+    /**
+     * Packs a biome into a single byte: 0 means "no biome", otherwise ordinal + 1.
+     */
+    static byte encodeBiome(BiomeType biome) {
+        return biome == null ? 0 : (byte) (biome.ordinal() + 1);
+    }
+
+    /**
+     * Inverse of {@link #encodeBiome(BiomeType)}.
+     */
+    static BiomeType decodeBiome(int biomeId) {
+        return biomeId == 0 ? null : BiomeType.byOrdinal(biomeId - 1);
+    }
+}
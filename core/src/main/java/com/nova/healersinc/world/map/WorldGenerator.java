@@ -1,167 +1,592 @@
 package com.nova.healersinc.world.map;
 
+import com.badlogic.gdx.Gdx;
 import com.nova.healersinc.world.biome.BiomeDefinition;
 import com.nova.healersinc.world.biome.BiomeRegistry;
 import com.nova.healersinc.world.biome.BiomeType;
 import com.nova.healersinc.world.herb.HerbNode;
 import com.nova.healersinc.world.herb.HerbType;
 
-import java.util.Random;
-import java.util.List;
-import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates biomes and herb clusters.
+ * All random decisions come from a {@link PositionalRandom}, so the content of a tile only
+ * depends on the seed, the map size and its coordinates. Any area can be (re)generated on its
+ * own, in any order and on any number of threads, with the same result.
+ */
 public class WorldGenerator {
 
-    private final Random random;
+    /**
+     * Version of the generation rules. Bump it whenever the same seed and config would produce
+     * a different world, so cached worlds from older versions are not reused.
+     */
+    public static final int VERSION = 1;
+
     private static final int BIOME_CHUNK_SIZE = 5;
 
-    public WorldGenerator(long seed) {
-        this.random = new Random(seed);
+    // how much biomes bleed into each other
+    private static final float BORDER_NOISE_STRENGTH = 0.25f; //0 = straight edges, 1 = looks like verdun 1918
+    // chance that a chunk continues the biome of its left or bottom neighbor
+    private static final float CHUNK_INHERIT_CHANCE = 0.75f;
+
+    /** Edge length of the areas generation is split into */
+    private static final int REGION_SIZE = 2 * WorldMap.CHUNK_SIZE;
+    /** Below this many regions per task the fork-join split stops */
+    private static final int REGIONS_PER_TASK = 4;
+
+    /**
+     * Tiles outside an area that still influence it: clusters reach one tile, and which
+     * neighbors a cluster may grow into depends on cluster centers one tile further out.
+     */
+    private static final int HALO = 2;
+
+    // Each decision draws from its own stream so changing one never shifts another
+    private static final int ROLL_CHUNK_INHERIT = 1;
+    private static final int ROLL_CHUNK_NEIGHBOR = 2;
+    private static final int ROLL_CHUNK_BIOME = 3;
+    private static final int ROLL_TILE_BLEED = 4;
+    private static final int ROLL_TILE_NEIGHBOR = 5;
+    private static final int ROLL_CLUSTER_CENTER = 6;
+    private static final int ROLL_CLUSTER_HERB = 7;
+    private static final int ROLL_CLUSTER_SIZE = 8;
+    private static final int ROLL_CLUSTER_GROWTH = 9;
+    private static final int ROLL_CLUSTER_PRIORITY = 10;
+    // 11 and up belong to NoiseBiomeField
+
+    private static final int[] NEIGHBOR_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBOR_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    private static final HerbType[] HERB_TYPES = HerbType.values();
+
+    /** How biomes are laid out; herb clusters work the same on top of either */
+    public enum BiomeLayout {
+        /** 5x5 chunks that continue their neighbors' biome, with noisy borders */
+        CHUNKS,
+        /** Value noise cut into biomes by world gen weight */
+        NOISE
     }
 
-    public WorldMap generate(int width, int height) {
-        WorldMap worldMap = new WorldMap(width, height);
+    private final PositionalRandom random;
+    private final BiomeLayout layout;
+    // Fixed for the generator's lifetime, so a config reload cannot change a world halfway
+    private final BiomeRegistry.Snapshot biomes;
+    // Only set for the NOISE layout
+    private final NoiseBiomeField noiseField;
+
+    private final GenerationStats stats = new GenerationStats();
+    private final ThreadLocal<AreaBuffers> areaBuffers = new ThreadLocal<AreaBuffers>() {
+        @Override
+        protected AreaBuffers initialValue() {
+            return new AreaBuffers();
+        }
+    };
 
-        int chunksX = (int) Math.ceil(width / (float) BIOME_CHUNK_SIZE);
-        int chunksY = (int) Math.ceil(height / (float) BIOME_CHUNK_SIZE);
+    public WorldGenerator(long seed) {
+        this(seed, BiomeLayout.CHUNKS);
+    }
 
-        BiomeType[][] chunkBiomes = new BiomeType[chunksX][chunksY];
+    /**
+     * Requires an initialized {@link BiomeRegistry}; uses the biomes it holds at this point.
+     */
+    public WorldGenerator(long seed, BiomeLayout layout) {
+        this.random = new PositionalRandom(seed);
+        this.layout = layout;
+        this.biomes = BiomeRegistry.get();
+        this.noiseField = layout == BiomeLayout.NOISE ? new NoiseBiomeField(random, biomes.getWorldGenWeights()) : null;
+    }
 
-        for (int cx = 0; cx < chunksX; cx++) {
-            for (int cy = 0; cy < chunksY; cy++) {
-                chunkBiomes[cx][cy] = pickBiomeForChunk(cx, cy, chunkBiomes);
-            }
-        }
+    public BiomeLayout getLayout() {
+        return layout;
+    }
 
-        // Store biomes for each tile and identify potential cluster centers
-        BiomeType[][] tileBiomes = new BiomeType[width][height];
-        List<int[]> clusterCenters = new ArrayList<>();
+    /**
+     * Totals over everything this generator has generated so far, including streamed chunks.
+     */
+    public GenerationStats getStats() {
+        return stats;
+    }
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                BiomeType biome = pickBiomeForTile(x, y, chunkBiomes);
-                tileBiomes[x][y] = biome;
+    public WorldMap generate(int width, int height) {
+        return generate(new WorldMap(width, height));
+    }
 
-                // Check if this tile should be a cluster center
-                if (shouldBeHerbClusterCenter(biome)) {
-                    clusterCenters.add(new int[]{x, y});
-                }
+    /**
+     * Fills the given (empty) map on the calling thread. The caller picks the storage,
+     * e.g. a {@link ChunkedTileStorage} for very large worlds.
+     */
+    public WorldMap generate(WorldMap worldMap) {
+        return generate(worldMap, new GenerationProgress());
+    }
 
-                // Initialize tile with its biome (no herb node yet)
-                worldMap.setTile(x, y, new Tile(x, y, biome));
-            }
+    /**
+     * Same as {@link #generate(WorldMap)}, reporting to the given progress.
+     *
+     * @throws CancellationException if the progress was cancelled before generation finished
+     */
+    public WorldMap generate(WorldMap worldMap, GenerationProgress progress) {
+        int regionsX = (worldMap.getWidth() + REGION_SIZE - 1) / REGION_SIZE;
+        int regionsY = (worldMap.getHeight() + REGION_SIZE - 1) / REGION_SIZE;
+        progress.start(regionsX * regionsY);
+        long startTime = System.nanoTime();
+        long startBytes = stats.getAllocatedBytes();
+
+        for (int region = 0; region < regionsX * regionsY; region++) {
+            generateRegion(worldMap, region % regionsX, region / regionsX, progress);
         }
 
-        // Now, grow the clusters from the identified centers
-        growHerbClusters(worldMap, tileBiomes, clusterCenters);
+        logThroughput(worldMap, startTime, startBytes, 1);
+        return worldMap;
+    }
+
+    /**
+     * Generates the map on a fork-join pool, one {@link #REGION_SIZE} region per work item.
+     * The result is identical to {@link #generate(WorldMap)} for any pool size.
+     */
+    public WorldMap generateParallel(WorldMap worldMap, ForkJoinPool pool) {
+        return generateParallel(worldMap, pool, new GenerationProgress());
+    }
 
+    /**
+     * Same as {@link #generateParallel(WorldMap, ForkJoinPool)}, reporting to the given progress.
+     *
+     * @throws CancellationException if the progress was cancelled before generation finished
+     */
+    public WorldMap generateParallel(WorldMap worldMap, ForkJoinPool pool, GenerationProgress progress) {
+        int regionsX = (worldMap.getWidth() + REGION_SIZE - 1) / REGION_SIZE;
+        int regionsY = (worldMap.getHeight() + REGION_SIZE - 1) / REGION_SIZE;
+        progress.start(regionsX * regionsY);
+        long startTime = System.nanoTime();
+        long startBytes = stats.getAllocatedBytes();
+
+        pool.invoke(new RegionTask(worldMap, regionsX, 0, regionsX * regionsY, progress));
+
+        logThroughput(worldMap, startTime, startBytes, pool.getParallelism());
         return worldMap;
     }
 
-    private BiomeType pickBiomeForChunk(int cx, int cy, BiomeType[][] chunkBiomes) {
-        if (cx == 0 && cy == 0) {
-            return randomBiome();
-        }
+    public WorldMap generateParallel(WorldMap worldMap) {
+        return generateParallel(worldMap, ForkJoinPool.commonPool());
+    }
+
+    public WorldMap generateParallel(WorldMap worldMap, GenerationProgress progress) {
+        return generateParallel(worldMap, ForkJoinPool.commonPool(), progress);
+    }
+
+    private void logThroughput(WorldMap worldMap, long startTime, long startBytes, int threads) {
+        long tiles = (long) worldMap.getWidth() * worldMap.getHeight();
+        double seconds = Math.max(1, System.nanoTime() - startTime) / 1e9;
+        String allocated = GenerationStats.isAllocationTracked()
+            ? String.format("%.1f bytes/tile allocated", (double) (stats.getAllocatedBytes() - startBytes) / tiles)
+            : "allocations not tracked";
 
-        List<BiomeType> neighbors = new ArrayList<>();
-        if (cx > 0) {
-            neighbors.add(chunkBiomes[cx - 1][cy]);
+        Gdx.app.log("WorldGenerator", String.format("%s layout: %dx%d tiles in %.0f ms on %d thread(s), %.2f M tiles/s, %s",
+            layout, worldMap.getWidth(), worldMap.getHeight(), seconds * 1000, threads, tiles / seconds / 1e6, allocated));
+    }
+
+    /**
+     * Regenerates biomes and herb nodes of the tiles in [fromX, toX) x [fromY, toY) exactly as
+     * a full generation would have produced them. Buildings are left untouched.
+     */
+    public void regenerate(WorldMap worldMap, int fromX, int fromY, int toX, int toY) {
+        generateArea(worldMap,
+            Math.max(0, fromX), Math.max(0, fromY),
+            Math.min(worldMap.getWidth(), toX), Math.min(worldMap.getHeight(), toY), null);
+    }
+
+    /**
+     * Splits a range of region indices until it is small enough to generate directly.
+     */
+    private final class RegionTask extends RecursiveAction {
+        private final WorldMap worldMap;
+        private final int regionsX;
+        private final int from;
+        private final int to;
+        private final GenerationProgress progress;
+
+        RegionTask(WorldMap worldMap, int regionsX, int from, int to, GenerationProgress progress) {
+            this.worldMap = worldMap;
+            this.regionsX = regionsX;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
         }
-        if (cy > 0) {
-            neighbors.add(chunkBiomes[cx][cy - 1]);
+
+        @Override
+        protected void compute() {
+            if (to - from <= REGIONS_PER_TASK) {
+                for (int region = from; region < to; region++) {
+                    generateRegion(worldMap, region % regionsX, region / regionsX, progress);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new RegionTask(worldMap, regionsX, from, mid, progress),
+                new RegionTask(worldMap, regionsX, mid, to, progress)
+            );
         }
+    }
 
-        if(!neighbors.isEmpty() && random.nextFloat() < 0.75f) {
-            return neighbors.get(random.nextInt(neighbors.size()));
-        } else {
-            return randomBiome();
+    private void generateRegion(WorldMap worldMap, int regionX, int regionY, GenerationProgress progress) {
+        if (progress.isCancelled()) {
+            throw new CancellationException("World generation cancelled");
         }
+        progress.regionStarted();
+
+        int fromX = regionX * REGION_SIZE;
+        int fromY = regionY * REGION_SIZE;
+        generateArea(worldMap, fromX, fromY,
+            Math.min(worldMap.getWidth(), fromX + REGION_SIZE),
+            Math.min(worldMap.getHeight(), fromY + REGION_SIZE), progress);
+        progress.regionStored();
     }
 
-    private BiomeType randomBiome() {
-        return BiomeRegistry.pickRandomBiome(random);
+    /**
+     * Generates an area into this thread's scratch buffers and commits it to the map.
+     * Only the commit holds the map lock; all rolls happen outside it.
+     */
+    private void generateArea(WorldMap worldMap, int fromX, int fromY, int toX, int toY, GenerationProgress progress) {
+        long startBytes = GenerationStats.threadAllocatedBytes();
+        int areaWidth = toX - fromX;
+
+        AreaBuffers buffers = areaBuffers.get();
+        rollArea(worldMap.getWidth(), worldMap.getHeight(), fromX, fromY, toX, toY, buffers, progress);
+        byte[] biomeIds = buffers.biomeIds;
+        byte[] herbIds = buffers.herbIds;
+        int herbNodes = 0;
+
+        synchronized (worldMap) {
+            for (int y = fromY; y < toY; y++) {
+                for (int x = fromX; x < toX; x++) {
+                    int local = (y - fromY) * areaWidth + (x - fromX);
+                    worldMap.setBiome(x, y, TileStorage.decodeBiome(biomeIds[local]));
+
+                    byte herbId = herbIds[local];
+                    if (herbId == 0) {
+                        worldMap.setResourceNode(x, y, null);
+                    } else {
+                        worldMap.setResourceNode(x, y, new HerbNode(HERB_TYPES[herbId - 1]));
+                        herbNodes++;
+                    }
+                }
+            }
+            worldMap.compact(fromX, fromY, toX, toY);
+        }
+
+        stats.areaGenerated(areaWidth * (toY - fromY), herbNodes, GenerationStats.threadAllocatedBytes() - startBytes);
     }
 
-    private boolean shouldBeHerbClusterCenter(BiomeType biome) {
-        BiomeDefinition def = BiomeRegistry.getDefinition(biome);
-        return random.nextFloat() < def.getSpawnRules().getClusterCenterChance();
+    /**
+     * Generates one {@link WorldMap#CHUNK_SIZE} chunk of a map with the given size into a
+     * detached chunk, without touching any map. Safe to call from any thread.
+     */
+    TileChunk generateChunk(int mapWidth, int mapHeight, int chunkX, int chunkY) {
+        long startBytes = GenerationStats.threadAllocatedBytes();
+        int fromX = chunkX * WorldMap.CHUNK_SIZE;
+        int fromY = chunkY * WorldMap.CHUNK_SIZE;
+        int toX = Math.min(mapWidth, fromX + WorldMap.CHUNK_SIZE);
+        int toY = Math.min(mapHeight, fromY + WorldMap.CHUNK_SIZE);
+        int areaWidth = toX - fromX;
+
+        AreaBuffers buffers = areaBuffers.get();
+        rollArea(mapWidth, mapHeight, fromX, fromY, toX, toY, buffers, null);
+        byte[] biomeIds = buffers.biomeIds;
+        byte[] herbIds = buffers.herbIds;
+        int herbNodes = 0;
+
+        TileChunk chunk = new TileChunk((byte) 0);
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                int local = (y - fromY) * areaWidth + (x - fromX);
+                int cell = TileChunk.cell(x - fromX, y - fromY);
+                chunk.biomeIds[cell] = biomeIds[local];
+
+                byte herbId = herbIds[local];
+                if (herbId != 0) {
+                    chunk.setResourceNode(cell, new HerbNode(HERB_TYPES[herbId - 1]));
+                    herbNodes++;
+                }
+            }
+        }
+
+        stats.areaGenerated(areaWidth * (toY - fromY), herbNodes, GenerationStats.threadAllocatedBytes() - startBytes);
+        return chunk;
     }
 
-    private void growHerbClusters(WorldMap worldMap, BiomeType[][] tileBiomes, List<int[]> clusterCenters) {
-        int width = worldMap.getWidth();
-        int height = worldMap.getHeight();
+    /**
+     * Rolls biomes and herbs for [fromX, toX) x [fromY, toY) of a map with the given size into
+     * the row-major biomeIds and herbIds buffers, indexed relative to the area.
+     * Herb ids are {@link HerbType} ordinal + 1, 0 for none.
+     * Reports finished phases to the progress, if one is given.
+     */
+    private void rollArea(int width, int height, int fromX, int fromY, int toX, int toY,
+                          AreaBuffers buffers, GenerationProgress progress) {
+        int areaWidth = toX - fromX;
+
+        // The area plus its halo, clamped to the map
+        int haloFromX = Math.max(0, fromX - HALO);
+        int haloFromY = Math.max(0, fromY - HALO);
+        int haloToX = Math.min(width, toX + HALO);
+        int haloToY = Math.min(height, toY + HALO);
+        int haloWidth = haloToX - haloFromX;
+
+        buffers.prepare(areaWidth * (toY - fromY), haloWidth * (haloToY - haloFromY), haloWidth);
+        byte[] biomeIds = buffers.biomeIds;
+        byte[] herbIds = buffers.herbIds;
+        byte[] centerHerbIds = buffers.centerHerbIds;
+        BiomeType[] rowBiomes = buffers.rowBiomes;
+
+        // Biomes are picked a row at a time so the noise layout can work on whole rows
+        ChunkBiomes chunkBiomes = buffers.chunkBiomes;
+        if (noiseField == null) {
+            chunkBiomes.reset(width, height, haloFromX, haloFromY, haloToX, haloToY);
+        }
 
-        for (int[] centerCoords : clusterCenters) {
-            int centerX = centerCoords[0];
-            int centerY = centerCoords[1];
+        // Cluster centers as packed halo-local indices, in row-major order
+        int centerCount = 0;
 
-            BiomeType biome = tileBiomes[centerX][centerY];
-            HerbType herbType = getHerbTypeForBiome(biome);
+        for (int y = haloFromY; y < haloToY; y++) {
+            if (noiseField != null) {
+                noiseField.pickRow(y, haloFromX, haloToX, buffers.noiseRow, rowBiomes);
+            } else {
+                for (int x = haloFromX; x < haloToX; x++) {
+                    rowBiomes[x - haloFromX] = pickBiomeForTile(x, y, chunkBiomes);
+                }
+            }
 
-            if (herbType == null) {
-                continue;
+            for (int x = haloFromX; x < haloToX; x++) {
+                BiomeType biome = rowBiomes[x - haloFromX];
+                if (x >= fromX && x < toX && y >= fromY && y < toY) {
+                    biomeIds[(y - fromY) * areaWidth + (x - fromX)] = TileStorage.encodeBiome(biome);
+                }
+
+                if (shouldBeHerbClusterCenter(x, y, biome)) {
+                    HerbType herbType = getHerbTypeForBiome(x, y, biome);
+                    if (herbType != null) {
+                        int haloIndex = (y - haloFromY) * haloWidth + (x - haloFromX);
+                        centerHerbIds[haloIndex] = (byte) (herbType.ordinal() + 1);
+                        centerCount = buffers.addCenter(centerCount, haloIndex);
+                    }
+                }
             }
+        }
 
-            // Place the center herb
-            Tile centerTile = worldMap.getTile(centerX, centerY);
-            if (!centerTile.hasResourceNode()) {
-                centerTile.setResourceNode(createHerbNode(herbType));
+        if (progress != null) {
+            progress.biomesRolled();
+        }
+
+        // Every cluster that can reach the area: centers inside it or one tile around it
+        int clusterFromX = Math.max(0, fromX - 1);
+        int clusterFromY = Math.max(0, fromY - 1);
+        int clusterToX = Math.min(width, toX + 1);
+        int clusterToY = Math.min(height, toY + 1);
+
+        int[] centers = buffers.centers;
+        for (int i = 0; i < centerCount; i++) {
+            int haloIndex = centers[i];
+            int x = haloFromX + haloIndex % haloWidth;
+            int y = haloFromY + haloIndex / haloWidth;
+            if (x < clusterFromX || x >= clusterToX || y < clusterFromY || y >= clusterToY) continue;
+
+            byte herbId = centerHerbIds[haloIndex];
+            if (x >= fromX && x < toX && y >= fromY && y < toY) {
+                herbIds[(y - fromY) * areaWidth + (x - fromX)] = herbId;
             }
+            growHerbCluster(x, y, herbId, width, height, haloFromX, haloFromY, haloWidth,
+                fromX, fromY, toX, toY, buffers);
+        }
 
-            // Grow 2-4 additional herbs around the center
-            int herbsToGrow = 2 + random.nextInt(3); // 2, 3, or 4
+        if (progress != null) {
+            progress.clustersGrown();
+        }
+    }
 
-            for (int i = 0; i < herbsToGrow; i++) {
-                int attempts = 0;
-                while (attempts < 10) {
-                    int dx = random.nextInt(3) - 1; // -1, 0, 1
-                    int dy = random.nextInt(3) - 1; // -1, 0, 1
+    /**
+     * Grows 2-4 herbs around a cluster center into neighbors that are not centers themselves.
+     * The neighbors are drawn from a deterministic shuffle; when several clusters pick the same
+     * tile, the cluster with the highest priority roll gets it, so the outcome does not depend
+     * on the order clusters are visited in.
+     */
+    private void growHerbCluster(int centerX, int centerY, byte herbId, int width, int height,
+                                 int haloFromX, int haloFromY, int haloWidth,
+                                 int fromX, int fromY, int toX, int toY, AreaBuffers buffers) {
+        byte[] centerHerbIds = buffers.centerHerbIds;
+        byte[] herbIds = buffers.herbIds;
+        long[] claimPriorities = buffers.claimPriorities;
+        int[] candidates = buffers.candidates;
+        int candidateCount = 0;
+
+        for (int n = 0; n < NEIGHBOR_DX.length; n++) {
+            int nx = centerX + NEIGHBOR_DX[n];
+            int ny = centerY + NEIGHBOR_DY[n];
+            if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+            if (centerHerbIds[(ny - haloFromY) * haloWidth + (nx - haloFromX)] != 0) continue;
+            candidates[candidateCount++] = n;
+        }
 
-                    int nx = centerX + dx;
-                    int ny = centerY + dy;
+        int herbsToGrow = Math.min(candidateCount, 2 + random.nextInt(centerX, centerY, ROLL_CLUSTER_SIZE, 3)); // 2, 3, or 4
+        long priority = random.nextLong(centerX, centerY, ROLL_CLUSTER_PRIORITY);
+        int areaWidth = toX - fromX;
+
+        for (int i = 0; i < herbsToGrow; i++) {
+            // Partial Fisher-Yates shuffle of the candidate neighbors
+            int pick = i + random.nextInt(centerX, centerY, ROLL_CLUSTER_GROWTH, i, candidateCount - i);
+            int n = candidates[pick];
+            candidates[pick] = candidates[i];
+            candidates[i] = n;
+
+            int nx = centerX + NEIGHBOR_DX[n];
+            int ny = centerY + NEIGHBOR_DY[n];
+            if (nx < fromX || nx >= toX || ny < fromY || ny >= toY) continue;
+
+            int local = (ny - fromY) * areaWidth + (nx - fromX);
+            if (herbIds[local] == 0 || priority > claimPriorities[local]) {
+                herbIds[local] = herbId;
+                claimPriorities[local] = priority;
+            }
+        }
+    }
 
-                    // Check bounds
-                    if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
-                        Tile neighborTile = worldMap.getTile(nx, ny);
+    /**
+     * Scratch buffers for generating one area, kept per thread and reused for every area that
+     * thread generates, so rolling an area allocates nothing once the buffers have grown.
+     */
+    private final class AreaBuffers {
+        byte[] biomeIds = new byte[0];
+        byte[] herbIds = new byte[0];
+        long[] claimPriorities = new long[0];
+        byte[] centerHerbIds = new byte[0];
+        int[] centers = new int[64];
+        BiomeType[] rowBiomes = new BiomeType[0];
+        NoiseBiomeField.Row noiseRow;
+        final ChunkBiomes chunkBiomes = new ChunkBiomes();
+        final int[] candidates = new int[NEIGHBOR_DX.length];
+
+        /**
+         * Makes sure the buffers fit and clears the ones that are accumulated into.
+         */
+        void prepare(int areaTiles, int haloTiles, int haloWidth) {
+            if (biomeIds.length < areaTiles) {
+                biomeIds = new byte[areaTiles];
+                herbIds = new byte[areaTiles];
+                claimPriorities = new long[areaTiles];
+            } else {
+                Arrays.fill(herbIds, 0, areaTiles, (byte) 0);
+            }
 
-                        if (!neighborTile.hasResourceNode()) {
-                            neighborTile.setResourceNode(createHerbNode(herbType));
-                            break;
-                        }
-                    }
-                    attempts++;
+            if (centerHerbIds.length < haloTiles) {
+                centerHerbIds = new byte[haloTiles];
+            } else {
+                Arrays.fill(centerHerbIds, 0, haloTiles, (byte) 0);
+            }
+
+            if (rowBiomes.length < haloWidth) {
+                rowBiomes = new BiomeType[haloWidth];
+                if (noiseField != null) {
+                    noiseRow = new NoiseBiomeField.Row(haloWidth);
                 }
             }
         }
+
+        /**
+         * Appends a center and returns the new center count.
+         */
+        int addCenter(int count, int haloIndex) {
+            if (count == centers.length) {
+                centers = Arrays.copyOf(centers, count * 2);
+            }
+            centers[count] = haloIndex;
+            return count + 1;
+        }
     }
 
-    private HerbType getHerbTypeForBiome(BiomeType biome) {
-        BiomeDefinition def = BiomeRegistry.getDefinition(biome);
-        return def.getSpawnRules().pickRandomHerb(random);
+    /**
+     * Lazily resolved chunk biomes for the chunks an area (and its bleed) can see.
+     */
+    private final class ChunkBiomes {
+        int chunksX;
+        int chunksY;
+        private int fromChunkX;
+        private int fromChunkY;
+        private int spanX;
+        private BiomeType[] biomes = new BiomeType[0];
+
+        void reset(int width, int height, int fromX, int fromY, int toX, int toY) {
+            this.chunksX = (width + BIOME_CHUNK_SIZE - 1) / BIOME_CHUNK_SIZE;
+            this.chunksY = (height + BIOME_CHUNK_SIZE - 1) / BIOME_CHUNK_SIZE;
+
+            // One extra chunk on each side for border bleed
+            this.fromChunkX = Math.max(0, fromX / BIOME_CHUNK_SIZE - 1);
+            this.fromChunkY = Math.max(0, fromY / BIOME_CHUNK_SIZE - 1);
+            int toChunkX = Math.min(chunksX, (toX - 1) / BIOME_CHUNK_SIZE + 2);
+            int toChunkY = Math.min(chunksY, (toY - 1) / BIOME_CHUNK_SIZE + 2);
+
+            this.spanX = toChunkX - fromChunkX;
+            int size = spanX * (toChunkY - fromChunkY);
+            if (biomes.length < size) {
+                biomes = new BiomeType[size];
+            } else {
+                Arrays.fill(biomes, 0, size, null);
+            }
+        }
+
+        BiomeType get(int cx, int cy) {
+            int local = (cy - fromChunkY) * spanX + (cx - fromChunkX);
+            BiomeType biome = biomes[local];
+            if (biome == null) {
+                biome = pickBiomeForChunk(cx, cy);
+                biomes[local] = biome;
+            }
+            return biome;
+        }
     }
 
-    private HerbNode createHerbNode(HerbType type) {
-        switch (type) {
-            case MINT:
-                return new HerbNode(type, 8, 1.1f, 0.12f);
-            case ECHINACEA:
-                return new HerbNode(type, 12, 1.2f, 0.08f);
-            default: // CHAMOMILE
-                return new HerbNode(type, 10, 1.0f, 0.1f);
+    /**
+     * A chunk either continues the biome of its left or bottom neighbor or rolls a new one.
+     * Instead of filling the chunk grid in order, follow the chain of "continue" rolls back
+     * until a chunk that rolled its own biome; that takes four steps on average.
+     */
+    private BiomeType pickBiomeForChunk(int cx, int cy) {
+        while (cx > 0 || cy > 0) {
+            if (random.nextFloat(cx, cy, ROLL_CHUNK_INHERIT) >= CHUNK_INHERIT_CHANCE) {
+                break;
+            }
+
+            if (cx > 0 && cy > 0) {
+                if (random.nextInt(cx, cy, ROLL_CHUNK_NEIGHBOR, 2) == 0) {
+                    cx--;
+                } else {
+                    cy--;
+                }
+            } else if (cx > 0) {
+                cx--;
+            } else {
+                cy--;
+            }
         }
+        return biomes.pickBiome(random.nextFloat(cx, cy, ROLL_CHUNK_BIOME));
+    }
+
+    private boolean shouldBeHerbClusterCenter(int x, int y, BiomeType biome) {
+        BiomeDefinition def = biomes.getDefinition(biome);
+        return random.nextFloat(x, y, ROLL_CLUSTER_CENTER) < def.getSpawnRules().getClusterCenterChance();
     }
 
-    private BiomeType pickBiomeForTile(int x, int y, BiomeType[][] chunkBiomes) {
-        int chunkX = chunkBiomes.length;
-        int chunkY = chunkBiomes[0].length;
+    private HerbType getHerbTypeForBiome(int x, int y, BiomeType biome) {
+        BiomeDefinition def = biomes.getDefinition(biome);
+        return def.getSpawnRules().pickHerb(random.nextFloat(x, y, ROLL_CLUSTER_HERB));
+    }
 
+    private BiomeType pickBiomeForTile(int x, int y, ChunkBiomes chunkBiomes) {
         int cx = x / BIOME_CHUNK_SIZE;
         int cy = y / BIOME_CHUNK_SIZE;
 
-        BiomeType base = chunkBiomes[cx][cy];
-
-        // how much biomes bleed into each other
-        float borderNoiseStrength = 0.25f; //0 = straight edges, 1 = looks like verdun 1918
+        BiomeType base = chunkBiomes.get(cx, cy);
 
         int localX = x % BIOME_CHUNK_SIZE;
         int localY = y % BIOME_CHUNK_SIZE;
@@ -177,23 +602,24 @@ public class WorldGenerator {
         }
 
         float edgeFactor = 1.0f - (minDistToEdge / 2.0f);
-        float bleedChance = borderNoiseStrength * edgeFactor;
+        float bleedChance = BORDER_NOISE_STRENGTH * edgeFactor;
 
-        if (random.nextFloat() > bleedChance) {
+        if (random.nextFloat(x, y, ROLL_TILE_BLEED) > bleedChance) {
             return base;
         }
 
-        List<BiomeType> neighborBiomes = new ArrayList<>();
+        int neighborCount = (cx > 0 ? 1 : 0) + (cx < chunkBiomes.chunksX - 1 ? 1 : 0)
+            + (cy > 0 ? 1 : 0) + (cy < chunkBiomes.chunksY - 1 ? 1 : 0);
 
-        if (cx > 0) neighborBiomes.add(chunkBiomes[cx - 1][cy]);
-        if (cx < chunkX - 1) neighborBiomes.add(chunkBiomes[cx + 1][cy]);
-        if (cy > 0) neighborBiomes.add(chunkBiomes[cx][cy - 1]);
-        if (cy < chunkY - 1) neighborBiomes.add(chunkBiomes[cx][cy + 1]);
-
-        if (neighborBiomes.isEmpty()) {
+        if (neighborCount == 0) {
             return base;
         }
 
-        return neighborBiomes.get(random.nextInt(neighborBiomes.size()));
+        int pick = random.nextInt(x, y, ROLL_TILE_NEIGHBOR, neighborCount);
+
+        if (cx > 0 && pick-- == 0) return chunkBiomes.get(cx - 1, cy);
+        if (cx < chunkBiomes.chunksX - 1 && pick-- == 0) return chunkBiomes.get(cx + 1, cy);
+        if (cy > 0 && pick-- == 0) return chunkBiomes.get(cx, cy - 1);
+        return chunkBiomes.get(cx, cy + 1);
     }
 }
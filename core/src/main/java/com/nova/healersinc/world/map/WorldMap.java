@@ -1,25 +1,201 @@
 package com.nova.healersinc.world.map;
 
-public class WorldMap {
+import com.badlogic.gdx.utils.Disposable;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.resource.ResourceNode;
+
+public class WorldMap implements Disposable {
 
     public static final int TILE_SIZE = 32;
+    /** Edge length in tiles of the blocks used by chunked storage and chunk culling */
+    public static final int CHUNK_SIZE = 32;
 
     private final int width;
     private final int height;
-    private final Tile[][] tiles;
+    private final TileStorage storage;
+
+    // Null until changes are tracked
+    private DirtyChunks dirtyChunks;
+    private final ResourceNode.ChangeListener nodeChangeListener = new ResourceNode.ChangeListener() {
+        @Override
+        public void resourceNodeChanged(int x, int y) {
+            markDirty(x, y);
+        }
+    };
 
     public WorldMap(int width, int height) {
-        this.width = width;
-        this.height = height;
-        this.tiles = new Tile[width][height];
+        this(new DenseTileStorage(width, height));
+    }
+
+    public WorldMap(TileStorage storage) {
+        this.width = storage.getWidth();
+        this.height = storage.getHeight();
+        this.storage = storage;
     }
 
+    /**
+     * Copies biome, resource node and building of the given tile into this map.
+     * Passing null clears the tile.
+     */
     public void setTile(int x, int y, Tile tile) {
-        tiles[x][y] = tile;
+        markDirty(x, y);
+        if (tile == null) {
+            storage.setBiome(x, y, null);
+            storage.setResourceNode(x, y, null);
+            storage.setBuilding(x, y, null);
+            return;
+        }
+
+        storage.setBiome(x, y, tile.getBiome());
+        storage.setResourceNode(x, y, tile.getResourceNode());
+        storage.setBuilding(x, y, tile.getBuilding());
     }
 
+    /**
+     * Returns a view of the tile at the given position, or null if it lies outside the map.
+     * The view is created on demand and reads/writes straight through to the storage.
+     */
     public Tile getTile(int x, int y) {
-        return tiles[x][y];
+        if (!isInBounds(x, y)) {
+            return null;
+        }
+        return new Tile(this, x, y);
+    }
+
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    // === PRIMITIVE ACCESSORS (no Tile view needed) ===
+
+    public BiomeType getBiome(int x, int y) {
+        return storage.getBiome(x, y);
+    }
+
+    public void setBiome(int x, int y, BiomeType biome) {
+        storage.setBiome(x, y, biome);
+        markDirty(x, y);
+    }
+
+    public ResourceNode<?> getResourceNode(int x, int y) {
+        return storage.getResourceNode(x, y);
+    }
+
+    public void setResourceNode(int x, int y, ResourceNode<?> resourceNode) {
+        storage.setResourceNode(x, y, resourceNode);
+        markDirty(x, y);
+    }
+
+    /**
+     * Like {@link #getResourceNode(int, int)}, but while changes are tracked the node also
+     * reports its yield changes for this position. Used for nodes handed out to gameplay code.
+     */
+    ResourceNode<?> getTrackedResourceNode(int x, int y) {
+        ResourceNode<?> node = storage.getResourceNode(x, y);
+        if (node != null && dirtyChunks != null) {
+            node.setChangeListener(nodeChangeListener, x, y);
+        }
+        return node;
+    }
+
+    public Building getBuilding(int x, int y) {
+        return storage.getBuilding(x, y);
+    }
+
+    public void setBuilding(int x, int y, Building building) {
+        storage.setBuilding(x, y, building);
+        markDirty(x, y);
+    }
+
+    // === CHANGE TRACKING ===
+
+    /**
+     * Starts recording which chunks change from here on, e.g. once generation or loading is
+     * done. Writes through the map and yield changes of nodes reached through {@link Tile}s
+     * mark their chunk. A streaming storage keeps marked chunks until they are saved.
+     */
+    public DirtyChunks trackChanges() {
+        if (dirtyChunks == null) {
+            dirtyChunks = new DirtyChunks(getChunksX(), getChunksY());
+            if (storage instanceof StreamingTileStorage) {
+                ((StreamingTileStorage) storage).setDirtyChunks(dirtyChunks);
+            }
+        }
+        return dirtyChunks;
+    }
+
+    /**
+     * Marks the chunk of the tile as changed, for state the map cannot see change by itself
+     * (e.g. a building's counters). Ignored while changes are not tracked.
+     */
+    public void markDirty(int x, int y) {
+        if (dirtyChunks != null) {
+            dirtyChunks.mark(x / CHUNK_SIZE, y / CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * The dirty chunks, or null while changes are not tracked.
+     */
+    public DirtyChunks getDirtyChunks() {
+        return dirtyChunks;
+    }
+
+    // === CHUNK ACCESS ===
+
+    public int getChunksX() {
+        return (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    public int getChunksY() {
+        return (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * @see TileStorage#isUniformChunk(int, int)
+     */
+    public boolean isUniformChunk(int chunkX, int chunkY) {
+        return storage.isUniformChunk(chunkX, chunkY);
+    }
+
+    /**
+     * @see TileStorage#isChunkLoaded(int, int)
+     */
+    public boolean isChunkLoaded(int chunkX, int chunkY) {
+        return storage.isChunkLoaded(chunkX, chunkY);
+    }
+
+    /**
+     * Returns true if the tile lies inside the map and its chunk is loaded.
+     */
+    public boolean isTileLoaded(int x, int y) {
+        return isInBounds(x, y) && storage.isChunkLoaded(x / CHUNK_SIZE, y / CHUNK_SIZE);
+    }
+
+    /**
+     * @see TileStorage#compact(int, int, int, int)
+     */
+    public void compact(int fromX, int fromY, int toX, int toY) {
+        storage.compact(fromX, fromY, toX, toY);
+    }
+
+    public void compact() {
+        storage.compact(0, 0, width, height);
+    }
+
+    public TileStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Releases the storage if it holds native resources (e.g. a mapped world file).
+     */
+    @Override
+    public void dispose() {
+        if (storage instanceof Disposable) {
+            ((Disposable) storage).dispose();
+        }
     }
 
     public int getWidth() {
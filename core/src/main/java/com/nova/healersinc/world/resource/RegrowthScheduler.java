@@ -0,0 +1,89 @@
+package com.nova.healersinc.world.resource;
+
+import com.nova.healersinc.util.TimerWheel;
+
+/**
+ * Grows depleted resource nodes back, one unit every 1 / regrowthRate seconds. Only nodes below
+ * their maximum yield are known to the scheduler, each filed under the tick its next unit is due,
+ * so a tick costs nothing for the full nodes that make up nearly all of a world.
+ * <p>
+ * Nodes join when they are harvested ({@link #schedule}) and leave once they are full again. Due
+ * times keep their fraction of a tick, so rates that are not a whole number of ticks per unit do
+ * not drift. The simulation uses it with the map's monitor held; only {@link #schedule} may also
+ * be called from buildings updated in parallel.
+ */
+public class RegrowthScheduler {
+
+    /** 51.2 seconds at 20 ticks per second, longer than any herb takes per unit */
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final float tickSeconds;
+    private final TimerWheel<ResourceNode<?>> wheel = new TimerWheel<>(WHEEL_SLOTS);
+    private final TimerWheel.Handler<ResourceNode<?>> growHandler = new TimerWheel.Handler<ResourceNode<?>>() {
+        @Override
+        public void expired(ResourceNode<?> node, long tick) {
+            grow(node);
+        }
+    };
+
+    /**
+     * @param tickSeconds simulated seconds per {@link #update()}
+     */
+    public RegrowthScheduler(float tickSeconds) {
+        this.tickSeconds = tickSeconds;
+    }
+
+    /**
+     * Starts regrowing the node if it is below its maximum yield. Does nothing for nodes that
+     * are full, do not regrow or are already regrowing, so it is fine to call after every harvest.
+     * Nodes scheduled in the same tick grow independently, so the order calls come in does not matter.
+     */
+    public synchronized void schedule(ResourceNode<?> node) {
+        if (node.regrowthDueTick >= 0 || node.getCurrentYield() >= node.getMaxYield() || node.getRegrowthRate() <= 0f) {
+            return;
+        }
+
+        node.regrowthDueTick = wheel.getTick() + ticksPerUnit(node);
+        wheel.schedule(node, (long) Math.ceil(node.regrowthDueTick));
+    }
+
+    /**
+     * Seconds until the node grows its next unit, counted from the last {@link #update()}, or
+     * -1 if it is not regrowing.
+     */
+    public float getSecondsUntilRegrowth(ResourceNode<?> node) {
+        if (node.regrowthDueTick < 0) {
+            return -1f;
+        }
+        return (float) ((Math.ceil(node.regrowthDueTick) - wheel.getTick()) * tickSeconds);
+    }
+
+    /**
+     * Advances one tick and grows the nodes due at it.
+     */
+    public void update() {
+        wheel.advance(growHandler);
+    }
+
+    private void grow(ResourceNode<?> node) {
+        node.grow(1);
+
+        if (node.getCurrentYield() < node.getMaxYield()) {
+            node.regrowthDueTick += ticksPerUnit(node);
+            wheel.schedule(node, (long) Math.ceil(node.regrowthDueTick));
+        } else {
+            node.regrowthDueTick = -1;
+        }
+    }
+
+    private double ticksPerUnit(ResourceNode<?> node) {
+        return 1.0 / (node.getRegrowthRate() * tickSeconds);
+    }
+
+    /**
+     * Number of nodes currently regrowing.
+     */
+    public int size() {
+        return wheel.size();
+    }
+}
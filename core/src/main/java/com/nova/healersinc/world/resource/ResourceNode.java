@@ -1,18 +1,43 @@
 package com.nova.healersinc.world.resource;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Abstract base class for harvestable resource nodes in the world.
  * A ResourceNode represents a specific instance of a resource on a tile
  * with its own yield, quality metrics, and regrowth behavior.
+ * <p>
+ * The current yield is only ever changed by compare-and-set, so any number of threads may
+ * {@link #tryTake take} from and {@link #grow} a node at once without losing or inventing units.
  *
  * @param <T> The type of resource this node contains
  */
 public abstract class ResourceNode<T extends Resource> {
     protected final T type;
     protected final int maxYield;
-    protected int currentYield;
+    protected volatile int currentYield;
     protected final float regrowthRate;
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ResourceNode> CURRENT_YIELD =
+            AtomicIntegerFieldUpdater.newUpdater(ResourceNode.class, "currentYield");
+
+    /**
+     * Told whenever the current yield of a node changes, e.g. so the chunk holding it is saved again.
+     */
+    public interface ChangeListener {
+        void resourceNodeChanged(int x, int y);
+    }
+
+    // Where the node sits, as far as the listener is concerned
+    private ChangeListener changeListener;
+    private int x;
+    private int y;
+
+    // Simulation tick, with fraction, at which the node grows its next unit; negative while it is
+    // not regrowing. Kept by the RegrowthScheduler.
+    double regrowthDueTick = -1;
+
     /**
      * Creates a new resource node.
      *
@@ -56,24 +81,78 @@ public abstract class ResourceNode<T extends Resource> {
     }
 
     /**
-     * Harvests resources from this node.
+     * Reports later yield changes to the listener, passing along the given tile position.
+     * Only one listener is kept; null stops reporting.
+     */
+    public void setChangeListener(ChangeListener changeListener, int x, int y) {
+        this.changeListener = changeListener;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Call after changing the current yield.
+     */
+    protected void changed() {
+        if (changeListener != null) {
+            changeListener.resourceNodeChanged(x, y);
+        }
+    }
+
+    /**
+     * Restores the current yield, e.g. when loading a saved world. Clamped to [0, maxYield].
+     * Not reported as a change.
+     */
+    public void setCurrentYield(int currentYield) {
+        this.currentYield = Math.max(0, Math.min(maxYield, currentYield));
+    }
+
+    /**
+     * Takes up to the given amount, as much as the node holds. Atomic, so harvesters sharing the
+     * node may call it from several threads: every unit goes to exactly one of them.
+     *
+     * @param amount The most to take
+     * @return the amount actually taken, 0 if the node is used up
+     */
+    public int tryTake(int amount) {
+        while (true) {
+            int current = currentYield;
+            int taken = Math.min(amount, current);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (CURRENT_YIELD.compareAndSet(this, current, current - taken)) {
+                changed();
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * Harvests resources from this node, as much as it holds.
      *
      * @param amount The amount to harvest
+     * @see #tryTake(int)
      */
     public void harvest(int amount) {
-        currentYield = Math.max(0, currentYield - amount);
+        tryTake(amount);
     }
 
     /**
-     * Updates the resource node, handling regrowth.
+     * Adds regrown units, up to the maximum yield. Driven by the {@link RegrowthScheduler}.
      *
-     * @param deltaTime Time elapsed since last update in seconds
+     * @param amount The amount that grew back
      */
-    public void update(float deltaTime) {
-        if (currentYield < maxYield) {
-            currentYield += Math.max(1, (int) (regrowthRate * deltaTime));
-            if (currentYield > maxYield) {
-                currentYield = maxYield;
+    public void grow(int amount) {
+        while (true) {
+            int current = currentYield;
+            int grown = Math.min(maxYield, current + amount);
+            if (grown == current) {
+                return;
+            }
+            if (CURRENT_YIELD.compareAndSet(this, current, grown)) {
+                changed();
+                return;
             }
         }
     }
@@ -3,88 +3,148 @@ package com.nova.healersinc.world.resource;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.utils.Json;
-import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.nova.healersinc.util.ConfigChecks;
 import com.nova.healersinc.world.herb.HerbType;
 
+import java.util.Locale;
 
-public class ResourceRegistry {
 
-    private static final String CONFIG_PATH = "resources.json";
+public class ResourceRegistry {
 
-    private static final ObjectMap<Resource, ResourceDefinition> DEFINITIONS = new ObjectMap<>();
-    private static final ObjectMap<String , Resource> ID_TO_RESOURCE = new ObjectMap<>();
+    /** Config the definitions are compiled from at build time (see {@link ResourceTable}) */
+    public static final String CONFIG_PATH = "resources.json";
 
-    private static boolean initialized = false;
+    // Replaced as a whole on reload, so readers never see half of an update
+    private static volatile Snapshot snapshot;
 
     /**
-     * Calling this method once during the game startup to load all resources
+     * Immutable set of resource definitions, flat arrays indexed by {@link HerbType} ordinal
+     * (herbs are the only resources so far). Take one per pass, e.g. per rendered frame, and
+     * use it throughout.
      */
-    public static void init() {
-        if (initialized) return;
-
-        buildResourceLookup();
-
-        FileHandle file = Gdx.files.internal(CONFIG_PATH);
-        if (!file.exists()) {
-            throw new RuntimeException("Resource config file not found: " + CONFIG_PATH);
+    public static final class Snapshot {
+        private final ResourceDefinition[] herbDefinitions;
+        private final Color[] herbColors;
+
+        private Snapshot(ResourceDefinition[] herbDefinitions) {
+            this.herbDefinitions = herbDefinitions;
+            this.herbColors = new Color[herbDefinitions.length];
+            for (int ordinal = 0; ordinal < herbDefinitions.length; ordinal++) {
+                if (herbDefinitions[ordinal] != null) {
+                    herbColors[ordinal] = herbDefinitions[ordinal].getVisual().getColor();
+                }
+            }
         }
 
-        Json json = new Json();
-        ResourceConfig config = json.fromJson(ResourceConfig.class, file);
+        public ResourceDefinition getDefinition(Resource resource) {
+            ResourceDefinition def = resource instanceof HerbType ? herbDefinitions[((HerbType) resource).ordinal()] : null;
+            if (def == null) {
+                throw new IllegalArgumentException("No resource definition found for resource: " + resource.name());
+            }
+            return def;
+        }
 
-        for (ResourceConfig.ResourceEntry entry : config.resources) {
-            ResourceDefinition definition = toDefinition(entry);
-            Resource resourceKey = mapIdToResource(entry.id);
-            DEFINITIONS.put(resourceKey, definition);
+        /**
+         * Display color of the herb; shared, do not modify.
+         */
+        public Color getColor(HerbType herb) {
+            Color color = herbColors[herb.ordinal()];
+            if (color == null) {
+                throw new IllegalArgumentException("No resource definition found for resource: " + herb.name());
+            }
+            return color;
         }
 
-        initialized = true;
-        Gdx.app.log("ResourceRegistry", "Initialized with " + DEFINITIONS.size + " resources.");
-    }
+        public boolean isDefined(HerbType herb) {
+            return herbDefinitions[herb.ordinal()] != null;
+        }
 
-    private static void buildResourceLookup() {
-        for (HerbType herb : HerbType.values()) {
-            ID_TO_RESOURCE.put(herb.name().toLowerCase(), herb);
+        public int size() {
+            int size = 0;
+            for (ResourceDefinition definition : herbDefinitions) {
+                if (definition != null) size++;
+            }
+            return size;
         }
     }
 
-    private static ResourceDefinition toDefinition(ResourceConfig.ResourceEntry e) {
-        Color color = Color.valueOf(e.visual.color);
+    /**
+     * Calling this method once during the game startup to load all resources. The definitions
+     * were validated and compiled from {@link #CONFIG_PATH} at build time, nothing is parsed here.
+     */
+    public static void init() {
+        if (snapshot != null) return;
 
-        ResourceDefinition.Visual visual = new ResourceDefinition.Visual(color, e.visual.texture, e.visual.icon);
+        snapshot = new Snapshot(ResourceTable.create());
+        Gdx.app.log("ResourceRegistry", "Initialized with " + snapshot.size() + " resources.");
+    }
 
-        ResourceDefinition.Properties properties = new ResourceDefinition.Properties(e.properties.stackSize, e.properties.baseValue);
+    /**
+     * Parses the edited config and swaps it in for all later lookups. A broken file leaves the
+     * current resources in place.
+     *
+     * @throws IllegalArgumentException if the config is invalid
+     */
+    public static void reload(FileHandle file) {
+        Snapshot reloaded;
+        try {
+            reloaded = new Snapshot(parse(new JsonReader().parse(file)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid resource config " + file + ": " + e.getMessage(), e);
+        }
 
-        return new ResourceDefinition(
-            e.id,
-            e.name,
-            e.category,
-            visual,
-            properties
-        );
+        snapshot = reloaded;
+        Gdx.app.log("ResourceRegistry", "Reloaded " + reloaded.size() + " resources from " + file);
     }
 
-    private static Resource mapIdToResource(String id) {
-        Resource resource = ID_TO_RESOURCE.get(id);
-        if (resource == null) {
-            throw new IllegalArgumentException("Unknown resource id in JSON: '" + id + "'. " +
-                "Make sure it matches an enum constant name (case-insensitive)."
-            );
+    /**
+     * Runtime counterpart of the build time conversion, for reloading an edited config. Applies
+     * the same checks.
+     */
+    private static ResourceDefinition[] parse(JsonValue config) {
+        ResourceDefinition[] definitions = new ResourceDefinition[HerbType.values().length];
+        for (JsonValue entry : config.require("resources")) {
+            String id = ConfigChecks.id("resource", entry);
+            HerbType herb = mapIdToResource(id);
+            if (definitions[herb.ordinal()] != null) {
+                throw new IllegalArgumentException("Duplicate resource id '" + id + "'");
+            }
+            String where = "resource '" + id + "'";
+
+            JsonValue visual = entry.get("visual");
+            JsonValue properties = entry.get("properties");
+            definitions[herb.ordinal()] = new ResourceDefinition(id, ConfigChecks.string(where, entry, "name"),
+                ConfigChecks.string(where, entry, "category"),
+                new ResourceDefinition.Visual(ConfigChecks.color(where, visual, "color"),
+                    ConfigChecks.string(where, visual, "texture"), ConfigChecks.string(where, visual, "icon")),
+                new ResourceDefinition.Properties(ConfigChecks.integer(where, properties, "stackSize", 1),
+                    ConfigChecks.integer(where, properties, "baseValue", 0)));
         }
-        return resource;
+        return definitions;
     }
 
-    public static ResourceDefinition getDefinition(Resource resource) {
-        if (!initialized) {
-            throw new IllegalStateException("ResourceRegistry not initialized yet! Call ResourceRegistry.init() once during startup.");
+    private static HerbType mapIdToResource(String id) {
+        try {
+            return HerbType.valueOf(id.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown resource id '" + id + "'");
         }
+    }
 
-        ResourceDefinition def = DEFINITIONS.get(resource);
-        if (def == null) {
-            throw new IllegalArgumentException("No resource definition found for resource: " + resource.name());
+    /**
+     * The current definitions. Take it once per pass rather than once per lookup.
+     */
+    public static Snapshot get() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("ResourceRegistry not initialized yet! Call ResourceRegistry.init() once during startup.");
         }
+        return current;
+    }
 
-        return def;
+    public static ResourceDefinition getDefinition(Resource resource) {
+        return get().getDefinition(resource);
     }
 }
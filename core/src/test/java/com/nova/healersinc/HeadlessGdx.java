@@ -0,0 +1,34 @@
+package com.nova.healersinc;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.nova.healersinc.world.biome.BiomeRegistry;
+import com.nova.healersinc.world.resource.ResourceRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Loads the registries for tests, without a libGDX backend. {@link Gdx#app} is stood in for by
+ * a proxy that drops everything logged.
+ */
+public final class HeadlessGdx {
+
+    private HeadlessGdx() {
+    }
+
+    public static synchronized void init() {
+        if (Gdx.app == null) {
+            Gdx.app = (Application) Proxy.newProxyInstance(HeadlessGdx.class.getClassLoader(),
+                new Class<?>[]{Application.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+        }
+        BiomeRegistry.init();
+        ResourceRegistry.init();
+    }
+}
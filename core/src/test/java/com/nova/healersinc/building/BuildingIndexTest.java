@@ -0,0 +1,261 @@
+package com.nova.healersinc.building;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.building.BuildingIndex.Visitor;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.simulation.SimulationService;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.map.ChunkedTileStorage;
+import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares every {@link BuildingIndex} query against a scan of the whole map, on a map that ends
+ * partway through a cell, with queries reaching past its edges and distances longer than the map,
+ * while boxes of buildings are demolished and new ones placed in between.
+ */
+class BuildingIndexTest {
+
+    private static final float TICK = SimulationService.TICK_SECONDS;
+    // Neither a multiple of the cell size, so the last row and column of cells are cut short
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 91;
+    private static final BuildingType[] TYPES = {null, BuildingType.HARVESTER, BuildingType.DRYING_RACK, BuildingType.STORAGE};
+
+    private WorldMap map;
+    private BuildingManager buildings;
+    private BuildingIndex index;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        map = new WorldMap(new ChunkedTileStorage(WIDTH, HEIGHT, BiomeType.MILD_MEADOW));
+        buildings = new BuildingManager(map, new RegrowthScheduler(TICK), new HarvestEvents(1 << 10),
+            new ProductionEngine(new Inventory(), TICK));
+        index = buildings.getIndex();
+        Random random = new Random(2501);
+
+        // Nothing placed yet
+        checkQueries(random, 20);
+
+        placeRandom(random, 900);
+        // The corners and edges of the map, where rings and boxes get clipped
+        placeAt(0, 0, BuildingType.STORAGE);
+        placeAt(WIDTH - 1, 0, BuildingType.HARVESTER);
+        placeAt(0, HEIGHT - 1, BuildingType.DRYING_RACK);
+        placeAt(WIDTH - 1, HEIGHT - 1, BuildingType.STORAGE);
+        checkQueries(random, 300);
+
+        for (int round = 0; round < 40; round++) {
+            removeRandomBox(random);
+            placeRandom(random, random.nextInt(60));
+            checkQueries(random, 40);
+        }
+
+        // Down to a handful of buildings, so queries take the path over all live cells
+        assertTrue(buildings.removeBuildings(null, -5, -5, WIDTH + 5, HEIGHT / 2) > 0);
+        assertTrue(buildings.removeBuildings(null, -5, HEIGHT / 2 + 1, WIDTH - 20, HEIGHT + 5) > 0);
+        checkQueries(random, 200);
+
+        buildings.removeBuildings(null, Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2);
+        assertEquals(0, buildings.getBuildingCount());
+        assertNull(index.findNearest(null, WIDTH / 2, HEIGHT / 2, Integer.MAX_VALUE));
+        checkQueries(random, 20);
+    }
+
+    @Test
+    void visitorEndsQueryEarly() {
+        map = new WorldMap(new ChunkedTileStorage(WIDTH, HEIGHT, BiomeType.MILD_MEADOW));
+        buildings = new BuildingManager(map, new RegrowthScheduler(TICK), new HarvestEvents(1 << 10),
+            new ProductionEngine(new Inventory(), TICK));
+        index = buildings.getIndex();
+        placeRandom(new Random(7), 200);
+
+        final int[] visited = new int[1];
+        Visitor stopAtThree = new Visitor() {
+            @Override
+            public boolean visit(Building building) {
+                return ++visited[0] < 3;
+            }
+        };
+        assertFalse(index.forEachInBox(null, 0, 0, WIDTH, HEIGHT, stopAtThree));
+        assertEquals(3, visited[0]);
+        visited[0] = 0;
+        assertFalse(index.forEachWithin(null, WIDTH / 2, HEIGHT / 2, WIDTH, stopAtThree));
+        assertEquals(3, visited[0]);
+    }
+
+    private void checkQueries(Random random, int queries) {
+        for (int q = 0; q < queries; q++) {
+            BuildingType type = TYPES[random.nextInt(TYPES.length)];
+            // Some centers and corners off the map
+            int x = random.nextInt(WIDTH + 40) - 20;
+            int y = random.nextInt(HEIGHT + 40) - 20;
+
+            int maxX = x + random.nextInt(80) - 10;
+            int maxY = y + random.nextInt(60) - 10;
+            checkBox(type, x, y, maxX, maxY);
+
+            int radius = randomDistance(random);
+            checkWithin(type, x, y, radius);
+
+            int[] sizes = {1, 3, 8, 64};
+            checkNearest(type, x, y, randomDistance(random), new Building[sizes[random.nextInt(sizes.length)]]);
+        }
+    }
+
+    private static int randomDistance(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return 0;
+            case 1:
+                // Longer than the map's diagonal
+                return WIDTH + HEIGHT + random.nextInt(1000);
+            case 2:
+                return Integer.MAX_VALUE;
+            default:
+                return random.nextInt(50);
+        }
+    }
+
+    private void checkBox(BuildingType type, int minX, int minY, int maxX, int maxY) {
+        Set<Building> expected = new HashSet<>();
+        for (int y = Math.max(0, minY); y <= Math.min(HEIGHT - 1, maxY); y++) {
+            for (int x = Math.max(0, minX); x <= Math.min(WIDTH - 1, maxX); x++) {
+                Building building = map.getBuilding(x, y);
+                if (building != null && (type == null || building.getType() == type)) {
+                    expected.add(building);
+                }
+            }
+        }
+        final List<Building> visited = new ArrayList<>();
+        assertTrue(index.forEachInBox(type, minX, minY, maxX, maxY, collect(visited)));
+        assertEquals(expected, asSet(visited, "forEachInBox"),
+            "forEachInBox " + type + " " + minX + "," + minY + " to " + maxX + "," + maxY);
+    }
+
+    private void checkWithin(BuildingType type, int x, int y, int radius) {
+        Set<Building> expected = new HashSet<>();
+        for (Building building : buildings.getAllBuildings()) {
+            if ((type == null || building.getType() == type) && distance2(building, x, y) <= (long) radius * radius) {
+                expected.add(building);
+            }
+        }
+        final List<Building> visited = new ArrayList<>();
+        assertTrue(index.forEachWithin(type, x, y, radius, collect(visited)));
+        assertEquals(expected, asSet(visited, "forEachWithin"), "forEachWithin " + type + " " + x + "," + y + " r " + radius);
+    }
+
+    private void checkNearest(BuildingType type, int x, int y, int maxDistance, Building[] nearest) {
+        String query = "findNearest " + type + " " + x + "," + y + " max " + maxDistance + " k " + nearest.length;
+        List<Long> distances = new ArrayList<>();
+        for (Building building : buildings.getAllBuildings()) {
+            long distance2 = distance2(building, x, y);
+            if ((type == null || building.getType() == type) && distance2 <= (long) maxDistance * maxDistance) {
+                distances.add(distance2);
+            }
+        }
+        long[] expected = new long[Math.min(nearest.length, distances.size())];
+        distances.sort(null);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = distances.get(i);
+        }
+
+        int found = index.findNearest(type, x, y, maxDistance, nearest);
+        // Ties may come in any order, so the distances are compared rather than the buildings
+        long[] actual = new long[found];
+        for (int i = 0; i < found; i++) {
+            Building building = nearest[i];
+            assertSame(building, map.getBuilding(building.getTile().x, building.getTile().y), query + " found a removed building");
+            assertTrue(type == null || building.getType() == type, query + " found a " + building.getType());
+            actual[i] = distance2(building, x, y);
+        }
+        assertArrayEquals(expected, actual, query);
+        assertEquals(found, asSet(Arrays.asList(nearest).subList(0, found), query).size());
+
+        Building one = index.findNearest(type, x, y, maxDistance);
+        if (expected.length == 0) {
+            assertNull(one, query);
+        } else {
+            assertEquals(expected[0], distance2(one, x, y), query + " single");
+        }
+    }
+
+    private void placeRandom(Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            BuildingType type = TYPES[1 + random.nextInt(TYPES.length - 1)];
+            buildings.placeBuilding(map.getTile(random.nextInt(WIDTH), random.nextInt(HEIGHT)), type);
+        }
+    }
+
+    private void placeAt(int x, int y, BuildingType type) {
+        buildings.removeBuilding(map.getTile(x, y));
+        assertTrue(buildings.placeBuilding(map.getTile(x, y), type));
+    }
+
+    private void removeRandomBox(Random random) {
+        BuildingType type = TYPES[random.nextInt(TYPES.length)];
+        int minX = random.nextInt(WIDTH + 20) - 10;
+        int minY = random.nextInt(HEIGHT + 20) - 10;
+        int maxX = minX + random.nextInt(40);
+        int maxY = minY + random.nextInt(40);
+
+        int before = buildings.getBuildingCount();
+        int inBox = 0;
+        for (int y = Math.max(0, minY); y <= Math.min(HEIGHT - 1, maxY); y++) {
+            for (int x = Math.max(0, minX); x <= Math.min(WIDTH - 1, maxX); x++) {
+                Building building = map.getBuilding(x, y);
+                if (building != null && (type == null || building.getType() == type)) {
+                    inBox++;
+                }
+            }
+        }
+
+        assertEquals(inBox, buildings.removeBuildings(type, minX, minY, maxX, maxY));
+        assertEquals(before - inBox, buildings.getBuildingCount());
+        checkBox(type, minX, minY, maxX, maxY);
+    }
+
+    private static Visitor collect(final List<Building> visited) {
+        return new Visitor() {
+            @Override
+            public boolean visit(Building building) {
+                visited.add(building);
+                return true;
+            }
+        };
+    }
+
+    private static Set<Building> asSet(List<Building> found, String query) {
+        Set<Building> set = new HashSet<>(found);
+        assertEquals(found.size(), set.size(), query + " returned a building twice");
+        return set;
+    }
+
+    private static long distance2(Building building, int x, int y) {
+        long dx = building.getTile().x - x;
+        long dy = building.getTile().y - y;
+        return dx * dx + dy * dy;
+    }
+}
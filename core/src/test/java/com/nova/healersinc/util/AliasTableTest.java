@@ -0,0 +1,171 @@
+package com.nova.healersinc.util;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.world.biome.BiomeDefinition;
+import com.nova.healersinc.world.biome.BiomeRegistry;
+import com.nova.healersinc.world.biome.BiomeType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that {@link AliasTable} samples every index as often as its weight says, with the
+ * weights the game actually uses: biome world gen weights and herb spawn weights. Rolls come
+ * from a seeded {@link Random}, so a run is repeatable.
+ */
+class AliasTableTest {
+
+    private static final int SAMPLES = 400_000;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void biomeWorldGenWeights() {
+        float[] weights = BiomeRegistry.get().getWorldGenWeights();
+        AliasTable table = new AliasTable(weights);
+        assertEquals(BiomeType.values().length, table.size());
+
+        assertMatchesWeights(weights, sampleFloats(table, new Random(1)), "sample(float)");
+        assertMatchesWeights(weights, sampleLongs(table, new Random(2)), "sample(long)");
+
+        long[] picked = new long[weights.length];
+        Random random = new Random(3);
+        for (int i = 0; i < SAMPLES; i++) {
+            picked[BiomeRegistry.get().pickBiome(random.nextFloat()).ordinal()]++;
+        }
+        assertMatchesWeights(weights, picked, "pickBiome");
+    }
+
+    @Test
+    void herbSpawnWeights() {
+        int tested = 0;
+        for (BiomeType biome : BiomeType.values()) {
+            List<BiomeDefinition.ResourceSpawn> spawns = BiomeRegistry.getDefinition(biome).getSpawnRules().getResources();
+            if (spawns.isEmpty()) continue;
+
+            float[] weights = new float[spawns.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = spawns.get(i).getWeight();
+            }
+            AliasTable table = new AliasTable(weights);
+            assertMatchesWeights(weights, sampleFloats(table, new Random(biome.ordinal())), biome + " sample(float)");
+            assertMatchesWeights(weights, sampleLongs(table, new Random(~biome.ordinal())), biome + " sample(long)");
+            tested++;
+        }
+        assertTrue(tested > 0, "no biome spawns herbs");
+    }
+
+    @Test
+    void zeroWeightsAreNeverSampled() {
+        float[] weights = {0f, 2f, 0f, 1f, 0f};
+        AliasTable table = new AliasTable(weights);
+
+        long[] floats = sampleFloats(table, new Random(4));
+        long[] longs = sampleLongs(table, new Random(5));
+        for (int index = 0; index < weights.length; index += 2) {
+            assertEquals(0, floats[index], "sample(float) picked zero weight index " + index);
+            assertEquals(0, longs[index], "sample(long) picked zero weight index " + index);
+        }
+        assertMatchesWeights(weights, floats, "sample(float)");
+        assertMatchesWeights(weights, longs, "sample(long)");
+
+        // The extreme rolls land in the first and last column, which must fall through to their alias
+        assertTrue(weights[table.sample(0f)] > 0f);
+        assertTrue(weights[table.sample(Math.nextDown(1f))] > 0f);
+        assertTrue(weights[table.sample(0L)] > 0f);
+        assertTrue(weights[table.sample(-1L)] > 0f);
+    }
+
+    @Test
+    void singleEntryAlwaysSamplesIt() {
+        AliasTable table = new AliasTable(new float[]{0.3f});
+        assertEquals(1, table.size());
+        assertEquals(0, table.sample(0f));
+        assertEquals(0, table.sample(0.5f));
+        assertEquals(0, table.sample(Math.nextDown(1f)));
+        assertEquals(0, table.sample(0L));
+        assertEquals(0, table.sample(-1L));
+
+        Random random = new Random(6);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(0, table.sample(random.nextFloat()));
+            assertEquals(0, table.sample(random.nextLong()));
+        }
+    }
+
+    @Test
+    void rejectsWeightsWithNothingToSample() {
+        assertRejected();
+        assertRejected(0f, 0f);
+        assertRejected(1f, -1f);
+        assertRejected(1f, Float.NaN);
+    }
+
+    private static void assertRejected(float... weights) {
+        try {
+            new AliasTable(weights);
+            fail("accepted " + Arrays.toString(weights));
+        } catch (IllegalArgumentException expected) {
+            // Nothing to sample
+        }
+    }
+
+    private static long[] sampleFloats(AliasTable table, Random random) {
+        long[] counts = new long[table.size()];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random.nextFloat())]++;
+        }
+        return counts;
+    }
+
+    private static long[] sampleLongs(AliasTable table, Random random) {
+        long[] counts = new long[table.size()];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random.nextLong())]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Pearson's chi-square test of the counts against the weights, at a significance of 0.001.
+     * Indices of weight 0 must not have been sampled at all and are left out of the test.
+     */
+    private static void assertMatchesWeights(float[] weights, long[] counts, String what) {
+        double total = 0;
+        long samples = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            samples += counts[i];
+        }
+
+        double chiSquare = 0;
+        int categories = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] == 0f) {
+                assertEquals(0, counts[i], what + " picked index " + i + " of weight 0");
+                continue;
+            }
+            double expected = samples * weights[i] / total;
+            chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+            categories++;
+        }
+        if (categories < 2) return;
+
+        int freedom = categories - 1;
+        // Wilson-Hilferty approximation of the chi-square quantile, z = 3.09 for p = 0.001
+        double h = 2.0 / (9.0 * freedom);
+        double critical = freedom * Math.pow(1.0 - h + 3.09 * Math.sqrt(h), 3);
+        assertTrue(chiSquare < critical, String.format("%s: chi-square %.2f over %d degrees of freedom exceeds %.2f",
+            what, chiSquare, freedom, critical));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nova.healersinc.world.biome;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.nova.healersinc.HeadlessGdx;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A reloaded biome config is held to the rules the build checks {@code biomes.json} against,
+ * and one that breaks them leaves the biomes in place that were there before.
+ */
+class BiomeRegistryReloadTest {
+
+    private static final FileHandle CONFIG = new FileHandle(new File("../assets/" + BiomeRegistry.CONFIG_PATH));
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void rejectsWhatTheBuildRejects() {
+        assertRejected("\"clusterCenterChance\": 0.01", "\"clusterCenterChance\": 1.5");
+        assertRejected("\"clusterCenterChance\": 0.01", "\"clusterCenterChance\": -0.01");
+        assertRejected("\"clusterCenterChance\": 0.01", "\"clusterCenterChance\": \"0.01\"");
+        assertRejected("\"worldGenWeight\": 1.0", "\"worldGenWeight\": -1.0");
+        assertRejected("\"worldGenWeight\": 1.0", "\"worldGenWeight\": 1e40");
+        assertRejected("\"weight\": 0.7", "\"weight\": -0.7");
+        assertRejected("\"id\": \"mild_meadow\"", "\"id\": \"Mild_Meadow\"");
+        assertRejected("\"id\": \"mild_meadow\"", "\"id\": \"volcanic_wastes\"");
+        assertRejected("\"id\": \"groovy_grove\"", "\"id\": \"mild_meadow\"");
+        assertRejected("\"color\": \"4DCC4DFF\"", "\"color\": \"4DCC4\"");
+        assertRejected("\"color\": \"4DCC4DFF\"", "\"color\": \"green\"");
+        assertRejected("\"resourceId\": \"chamomile\"", "\"resourceId\": \"CHAMOMILE\"");
+        assertRejected("\"name\": \"Mild Meadow\"", "\"name\": 7");
+    }
+
+    @Test
+    void reloadsValidConfig() {
+        BiomeRegistry.Snapshot before = BiomeRegistry.get();
+        BiomeRegistry.reload(CONFIG);
+        assertNotSame(before, BiomeRegistry.get());
+        assertArrayEquals(before.getWorldGenWeights(), BiomeRegistry.get().getWorldGenWeights());
+    }
+
+    private void assertRejected(String original, String broken) {
+        String config = CONFIG.readString("UTF-8");
+        String edited = config.replaceFirst(Pattern.quote(original), broken);
+        assertNotEquals(config, edited, "config has no " + original);
+        FileHandle file = new FileHandle(new File(dir, BiomeRegistry.CONFIG_PATH));
+        file.writeString(edited, false, "UTF-8");
+
+        BiomeRegistry.Snapshot before = BiomeRegistry.get();
+        try {
+            BiomeRegistry.reload(file);
+            fail("accepted " + broken);
+        } catch (IllegalArgumentException expected) {
+            // The config is broken
+        }
+        assertSame(before, BiomeRegistry.get(), "a failed reload replaced the biomes");
+    }
+}
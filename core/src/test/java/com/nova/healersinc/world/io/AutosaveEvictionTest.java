@@ -0,0 +1,81 @@
+package com.nova.healersinc.world.io;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.building.BuildingType;
+import com.nova.healersinc.world.map.StreamingTileStorage;
+import com.nova.healersinc.world.map.Tile;
+import com.nova.healersinc.world.map.WorldGenerator;
+import com.nova.healersinc.world.map.WorldMap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A change in a streamed chunk reaches the save even if the player looks away before the next
+ * autosave: the chunk is only evicted once the change is saved.
+ */
+class AutosaveEvictionTest {
+
+    private static final long SEED = 777L;
+    private static final int WIDTH = 32 * WorldMap.CHUNK_SIZE;
+    private static final int HEIGHT = 2 * WorldMap.CHUNK_SIZE;
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void demolishedBuildingStaysGoneAfterEviction() throws IOException, InterruptedException {
+        File saveFile = new File(dir, "colony.sav");
+        File journalFile = new File(dir, "colony.journal");
+
+        TestColony colony = TestColony.streamed(SEED, WIDTH, HEIGHT);
+        StreamingTileStorage storage = (StreamingTileStorage) colony.map.getStorage();
+        colony.view(0, 0, WorldMap.CHUNK_SIZE, WorldMap.CHUNK_SIZE);
+        Autosave autosave = new Autosave(saveFile, journalFile,
+            new SaveGame.Header(SEED, WorldGenerator.BiomeLayout.CHUNKS, WIDTH, HEIGHT), colony.map, colony.production);
+
+        Tile tile = findFreeTile(colony);
+        assertTrue(colony.buildings.placeBuilding(tile, BuildingType.STORAGE));
+        autosave.saveNow(0f, 0f, 1f);
+
+        // Demolished, then looked away from before the next autosave
+        assertTrue(colony.buildings.removeBuilding(tile));
+        colony.view(WIDTH - WorldMap.CHUNK_SIZE, 0, WIDTH, WorldMap.CHUNK_SIZE);
+        assertTrue(storage.isChunkLoaded(0, 0), "chunk with unsaved changes was evicted");
+
+        autosave.saveNow(0f, 0f, 1f);
+        colony.view(WIDTH - WorldMap.CHUNK_SIZE, 0, WIDTH, WorldMap.CHUNK_SIZE);
+        assertFalse(storage.isChunkLoaded(0, 0), "saved chunk that matches the seed was kept");
+        autosave.dispose();
+
+        TestColony loaded = TestColony.load(saveFile, journalFile);
+        assertNull(loaded.map.getBuilding(tile.x, tile.y), "demolished storage came back");
+        assertEquals(0, loaded.buildings.getBuildingCount());
+    }
+
+    private static Tile findFreeTile(TestColony colony) {
+        for (int y = 4; y < WorldMap.CHUNK_SIZE - 4; y++) {
+            for (int x = 4; x < WorldMap.CHUNK_SIZE - 4; x++) {
+                Tile tile = colony.map.getTile(x, y);
+                if (colony.buildings.canPlaceBuilding(tile)) {
+                    return tile;
+                }
+            }
+        }
+        return fail("no free tile in the first chunk");
+    }
+}
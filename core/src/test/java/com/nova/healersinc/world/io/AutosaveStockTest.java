@@ -0,0 +1,78 @@
+package com.nova.healersinc.world.io;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.building.BuildingType;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.ChunkedTileStorage;
+import com.nova.healersinc.world.map.WorldGenerator;
+import com.nova.healersinc.world.map.WorldMap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The colony's stock survives saving and loading: herbs waiting in the inventory come back,
+ * what storages hold is counted once, and a batch on a drying rack is neither lost nor doubled.
+ */
+class AutosaveStockTest {
+
+    private static final int SIZE = 64;
+    private static final long SEED = 4242L;
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void stockSurvivesSaveAndLoad() throws IOException, InterruptedException {
+        File saveFile = new File(dir, "colony.sav");
+        File journalFile = new File(dir, "colony.journal");
+
+        TestColony colony = new TestColony(new WorldMap(new ChunkedTileStorage(SIZE, SIZE, BiomeType.MILD_MEADOW)));
+        Autosave autosave = new Autosave(saveFile, journalFile,
+            new SaveGame.Header(SEED, WorldGenerator.BiomeLayout.CHUNKS, SIZE, SIZE), colony.map, colony.production);
+        assertTrue(colony.buildings.placeBuilding(colony.map.getTile(10, 10), BuildingType.DRYING_RACK));
+        assertTrue(colony.buildings.placeBuilding(colony.map.getTile(40, 40), BuildingType.STORAGE));
+
+        // Two batches of mint dry and go into storage, 15 mint stay fresh
+        colony.inventory.add(HerbForm.FRESH, HerbType.MINT, 55);
+        colony.run(1250);
+        // A save in between goes to the journal, the last one replaces it
+        autosave.saveNow(0f, 0f, 1f);
+        // Taken up by the rack right away and still drying when saved
+        colony.inventory.add(HerbForm.FRESH, HerbType.CHAMOMILE, 20);
+        colony.inventory.add(HerbForm.FRESH, HerbType.ECHINACEA, 7);
+        colony.run(10);
+        autosave.saveNow(0f, 0f, 1f);
+        autosave.dispose();
+
+        assertEquals(15, colony.amount(HerbForm.FRESH, HerbType.MINT));
+        assertEquals(0, colony.amount(HerbForm.FRESH, HerbType.CHAMOMILE));
+        assertEquals(7, colony.amount(HerbForm.FRESH, HerbType.ECHINACEA));
+        assertEquals(40, colony.amount(HerbForm.DRIED, HerbType.MINT));
+
+        TestColony loaded = TestColony.load(saveFile, journalFile);
+        for (HerbForm form : HerbForm.values()) {
+            for (HerbType herb : HerbType.values()) {
+                assertEquals(colony.amount(form, herb), loaded.amount(form, herb), form + " " + herb);
+            }
+        }
+
+        // The chamomile batch finishes after loading and is stored
+        loaded.run(600);
+        assertEquals(20, loaded.amount(HerbForm.DRIED, HerbType.CHAMOMILE));
+        assertEquals(0, loaded.amount(HerbForm.FRESH, HerbType.CHAMOMILE));
+    }
+}
@@ -0,0 +1,106 @@
+package com.nova.healersinc.world.io;
+
+import com.nova.healersinc.building.BuildingManager;
+import com.nova.healersinc.building.ProductionEngine;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.simulation.SimulationService;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.StreamingTileStorage;
+import com.nova.healersinc.world.map.WorldGenerator;
+import com.nova.healersinc.world.map.WorldMap;
+import com.nova.healersinc.world.resource.RegrowthScheduler;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A colony with its simulation for save tests, ticked like the {@link SimulationService} does.
+ */
+final class TestColony {
+
+    static final float TICK = SimulationService.TICK_SECONDS;
+
+    final WorldMap map;
+    final RegrowthScheduler regrowth = new RegrowthScheduler(TICK);
+    final HarvestEvents harvestEvents = new HarvestEvents(64);
+    final Inventory inventory = new Inventory();
+    final ProductionEngine production = new ProductionEngine(inventory, TICK);
+    final BuildingManager buildings;
+
+    TestColony(WorldMap map) {
+        this.map = map;
+        this.buildings = new BuildingManager(map, regrowth, harvestEvents, production);
+        if (map.getStorage() instanceof StreamingTileStorage) {
+            ((StreamingTileStorage) map.getStorage()).setChunkListener(new StreamingTileStorage.ChunkListener() {
+                @Override
+                public void chunkLoaded(int chunkX, int chunkY) {
+                    buildings.onChunkLoaded(chunkX, chunkY);
+                }
+            });
+        }
+    }
+
+    /**
+     * A new colony in a streamed world of the seed.
+     */
+    static TestColony streamed(long seed, int width, int height) {
+        return new TestColony(new WorldMap(new StreamingTileStorage(width, height, new WorldGenerator(seed))));
+    }
+
+    void run(int ticks) {
+        for (int tick = 0; tick < ticks; tick++) {
+            synchronized (map) {
+                regrowth.update();
+                buildings.update(TICK);
+                harvestEvents.drainTo(inventory);
+                production.update();
+            }
+        }
+    }
+
+    long amount(HerbForm form, HerbType herb) {
+        return inventory.getAmount(form, herb);
+    }
+
+    /**
+     * Looks at the tile area [fromX, toX) x [fromY, toY) of a streamed world until every chunk
+     * asked for there is installed.
+     */
+    void view(int fromX, int fromY, int toX, int toY) throws InterruptedException {
+        StreamingTileStorage storage = (StreamingTileStorage) map.getStorage();
+        long deadline = System.currentTimeMillis() + 30_000;
+        do {
+            assertTrue(System.currentTimeMillis() < deadline, "chunks did not load");
+            Thread.sleep(5);
+            storage.update(fromX, fromY, toX, toY);
+        } while (storage.getPendingChunkCount() > 0
+            || !storage.isChunkLoaded(fromX / WorldMap.CHUNK_SIZE, fromY / WorldMap.CHUNK_SIZE));
+    }
+
+    /**
+     * Loads the save the way the game does, into a streaming world, and waits until every chunk
+     * is installed.
+     */
+    static TestColony load(File saveFile, File journalFile) throws IOException, InterruptedException {
+        SaveGame save = SaveGame.open(saveFile, journalFile);
+        SaveGame.Header header = save.getHeader();
+        StreamingTileStorage storage = new StreamingTileStorage(header.getWidth(), header.getHeight(),
+            new WorldGenerator(header.getSeed(), header.getLayout()));
+        TestColony colony = new TestColony(new WorldMap(storage));
+        colony.production.restoreLooseStock(save.getStock());
+        storage.restore(save.savedChunks(colony.map), 0, 0, header.getWidth(), header.getHeight());
+
+        int chunks = colony.map.getChunksX() * colony.map.getChunksY();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (storage.getLoadedChunkCount() < chunks || storage.getPendingChunkCount() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "chunks did not load");
+            storage.update(0, 0, header.getWidth(), header.getHeight());
+            Thread.sleep(5);
+        }
+        return colony;
+    }
+}
@@ -0,0 +1,105 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.building.Storage;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.herb.HerbNode;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.resource.ResourceNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reopening a mapped world: herb nodes come back with their yield, handles of the previous
+ * session do not survive, and the pools start from scratch every session.
+ */
+class MappedTileStorageTest {
+
+    private static final int SIZE = 64;
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void reopenRestoresHerbsAndDropsBuildings() throws IOException {
+        File file = new File(dir, "world.bin");
+        MappedTileStorage storage = MappedTileStorage.create(file, SIZE, SIZE);
+        WorldMap map = new WorldMap(storage);
+        map.setBiome(3, 4, BiomeType.MILD_MEADOW);
+
+        HerbNode mint = new HerbNode(HerbType.MINT);
+        map.setResourceNode(3, 4, mint);
+        // Harvested after it was placed: only the flush can see this
+        mint.tryTake(5);
+        map.setResourceNode(10, 10, new HerbNode(HerbType.ECHINACEA));
+        // Stats of its own, which the record cannot hold
+        map.setResourceNode(20, 20, new HerbNode(HerbType.CHAMOMILE, 40, 2f, 0.5f));
+        map.setBuilding(5, 5, new Storage(map.getTile(5, 5)));
+        map.dispose();
+
+        storage = MappedTileStorage.open(file);
+        try {
+            assertEquals(BiomeType.MILD_MEADOW, storage.getBiome(3, 4));
+
+            ResourceNode<?> restored = storage.getResourceNode(3, 4);
+            assertNotNull(restored);
+            assertSame(HerbType.MINT, restored.getType());
+            assertEquals(HerbType.MINT.getMaxYield() - 5, restored.getCurrentYield());
+
+            ResourceNode<?> full = storage.getResourceNode(10, 10);
+            assertNotNull(full);
+            assertEquals(HerbType.ECHINACEA.getMaxYield(), full.getCurrentYield());
+
+            assertNull(storage.getResourceNode(20, 20));
+            assertEquals(0, storage.getFlags(20, 20));
+            assertNull(storage.getBuilding(5, 5));
+            assertEquals(0, storage.getFlags(5, 5) & MappedTileStorage.FLAG_HAS_BUILDING);
+        } finally {
+            storage.dispose();
+        }
+    }
+
+    @Test
+    void sessionsDoNotPileUpSlots() throws IOException {
+        File file = new File(dir, "world.bin");
+        MappedTileStorage storage = MappedTileStorage.create(file, SIZE, SIZE);
+        WorldMap map = new WorldMap(storage);
+        for (int x = 0; x < SIZE; x++) {
+            map.setResourceNode(x, 0, new HerbNode(HerbType.CHAMOMILE));
+            map.setBuilding(x, 1, new Storage(map.getTile(x, 1)));
+        }
+        map.dispose();
+
+        for (int session = 0; session < 5; session++) {
+            storage = MappedTileStorage.open(file);
+            map = new WorldMap(storage);
+            for (int x = 0; x < SIZE; x++) {
+                assertNotNull(storage.getResourceNode(x, 0));
+                assertNull(storage.getBuilding(x, 1));
+                map.setBuilding(x, 1, new Storage(map.getTile(x, 1)));
+            }
+            // Slots are handed out again from 1 instead of after the previous session's
+            for (int x = 0; x < SIZE; x++) {
+                assertTrue(storage.getBuilding(x, 1) instanceof Storage);
+            }
+            assertEquals(SIZE, storage.getSlotCount(MappedTileStorage.FLAG_HAS_RESOURCE));
+            assertEquals(SIZE, storage.getSlotCount(MappedTileStorage.FLAG_HAS_BUILDING));
+            map.dispose();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.nova.healersinc.world.map;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.world.resource.ResourceNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The same seed gives the same world however it is generated: in one go, on a pool of any size,
+ * or chunk by chunk in any order as streaming and {@link WorldGenerator#regenerate} do. Every
+ * roll comes from a {@link PositionalRandom} addressed by position, so the order regions are
+ * generated in must not matter.
+ */
+class WorldGeneratorDeterminismTest {
+
+    private static final long SEED = 913L;
+    // Neither a multiple of the region, chunk nor biome chunk size, so every edge case is cut
+    private static final int WIDTH = 157;
+    private static final int HEIGHT = 101;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void chunkLayout() {
+        assertSameWorldEveryWay(WorldGenerator.BiomeLayout.CHUNKS);
+    }
+
+    @Test
+    void noiseLayout() {
+        assertSameWorldEveryWay(WorldGenerator.BiomeLayout.NOISE);
+    }
+
+    private static void assertSameWorldEveryWay(WorldGenerator.BiomeLayout layout) {
+        long sequential = hash(new WorldGenerator(SEED, layout).generate(new WorldMap(WIDTH, HEIGHT)));
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential, hash(new WorldGenerator(SEED, layout).generateParallel(new WorldMap(WIDTH, HEIGHT), single)),
+                layout + ": parallel on one thread differs from sequential");
+            assertEquals(sequential, hash(new WorldGenerator(SEED, layout).generateParallel(new WorldMap(WIDTH, HEIGHT), four)),
+                layout + ": parallel on four threads differs from sequential");
+        } finally {
+            single.shutdown();
+            four.shutdown();
+        }
+
+        // Last chunk first, so no chunk can lean on rolls a neighbor made before it
+        WorldGenerator generator = new WorldGenerator(SEED, layout);
+        WorldMap piecewise = new WorldMap(WIDTH, HEIGHT);
+        for (int chunkY = piecewise.getChunksY() - 1; chunkY >= 0; chunkY--) {
+            for (int chunkX = piecewise.getChunksX() - 1; chunkX >= 0; chunkX--) {
+                int fromX = chunkX * WorldMap.CHUNK_SIZE;
+                int fromY = chunkY * WorldMap.CHUNK_SIZE;
+                generator.regenerate(piecewise, fromX, fromY, fromX + WorldMap.CHUNK_SIZE, fromY + WorldMap.CHUNK_SIZE);
+            }
+        }
+        assertEquals(sequential, hash(piecewise), layout + ": chunk by chunk differs from sequential");
+
+        // A different seed has to change the hash, or it would not be looking at anything
+        assertTrue(sequential != hash(new WorldGenerator(SEED + 1, layout).generate(new WorldMap(WIDTH, HEIGHT))),
+            layout + ": another seed gave the same hash");
+    }
+
+    /**
+     * FNV-1a over every tile's biome and herb node, in row order.
+     */
+    private static long hash(WorldMap map) {
+        long hash = 0xcbf29ce484222325L;
+        int herbNodes = 0;
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                hash = mix(hash, map.getBiome(x, y).ordinal());
+                ResourceNode<?> node = map.getResourceNode(x, y);
+                if (node == null) {
+                    hash = mix(hash, -1);
+                } else {
+                    hash = mix(hash, node.getType().name().hashCode());
+                    hash = mix(hash, node.getCurrentYield());
+                    herbNodes++;
+                }
+            }
+        }
+        assertTrue(herbNodes > 0, "no herb nodes were generated");
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,241 @@
+package com.nova.healersinc.world.resource;
+
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.building.Building;
+import com.nova.healersinc.building.BuildingManager;
+import com.nova.healersinc.building.BuildingType;
+import com.nova.healersinc.building.Harvester;
+import com.nova.healersinc.building.ProductionEngine;
+import com.nova.healersinc.inventory.HarvestEvents;
+import com.nova.healersinc.inventory.HerbForm;
+import com.nova.healersinc.inventory.Inventory;
+import com.nova.healersinc.simulation.SimulationService;
+import com.nova.healersinc.world.biome.BiomeType;
+import com.nova.healersinc.world.herb.HerbNode;
+import com.nova.healersinc.world.herb.HerbType;
+import com.nova.healersinc.world.map.ChunkedTileStorage;
+import com.nova.healersinc.world.map.WorldMap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many harvesters racing for the same few herb nodes through {@link ResourceNode#tryTake}: no
+ * unit may be lost or handed out twice, no yield may drop below zero, and the
+ * {@link BuildingManager} has to share contended nodes fairly.
+ */
+class ResourceNodeContentionTest {
+
+    private static final float TICK = SimulationService.TICK_SECONDS;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    /**
+     * A herb node that remembers the lowest yield it ever reported and how much grew back.
+     */
+    private static class WatchedHerbNode extends HerbNode {
+        final AtomicInteger lowestYield = new AtomicInteger(Integer.MAX_VALUE);
+        long grown;
+
+        WatchedHerbNode(HerbType type, int maxYield, float regrowthRate) {
+            super(type, maxYield, 1f, regrowthRate);
+        }
+
+        @Override
+        protected void changed() {
+            int yield = currentYield;
+            int lowest;
+            while (yield < (lowest = lowestYield.get()) && !lowestYield.compareAndSet(lowest, yield)) {
+                // Retry against the newer lowest
+            }
+            super.changed();
+        }
+
+        @Override
+        public void grow(int amount) {
+            int before = currentYield;
+            super.grow(amount);
+            grown += currentYield - before;
+        }
+    }
+
+    @Test
+    void concurrentTakersShareEveryUnitExactlyOnce() throws InterruptedException {
+        final int takers = 4096;
+        final int threads = 8;
+        final WatchedHerbNode[] patch = new WatchedHerbNode[9];
+        long totalYield = 0;
+        for (int i = 0; i < patch.length; i++) {
+            patch[i] = new WatchedHerbNode(HerbType.values()[i % HerbType.values().length], 5000 + i * 311, 0f);
+            totalYield += patch[i].getCurrentYield();
+        }
+
+        final long[] taken = new long[takers];
+        final AtomicInteger overdrawn = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(takers);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < takers; t++) {
+            final int taker = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        // A few rounds over the patch each, starting at a different node
+                        for (int round = 0; round < 8; round++) {
+                            for (int i = 0; i < patch.length; i++) {
+                                int amount = 1 + (taker + i) % 3;
+                                int got = patch[(taker + i) % patch.length].tryTake(amount);
+                                if (got < 0 || got > amount) {
+                                    overdrawn.incrementAndGet();
+                                }
+                                taken[taker] += got;
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS), "takers did not finish");
+        executor.shutdown();
+
+        long takenTotal = 0;
+        for (long amount : taken) {
+            takenTotal += amount;
+        }
+        long left = 0;
+        for (WatchedHerbNode node : patch) {
+            assertTrue(node.lowestYield.get() >= 0, "yield went negative: " + node.lowestYield.get());
+            left += node.getCurrentYield();
+        }
+        assertEquals(0, overdrawn.get(), "a taker got more than it asked for, or less than nothing");
+        assertEquals(totalYield, takenTotal + left, "units were lost or handed out twice");
+        // 4096 takers asking for up to 3 units 72 times each want far more than the patch holds
+        assertEquals(0, left);
+    }
+
+    @Test
+    void harvestersAroundSharedNodesAreServedFairly() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[] sequential = harvestChessboard(null);
+            int[] parallel = harvestChessboard(pool);
+            assertArrayEquals(sequential, parallel, "the pool changed who got what");
+
+            long sum = 0;
+            for (int total : parallel) {
+                sum += total;
+            }
+            double mean = sum / (double) parallel.length;
+            int[] sorted = parallel.clone();
+            Arrays.sort(sorted);
+            // Served in a fixed order, the first harvester at every node would get it all and the
+            // others next to nothing
+            assertTrue(sorted[0] >= mean * 0.25, "least served got " + sorted[0] + ", mean " + mean);
+            assertTrue(sorted[sorted.length / 10] >= mean * 0.6, "p10 " + sorted[sorted.length / 10] + ", mean " + mean);
+            assertTrue(sorted[sorted.length - 1] <= mean * 2.0, "most served got " + sorted[sorted.length - 1] + ", mean " + mean);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Fills a map with slow-growing nodes and harvesters on alternate tiles, so every node is
+     * shared by up to eight harvesters, and runs it for ten simulated minutes. Checks that what the
+     * harvesters took is what reached the inventory and what the nodes lost.
+     *
+     * @return what each harvester away from the border took, row by row
+     */
+    private static int[] harvestChessboard(ForkJoinPool pool) {
+        final int size = 96;
+        WorldMap map = new WorldMap(new ChunkedTileStorage(size, size, BiomeType.MILD_MEADOW));
+        List<WatchedHerbNode> nodes = new ArrayList<>();
+        long initialYield = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (((x + y) & 1) == 0) {
+                    WatchedHerbNode node = new WatchedHerbNode(HerbType.values()[(x * 7 + y) % HerbType.values().length], 3, 0.1f);
+                    map.setResourceNode(x, y, node);
+                    nodes.add(node);
+                    initialYield += node.getCurrentYield();
+                }
+            }
+        }
+
+        RegrowthScheduler regrowth = new RegrowthScheduler(TICK);
+        HarvestEvents harvestEvents = new HarvestEvents(1 << 12);
+        Inventory inventory = new Inventory();
+        BuildingManager buildings = new BuildingManager(map, regrowth, harvestEvents, new ProductionEngine(inventory, TICK));
+        buildings.setPool(pool);
+        for (int y = 1; y < size - 1; y++) {
+            for (int x = 1; x < size - 1; x++) {
+                if (((x + y) & 1) == 1) {
+                    assertTrue(buildings.placeBuilding(map.getTile(x, y), BuildingType.HARVESTER));
+                }
+            }
+        }
+
+        for (int tick = 0; tick < 12000; tick++) {
+            regrowth.update();
+            buildings.update(TICK);
+            harvestEvents.drainTo(inventory);
+        }
+
+        long harvested = 0;
+        for (Building building : buildings.getBuildings(BuildingType.HARVESTER)) {
+            harvested += ((Harvester) building).getTotalHarvested();
+        }
+        long grown = 0;
+        long left = 0;
+        for (WatchedHerbNode node : nodes) {
+            assertTrue(node.lowestYield.get() >= 0, "yield went negative: " + node.lowestYield.get());
+            grown += node.grown;
+            left += node.getCurrentYield();
+        }
+        long inInventory = 0;
+        for (HerbType herb : HerbType.values()) {
+            inInventory += inventory.getAmount(HerbForm.FRESH, herb);
+        }
+        assertEquals(harvested, inInventory, "harvests went missing on the way to the inventory");
+        assertEquals(initialYield + grown, harvested + left, "units were lost or harvested twice");
+        assertTrue(grown > 0, "nothing grew back, so nothing was contended");
+
+        // Harvesters along the border reach fewer nodes, so they are left out
+        List<Integer> totals = new ArrayList<>();
+        for (int y = 2; y < size - 2; y++) {
+            for (int x = 2; x < size - 2; x++) {
+                Building building = map.getBuilding(x, y);
+                if (building != null) {
+                    totals.add(((Harvester) building).getTotalHarvested());
+                }
+            }
+        }
+        int[] result = new int[totals.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = totals.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nova.healersinc.world.resource;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.nova.healersinc.HeadlessGdx;
+import com.nova.healersinc.world.herb.HerbType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A reloaded resource config is held to the rules the build checks {@code resources.json}
+ * against, and one that breaks them leaves the resources in place that were there before.
+ */
+class ResourceRegistryReloadTest {
+
+    private static final FileHandle CONFIG = new FileHandle(new File("../assets/" + ResourceRegistry.CONFIG_PATH));
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void loadRegistries() {
+        HeadlessGdx.init();
+    }
+
+    @Test
+    void rejectsWhatTheBuildRejects() {
+        assertRejected("\"stackSize\": 100", "\"stackSize\": 0");
+        assertRejected("\"stackSize\": 100", "\"stackSize\": 1.5");
+        assertRejected("\"baseValue\": 5", "\"baseValue\": -5");
+        assertRejected("\"color\": \"#FFFFCC\"", "\"color\": \"#FFFFCCF\"");
+        assertRejected("\"id\": \"chamomile\"", "\"id\": \"Chamomile\"");
+        assertRejected("\"id\": \"chamomile\"", "\"id\": \"nettle\"");
+        assertRejected("\"id\": \"chamomile\"", "\"id\": \"mint\"");
+        assertRejected("\"name\": \"Chamomile\"", "\"name\": 5");
+    }
+
+    @Test
+    void reloadsValidConfig() {
+        ResourceRegistry.Snapshot before = ResourceRegistry.get();
+        ResourceRegistry.reload(CONFIG);
+        assertNotSame(before, ResourceRegistry.get());
+        for (HerbType herb : HerbType.values()) {
+            assertEquals(before.getColor(herb), ResourceRegistry.get().getColor(herb));
+        }
+    }
+
+    private void assertRejected(String original, String broken) {
+        String config = CONFIG.readString("UTF-8");
+        String edited = config.replaceFirst(Pattern.quote(original), broken);
+        assertNotEquals(config, edited, "config has no " + original);
+        FileHandle file = new FileHandle(new File(dir, ResourceRegistry.CONFIG_PATH));
+        file.writeString(edited, false, "UTF-8");
+
+        ResourceRegistry.Snapshot before = ResourceRegistry.get();
+        try {
+            ResourceRegistry.reload(file);
+            fail("accepted " + broken);
+        } catch (IllegalArgumentException expected) {
+            // The config is broken
+        }
+        assertSame(before, ResourceRegistry.get(), "a failed reload replaced the resources");
+    }
+}